@@ -0,0 +1,83 @@
+package com.tss.aml.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.entity.RuleCondition.ConditionType;
+import com.tss.aml.service.rules.CompiledCondition;
+import com.tss.aml.service.rules.CustomerHistory;
+import com.tss.aml.service.rules.EvaluationContext;
+
+/**
+ * Cost of a single compiled condition of each type, AMOUNT through PATTERN_DEPOSIT_WITHDRAW,
+ * over an already loaded customer history, so the numbers exclude the history query.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class EvaluatorBenchmark {
+
+    private static final int INPUTS = 4096;
+
+    // no values: JMH runs every ConditionType
+    @Param
+    ConditionType conditionType;
+
+    @Param({ "10", "100", "1000" })
+    int historySize;
+
+    @Param({ "10", "1000" })
+    int customers;
+
+    private ScreeningFixture fixture;
+    private CompiledCondition condition;
+    private TransactionInputDto[] inputs;
+    private CustomerHistory[] histories;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new ScreeningFixture(1, historySize, customers, 42);
+        condition = fixture.compiler.compile(ScreeningFixture.condition(conditionType));
+        List<TransactionInputDto> generated = fixture.inputs(INPUTS, 7);
+        inputs = generated.toArray(new TransactionInputDto[0]);
+        histories = new CustomerHistory[customers + 1];
+        for (int c = 1; c <= customers; c++) {
+            histories[c] = new CustomerHistory(fixture.histories.get((long) c));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Benchmark
+    public boolean evaluate(Cursor cursor) {
+        TransactionInputDto input = inputs[cursor.next++ & (INPUTS - 1)];
+        CustomerHistory history = histories[Integer.parseInt(input.getCustomerId())];
+        return condition.evaluate(new EvaluationContext(input, history, fixture.now));
+    }
+}
@@ -0,0 +1,119 @@
+package com.tss.aml.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.CountryRisk;
+import com.tss.aml.entity.Rule;
+import com.tss.aml.entity.SuspiciousKeyword;
+import com.tss.aml.repository.BalanceSnapshotRepository;
+import com.tss.aml.repository.BankAccountRepository;
+import com.tss.aml.repository.CountryRiskRepository;
+import com.tss.aml.repository.KnownCounterpartyRepository;
+import com.tss.aml.repository.LedgerEntryRepository;
+import com.tss.aml.repository.RuleExecutionLogRepository;
+import com.tss.aml.repository.RuleRepository;
+import com.tss.aml.repository.SuspiciousKeywordRepository;
+import com.tss.aml.repository.TransactionRepository;
+
+/**
+ * Map-backed stand-ins for the Spring Data repositories the screening path touches.
+ * Only the query methods the engine calls are implemented; anything else throws.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static RuleRepository rules(List<Rule> activeByPriority) {
+        return stub(RuleRepository.class, Map.of(
+                "findByIsActiveTrueOrderByPriorityAsc", args -> activeByPriority,
+                "findAll", args -> activeByPriority));
+    }
+
+    /**
+     * @param histories each customer's transactions sorted by creation time
+     */
+    static TransactionRepository transactions(Map<Long, List<TransactionHistoryEntry>> histories) {
+        return stub(TransactionRepository.class, Map.of(
+                "findHistorySince", args -> {
+                    List<TransactionHistoryEntry> entries = histories.getOrDefault((Long) args[0], List.of());
+                    LocalDateTime after = (LocalDateTime) args[1];
+                    int lo = 0;
+                    int hi = entries.size();
+                    while (lo < hi) {
+                        int mid = (lo + hi) >>> 1;
+                        if (entries.get(mid).getCreatedAt().isAfter(after)) {
+                            hi = mid;
+                        } else {
+                            lo = mid + 1;
+                        }
+                    }
+                    // the real query materializes a fresh list per call
+                    return new ArrayList<>(entries.subList(lo, entries.size()));
+                }));
+    }
+
+    static CountryRiskRepository countryRisks(Map<String, CountryRisk> byCode) {
+        return stub(CountryRiskRepository.class, Map.of(
+                "findAll", args -> new ArrayList<>(byCode.values())));
+    }
+
+    static BankAccountRepository bankAccounts(Map<String, BankAccount> byNumber) {
+        return stub(BankAccountRepository.class, Map.of(
+                "findByAccountNumber", args -> Optional.ofNullable(byNumber.get((String) args[0]))));
+    }
+
+    /** Every account's ledger balance is its stored balance: one snapshot, no entries since. */
+    static BalanceSnapshotRepository balanceSnapshots(Map<String, BankAccount> byNumber) {
+        return stub(BalanceSnapshotRepository.class, Map.of(
+                "currentBalance", args -> Optional.ofNullable(byNumber.get((String) args[0])).map(BankAccount::getBalance)));
+    }
+
+    static LedgerEntryRepository ledgerEntries() {
+        return stub(LedgerEntryRepository.class, Map.of());
+    }
+
+    static RuleExecutionLogRepository executionLogs() {
+        return stub(RuleExecutionLogRepository.class, Map.of(
+                "save", args -> args[0],
+                "saveAll", args -> args[0] instanceof Collection<?> c ? new ArrayList<>(c) : List.of()));
+    }
+
+    static SuspiciousKeywordRepository suspiciousKeywords(List<SuspiciousKeyword> activeByRiskScore) {
+        return stub(SuspiciousKeywordRepository.class, Map.of(
+                "findByIsActiveTrueOrderByRiskScoreDesc", args -> activeByRiskScore));
+    }
+
+    static KnownCounterpartyRepository knownCounterparties() {
+        return stub(KnownCounterpartyRepository.class, Map.of());
+    }
+
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (self, method, args) -> {
+            Function<Object[], Object> impl = methods.get(method.getName());
+            if (impl != null) {
+                return impl.apply(args == null ? new Object[0] : args);
+            }
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            }
+        });
+        return type.cast(proxy);
+    }
+}
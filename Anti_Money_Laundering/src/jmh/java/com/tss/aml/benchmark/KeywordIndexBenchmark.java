@@ -0,0 +1,109 @@
+package com.tss.aml.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tss.aml.entity.SuspiciousKeyword;
+import com.tss.aml.service.rules.KeywordIndex;
+
+/**
+ * Cost of matching one transaction description against the keyword index, exact only and
+ * with fuzzy matching enabled on a share of the keywords. Descriptions mix clean text,
+ * real keywords and obfuscated spellings of them.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class KeywordIndexBenchmark {
+
+    private static final int INPUTS = 1024;
+    private static final String[] REAL = { "weapon", "offshore", "crypto", "hawala", "smuggling", "bearer bonds" };
+    private static final String[] TEXTS = {
+            "monthly rent payment for flat 4b",
+            "invoice 4411 settlement for consulting services",
+            "gift for family wedding",
+            "cr ypto exchange top up urgent",
+            "payment to off-shore account via agent",
+            "w3apon parts supplier advance",
+            "salary advance march",
+            "cash deposit from shop sales",
+    };
+
+    @Param({ "100", "1000", "10000" })
+    int keywords;
+
+    // share of keywords with fuzzyMatch set
+    @Param({ "0", "0.1", "1" })
+    double fuzzyShare;
+
+    private KeywordIndex index;
+    private String[] inputs;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Set<String> words = new HashSet<>(List.of(REAL));
+        while (words.size() < keywords) {
+            int length = 5 + random.nextInt(8);
+            StringBuilder word = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        List<SuspiciousKeyword> rows = new ArrayList<>(words.size());
+        long id = 1;
+        for (String word : words) {
+            int score = 1 + random.nextInt(100);
+            rows.add(SuspiciousKeyword.builder()
+                    .id(id++)
+                    .keyword(word)
+                    .riskScore(score)
+                    .riskLevel(SuspiciousKeyword.RiskLevel.fromScore(score))
+                    .isActive(true)
+                    .wholeWordOnly(true)
+                    .fuzzyMatch(random.nextDouble() < fuzzyShare)
+                    .build());
+        }
+        rows.sort(Comparator.comparing(SuspiciousKeyword::getRiskScore).reversed());
+
+        index = new KeywordIndex(InMemoryRepositories.suspiciousKeywords(rows));
+        index.refresh();
+
+        inputs = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            inputs[i] = TEXTS[random.nextInt(TEXTS.length)] + " ref " + random.nextInt(100000);
+        }
+    }
+
+    @Benchmark
+    public List<SuspiciousKeyword> match(Cursor cursor) {
+        return index.match(inputs[cursor.next++ & (INPUTS - 1)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.tss.aml.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tss.aml.dto.compliance.EvaluationResultDto;
+import com.tss.aml.dto.transaction.TransactionInputDto;
+
+/**
+ * End-to-end screening cost of {@code RuleEngineServiceImpl.evaluate}: history load,
+ * every rule's conditions, scoring and execution-log hand-off.
+ * Throughput, average time and sampled percentiles (p99) are reported; run with
+ * {@code -prof gc} for the allocation rate.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class RuleEngineBenchmark {
+
+    private static final int INPUTS = 4096;
+
+    @Param({ "10", "100", "1000" })
+    int ruleCount;
+
+    @Param({ "10", "100", "1000" })
+    int historySize;
+
+    @Param({ "10", "1000" })
+    int customers;
+
+    private ScreeningFixture fixture;
+    private TransactionInputDto[] inputs;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new ScreeningFixture(ruleCount, historySize, customers, 42);
+        List<TransactionInputDto> generated = fixture.inputs(INPUTS, 7);
+        inputs = generated.toArray(new TransactionInputDto[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Benchmark
+    public EvaluationResultDto evaluate(Cursor cursor) {
+        return fixture.engine.evaluate(inputs[cursor.next++ & (INPUTS - 1)]);
+    }
+}
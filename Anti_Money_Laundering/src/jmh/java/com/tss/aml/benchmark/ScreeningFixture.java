@@ -0,0 +1,237 @@
+package com.tss.aml.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
+import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.CountryRisk;
+import com.tss.aml.entity.Rule;
+import com.tss.aml.entity.RuleCondition;
+import com.tss.aml.entity.RuleCondition.ConditionType;
+import com.tss.aml.entity.Transaction.TransactionType;
+import com.tss.aml.repository.BankAccountRepository;
+import com.tss.aml.repository.TransactionRepository;
+import com.tss.aml.service.impl.LedgerService;
+import com.tss.aml.service.impl.RuleEngineServiceImpl;
+import com.tss.aml.service.rules.AmountEvaluator;
+import com.tss.aml.service.rules.BalanceRatioEvaluator;
+import com.tss.aml.service.rules.BehavioralDeviationEvaluator;
+import com.tss.aml.service.rules.BehavioralSketchStore;
+import com.tss.aml.service.rules.ConditionStatistics;
+import com.tss.aml.service.rules.CountryIndex;
+import com.tss.aml.service.rules.CountryRiskEvaluator;
+import com.tss.aml.service.rules.CustomerHistoryLoader;
+import com.tss.aml.service.rules.DailyTotalEvaluator;
+import com.tss.aml.service.rules.KeywordMatchEvaluator;
+import com.tss.aml.service.rules.KnownCounterpartyIndex;
+import com.tss.aml.service.rules.NewCounterpartyEvaluator;
+import com.tss.aml.service.rules.NlpScoreEvaluator;
+import com.tss.aml.service.rules.PastTransactionsEvaluator;
+import com.tss.aml.service.rules.PatternDepositWithdrawEvaluator;
+import com.tss.aml.service.rules.RuleCompiler;
+import com.tss.aml.service.rules.RuleEvaluator;
+import com.tss.aml.service.rules.RuleEvaluatorFactory;
+import com.tss.aml.service.rules.RuleExecutionLogWriter;
+import com.tss.aml.service.rules.RuleSetCache;
+import com.tss.aml.service.rules.ScreeningMetrics;
+import com.tss.aml.service.rules.SlidingWindowStore;
+import com.tss.aml.service.rules.StructuringEvaluator;
+import com.tss.aml.service.rules.VelocityEvaluator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Wires the screening path by hand over in-memory repositories and synthetic data.
+ * Components are built outside Spring, so every {@code @Value} switch keeps its Java
+ * default: the window, sketch and counterparty stores are off and evaluators answer
+ * from the loaded customer history, execution logs are saved synchronously to a no-op
+ * repository, and rules are evaluated sequentially in stored condition order.
+ */
+final class ScreeningFixture {
+
+    private static final String[] COUNTRIES = { "IN", "US", "GB", "AE", "SG", "PA", "KY", "IR" };
+    private static final String[] TEXTS = {
+            "monthly rent payment",
+            "invoice 4411 settlement for consulting services",
+            "gift for family",
+            "crypto exchange top up urgent",
+            "salary advance",
+            "cash deposit from shop sales",
+    };
+
+    final LocalDateTime now = LocalDateTime.now();
+    final int customers;
+    final Map<Long, List<TransactionHistoryEntry>> histories = new HashMap<>();
+    final Map<String, BankAccount> accounts = new HashMap<>();
+    final Map<String, CountryRisk> countryRisks = new HashMap<>();
+    final RuleCompiler compiler;
+    final RuleSetCache ruleSetCache;
+    final RuleEngineServiceImpl engine;
+    final CustomerHistoryLoader historyLoader;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    ScreeningFixture(int ruleCount, int historySize, int customers, long seed) {
+        Random random = new Random(seed);
+        this.customers = customers;
+        for (int i = 0; i < COUNTRIES.length; i++) {
+            countryRisks.put(COUNTRIES[i], CountryRisk.builder().countryCode(COUNTRIES[i]).riskScore(10 + i * 12).build());
+        }
+        for (long c = 1; c <= customers; c++) {
+            histories.put(c, history(c, historySize, random));
+            BankAccount account = new BankAccount();
+            account.setAccountNumber(account(c));
+            account.setBalance(BigDecimal.valueOf(1_000 + random.nextInt(500_000)));
+            accounts.put(account.getAccountNumber(), account);
+        }
+
+        TransactionRepository transactions = InMemoryRepositories.transactions(histories);
+        SlidingWindowStore windows = new SlidingWindowStore(transactions);
+        BehavioralSketchStore sketches = new BehavioralSketchStore(transactions);
+        KnownCounterpartyIndex counterparties = new KnownCounterpartyIndex(InMemoryRepositories.knownCounterparties());
+
+        Map<String, RuleEvaluator> evaluators = new HashMap<>();
+        evaluators.put("AMOUNT", new AmountEvaluator());
+        evaluators.put("COUNTRY_RISK", new CountryRiskEvaluator(new CountryIndex(InMemoryRepositories.countryRisks(countryRisks))));
+        evaluators.put("NLP_SCORE", new NlpScoreEvaluator());
+        evaluators.put("KEYWORD_MATCH", new KeywordMatchEvaluator());
+        evaluators.put("PAST_TRANSACTIONS", new PastTransactionsEvaluator());
+        evaluators.put("VELOCITY", new VelocityEvaluator(windows));
+        evaluators.put("STRUCTURING", new StructuringEvaluator(windows));
+        evaluators.put("BEHAVIORAL_DEVIATION", new BehavioralDeviationEvaluator(sketches));
+        BankAccountRepository bankAccounts = InMemoryRepositories.bankAccounts(accounts);
+        LedgerService ledger = new LedgerService(InMemoryRepositories.ledgerEntries(),
+                InMemoryRepositories.balanceSnapshots(accounts), bankAccounts, null);
+        evaluators.put("AMOUNT_BALANCE_RATIO", new BalanceRatioEvaluator(bankAccounts, ledger));
+        evaluators.put("DAILY_TOTAL", new DailyTotalEvaluator(windows));
+        evaluators.put("NEW_COUNTERPARTY", new NewCounterpartyEvaluator(counterparties));
+        evaluators.put("PATTERN_DEPOSIT_WITHDRAW", new PatternDepositWithdrawEvaluator());
+
+        ConditionStatistics statistics = new ConditionStatistics();
+        compiler = new RuleCompiler(new RuleEvaluatorFactory(evaluators));
+        ruleSetCache = new RuleSetCache(InMemoryRepositories.rules(rules(ruleCount, random)), compiler, windows, sketches, statistics);
+        ruleSetCache.refresh();
+        historyLoader = new CustomerHistoryLoader(transactions);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RuleExecutionLogWriter logWriter = new RuleExecutionLogWriter(null, InMemoryRepositories.executionLogs(), meterRegistry, null);
+        engine = new RuleEngineServiceImpl(ruleSetCache, logWriter, historyLoader, statistics,
+                new ScreeningMetrics(meterRegistry), executor);
+    }
+
+    /** Random screening inputs; recipients are mostly known counterparties, sometimes new ones. */
+    List<TransactionInputDto> inputs(int count, long seed) {
+        Random random = new Random(seed);
+        List<TransactionInputDto> inputs = new ArrayList<>(count);
+        TransactionType[] types = TransactionType.values();
+        for (int i = 0; i < count; i++) {
+            long customerId = 1 + random.nextInt(customers);
+            inputs.add(TransactionInputDto.builder()
+                    .txId(String.valueOf(1_000_000 + i))
+                    .customerId(String.valueOf(customerId))
+                    .amount(amount(random))
+                    .countryCode(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                    .senderCountryCode(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                    .nlpScore(random.nextInt(101))
+                    .text(TEXTS[random.nextInt(TEXTS.length)])
+                    .transactionType(types[random.nextInt(types.length)])
+                    .fromAccountNumber(account(customerId))
+                    .toAccountNumber(random.nextInt(10) == 0 ? "NEW-" + i : counterparty(customerId, random.nextInt(20)))
+                    .build());
+        }
+        return inputs;
+    }
+
+    /** One representative condition per type, in the value formats the evaluators document. */
+    static RuleCondition condition(ConditionType type) {
+        RuleCondition.RuleConditionBuilder c = RuleCondition.builder().type(type).isActive(true);
+        switch (type) {
+            case AMOUNT -> c.field("amount").operator(">=").value("50000");
+            case COUNTRY_RISK -> c.field("country").operator(">=").value("70");
+            case NLP_SCORE -> c.field("nlpScore").operator(">=").value("60");
+            case KEYWORD_MATCH -> c.field("text").operator(">").value("crypto");
+            case PAST_TRANSACTIONS -> c.field("count").operator(">=").value("30|20");
+            case VELOCITY -> c.field("count").operator(">=").value("10000|5|24|ANY");
+            case STRUCTURING -> c.field("sum").operator(">=").value("50000|200000|24|DEPOSIT");
+            case BEHAVIORAL_DEVIATION -> c.field("amount_percentile").operator(">=").value("90|95");
+            case AMOUNT_BALANCE_RATIO -> c.operator(">=").value("0.8");
+            case DAILY_TOTAL -> c.field("sum").operator(">=").value("200000|24|ANY");
+            case NEW_COUNTERPARTY -> c.operator(">=").value("30|25000|TRANSFER");
+            case PATTERN_DEPOSIT_WITHDRAW -> c.operator("==").value("2|0.9");
+        }
+        return c.build();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Low-weight FLAG rules cycling through every condition type, every other one AND-ed
+     * with an amount condition, so no rule short-circuits the evaluation.
+     */
+    private static List<Rule> rules(int count, Random random) {
+        ConditionType[] types = ConditionType.values();
+        Map<ConditionType, Integer> seen = new EnumMap<>(ConditionType.class);
+        List<Rule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ConditionType type = types[i % types.length];
+            Rule rule = Rule.builder()
+                    .id((long) i + 1)
+                    .name(type + "-" + seen.merge(type, 1, Integer::sum))
+                    .priority(i)
+                    .action("FLAG")
+                    .riskWeight(1 + random.nextInt(5))
+                    .isActive(true)
+                    .build();
+            List<RuleCondition> conditions = new ArrayList<>();
+            conditions.add(condition(type));
+            if (i % 2 == 1) {
+                conditions.add(RuleCondition.builder().type(ConditionType.AMOUNT).field("amount")
+                        .operator(">=").value(String.valueOf(1_000 * (1 + random.nextInt(50)))).isActive(true).build());
+            }
+            conditions.forEach(c -> c.setRule(rule));
+            rule.setConditions(conditions);
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /** Transactions spread over the last 90 days, oldest first. */
+    private List<TransactionHistoryEntry> history(long customerId, int size, Random random) {
+        TransactionType[] types = TransactionType.values();
+        List<TransactionHistoryEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new TransactionHistoryEntry(
+                    amount(random),
+                    types[random.nextInt(types.length)],
+                    counterparty(customerId, random.nextInt(20)),
+                    now.minusMinutes(1 + random.nextInt(90 * 24 * 60))));
+        }
+        entries.sort(Comparator.comparing(TransactionHistoryEntry::getCreatedAt));
+        return entries;
+    }
+
+    /** Log-uniform between 100 and 200,000. */
+    private static BigDecimal amount(Random random) {
+        return BigDecimal.valueOf(Math.round(100 * Math.pow(2_000, random.nextDouble())));
+    }
+
+    private static String account(long customerId) {
+        return "ACC-" + customerId;
+    }
+
+    private static String counterparty(long customerId, int n) {
+        return "CP-" + customerId + "-" + n;
+    }
+}
@@ -1,6 +1,14 @@
 package com.tss.aml.config;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
@@ -11,6 +19,8 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 @Configuration
 public class AsyncConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
     /**
      * Primary executor used by @Async("taskExecutor").
      * Tune pool sizes to your deployment characteristics.
@@ -28,6 +38,27 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Executor for parallel rule evaluation. Uses virtual threads when the runtime
+     * provides them (Java 21+), otherwise a fixed pool of daemon platform threads.
+     */
+    @Bean(name = "ruleEvaluationExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService ruleEvaluationExecutor(@Value("${aml.rules.parallel.platform-threads:16}") int platformThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            log.info("Rule evaluation executor: virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Rule evaluation executor: {} platform threads (virtual threads unavailable)", platformThreads);
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, r -> {
+                Thread t = new Thread(r, "RuleEval-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
     /**
      * Simple in-memory cache manager (no extra dependencies).
      * Replace with Caffeine/Redis for production.
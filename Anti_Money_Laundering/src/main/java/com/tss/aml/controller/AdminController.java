@@ -1,9 +1,11 @@
 package com.tss.aml.controller;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,21 +21,34 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.tss.aml.dto.account.BankAccountDto;
 import com.tss.aml.dto.admin.AdminCustomerDetailsDto;
 import com.tss.aml.dto.admin.CreateUserDto;
 import com.tss.aml.dto.admin.UserDto;
+import com.tss.aml.dto.compliance.BacktestRequestDto;
+import com.tss.aml.dto.compliance.BacktestResultDto;
+import com.tss.aml.dto.compliance.BatchEvaluationResultDto;
 import com.tss.aml.dto.compliance.CountryRiskDto;
+import com.tss.aml.dto.compliance.DecisionTraceSettingsDto;
+import com.tss.aml.dto.compliance.KeywordImportStatusDto;
 import com.tss.aml.dto.compliance.RuleDto;
 import com.tss.aml.dto.compliance.SuspiciousKeywordDto;
 import com.tss.aml.dto.document.DocumentDTO;
+import com.tss.aml.dto.transaction.BalanceDto;
 import com.tss.aml.dto.transaction.TransactionDto;
+import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.AuditLog;
 import com.tss.aml.entity.Enums.DocumentStatus;
 import com.tss.aml.service.IAdminService;
 import com.tss.aml.service.IAuditLogService;
 import com.tss.aml.service.IDocumentService;
+import com.tss.aml.service.impl.BacktestServiceImpl;
+import com.tss.aml.service.impl.BatchEvaluationServiceImpl;
+import com.tss.aml.service.impl.KeywordImportServiceImpl;
+import com.tss.aml.service.impl.LedgerService;
+import com.tss.aml.service.rules.DecisionTracer;
 
 import lombok.RequiredArgsConstructor;
 
@@ -46,6 +61,11 @@ public class AdminController {
     private final IAdminService adminService;
     private final IAuditLogService auditLogService;
     private final IDocumentService documentService;
+    private final BatchEvaluationServiceImpl batchEvaluationService;
+    private final BacktestServiceImpl backtestService;
+    private final DecisionTracer decisionTracer;
+    private final KeywordImportServiceImpl keywordImportService;
+    private final LedgerService ledgerService;
 
     @GetMapping("/users")
     public ResponseEntity<List<UserDto>> getAllUsers() {
@@ -88,6 +108,32 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/rules/evaluate-batch")
+    public ResponseEntity<BatchEvaluationResultDto> evaluateBatch(@RequestBody List<TransactionInputDto> transactions) {
+        return ResponseEntity.ok(batchEvaluationService.evaluate(transactions));
+    }
+
+    @PostMapping("/rules/backtest")
+    public ResponseEntity<BacktestResultDto> backtestRules(@RequestBody BacktestRequestDto request) {
+        return ResponseEntity.ok(backtestService.run(request));
+    }
+
+    @GetMapping("/decision-trace")
+    public ResponseEntity<DecisionTraceSettingsDto> getDecisionTrace() {
+        return ResponseEntity.ok(decisionTraceSettings());
+    }
+
+    @PutMapping("/decision-trace")
+    public ResponseEntity<DecisionTraceSettingsDto> updateDecisionTrace(@RequestBody DecisionTraceSettingsDto settings) {
+        decisionTracer.configure(settings.getLevel(), settings.getSampleRate());
+        return ResponseEntity.ok(decisionTraceSettings());
+    }
+
+    private DecisionTraceSettingsDto decisionTraceSettings() {
+        return new DecisionTraceSettingsDto(decisionTracer.getLevel(), decisionTracer.getSampleRate(),
+                decisionTracer.getCapacity(), decisionTracer.getWritten(), decisionTracer.getDropped());
+    }
+
     @GetMapping("/keywords")
     public ResponseEntity<List<SuspiciousKeywordDto>> getAllKeywords() {
         return ResponseEntity.ok(adminService.getAllKeywords());
@@ -98,6 +144,19 @@ public class AdminController {
         return new ResponseEntity<>(adminService.addKeyword(keywordDto), HttpStatus.CREATED);
     }
 
+    @PostMapping("/keywords/import")
+    public ResponseEntity<KeywordImportStatusDto> importKeywords(@RequestParam("file") MultipartFile file,
+                                                                 @RequestParam(required = false) String format,
+                                                                 Authentication authentication) {
+        String importedBy = authentication != null ? authentication.getName() : "ADMIN";
+        return new ResponseEntity<>(keywordImportService.start(file, format, importedBy), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/keywords/import/{id}")
+    public ResponseEntity<KeywordImportStatusDto> getKeywordImport(@PathVariable String id) {
+        return ResponseEntity.ok(keywordImportService.status(id));
+    }
+
     @DeleteMapping("/keywords/{id}")
     public ResponseEntity<Void> deleteKeyword(@PathVariable Long id) {
         adminService.deleteKeyword(id);
@@ -169,6 +228,14 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    // Balance rebuilt from the ledger, current or as of a point in time (ISO date-time)
+    @GetMapping("/accounts/balance/{accountNumber}")
+    public ResponseEntity<BalanceDto> getAccountBalance(@PathVariable String accountNumber,
+                                                        @RequestParam(required = false)
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(ledgerService.accountBalance(accountNumber, at));
+    }
+
     // Admin transactions view by account number
     @GetMapping("/transactions/account/{accountNumber}")
     public ResponseEntity<List<TransactionDto>> getTransactionsByAccount(@PathVariable String accountNumber) {
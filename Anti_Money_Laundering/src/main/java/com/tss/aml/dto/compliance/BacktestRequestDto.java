@@ -0,0 +1,19 @@
+package com.tss.aml.dto.compliance;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BacktestRequestDto {
+    // transactions created in [from, to) are replayed
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // saved rules (typically still inactive) to add to the candidate set; replace active rules with the same id
+    private List<Long> ruleIds;
+    // unsaved rule definitions to add to the candidate set
+    private List<RuleDto> rules;
+    // start the candidate set empty instead of from the active rules
+    private boolean replaceActiveRules;
+}
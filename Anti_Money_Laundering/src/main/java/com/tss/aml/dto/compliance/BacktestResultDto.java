@@ -0,0 +1,32 @@
+package com.tss.aml.dto.compliance;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestResultDto {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long liveRuleSetVersion;
+    private int workers;
+    // rows read, including the warm-up rows before 'from' that only fill history windows
+    private long transactionsScanned;
+    private long transactionsEvaluated;
+    // transactions the engine failed on; they are excluded from both summaries
+    private long errors;
+    private long customers;
+    private long elapsedMs;
+    private double transactionsPerSecond;
+    private BacktestSummaryDto candidate;
+    private BacktestSummaryDto live;
+    private long flaggedDelta;
+    private long blockedDelta;
+    // live decision -> candidate decision, e.g. "APPROVED->FLAGGED", for transactions whose decision changed
+    private Map<String, Long> decisionChanges;
+}
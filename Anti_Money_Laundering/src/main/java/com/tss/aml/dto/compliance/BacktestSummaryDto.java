@@ -0,0 +1,23 @@
+package com.tss.aml.dto.compliance;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestSummaryDto {
+    private int rules;
+    private long approved;
+    private long flagged;
+    private long blocked;
+    private double averageRuleScore;
+    // rule score counts in buckets of 10: [0,10), [10,20), ..., [90,100]
+    private List<Long> ruleScoreHistogram;
+    // matches per rule name
+    private Map<String, Long> ruleHits;
+}
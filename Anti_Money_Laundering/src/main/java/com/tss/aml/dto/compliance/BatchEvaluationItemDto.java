@@ -0,0 +1,21 @@
+package com.tss.aml.dto.compliance;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchEvaluationItemDto {
+    private String txId;
+    private String customerId;
+    private int ruleScore;
+    private int nlpScore;
+    private int combinedScore;
+    private String decision; // APPROVED, FLAGGED or BLOCKED
+    private List<RuleMatchDto> matchedRules;
+    private String error;
+}
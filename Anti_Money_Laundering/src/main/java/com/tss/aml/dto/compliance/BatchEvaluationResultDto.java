@@ -0,0 +1,23 @@
+package com.tss.aml.dto.compliance;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchEvaluationResultDto {
+    private long ruleSetVersion;
+    private int transactions;
+    private int customers;
+    private long elapsedMs;
+    private double transactionsPerSecond;
+    private long approved;
+    private long flagged;
+    private long blocked;
+    // one entry per input, in input order
+    private List<BatchEvaluationItemDto> results;
+}
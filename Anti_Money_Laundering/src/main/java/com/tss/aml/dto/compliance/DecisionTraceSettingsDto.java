@@ -0,0 +1,20 @@
+package com.tss.aml.dto.compliance;
+
+import com.tss.aml.service.rules.DecisionTracer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DecisionTraceSettingsDto {
+    private DecisionTracer.Level level;
+    // share of APPROVED decisions traced when level is ALL, 0.0 - 1.0
+    private Double sampleRate;
+    // read-only: buffer capacity and running totals
+    private int capacity;
+    private long written;
+    private long dropped;
+}
@@ -11,10 +11,18 @@ public class EvaluationResultDto {
     private int totalRiskScore;
     private List<RuleExecutionLog> logs;
     private List<RuleMatchDto> matchedRules;
+    // rules skipped by early termination once the decision band was fixed
+    private List<RuleMatchDto> notEvaluatedRules;
 
     public EvaluationResultDto(int totalRiskScore, List<RuleExecutionLog> logs, List<RuleMatchDto> matchedRules) {
+        this(totalRiskScore, logs, matchedRules, List.of());
+    }
+
+    public EvaluationResultDto(int totalRiskScore, List<RuleExecutionLog> logs, List<RuleMatchDto> matchedRules,
+                               List<RuleMatchDto> notEvaluatedRules) {
         this.totalRiskScore = totalRiskScore;
         this.logs = logs;
         this.matchedRules = matchedRules;
+        this.notEvaluatedRules = notEvaluatedRules;
     }
 }
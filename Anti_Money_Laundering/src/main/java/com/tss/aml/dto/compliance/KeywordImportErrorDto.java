@@ -0,0 +1,15 @@
+package com.tss.aml.dto.compliance;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeywordImportErrorDto {
+    // 1-based line in the uploaded file
+    private long line;
+    private String keyword;
+    private String message;
+}
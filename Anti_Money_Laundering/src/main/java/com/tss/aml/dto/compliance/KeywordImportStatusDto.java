@@ -0,0 +1,32 @@
+package com.tss.aml.dto.compliance;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeywordImportStatusDto {
+    private String id;
+    // RUNNING, COMPLETED or FAILED
+    private String status;
+    private String format;
+    private String fileName;
+    private long bytesTotal;
+    private long bytesRead;
+    private double percentComplete;
+    private long rowsRead;
+    private long inserted;
+    // already in the table, or repeated within the same chunk of the file
+    private long duplicates;
+    private long invalid;
+    // the first rows that failed validation or insert; 'invalid' has the full count
+    private List<KeywordImportErrorDto> errors;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
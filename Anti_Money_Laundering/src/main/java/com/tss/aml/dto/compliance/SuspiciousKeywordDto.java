@@ -39,6 +39,8 @@ public class SuspiciousKeywordDto {
 
     private boolean wholeWordOnly = true;
 
+    private boolean fuzzyMatch;
+
     @Size(max = 100, message = "Created by cannot exceed 100 characters")
     private String createdBy;
 
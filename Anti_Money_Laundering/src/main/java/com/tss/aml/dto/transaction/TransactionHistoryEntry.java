@@ -0,0 +1,29 @@
+package com.tss.aml.dto.transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.tss.aml.entity.Transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Compact projection of a {@link Transaction} row carrying only what the
+ * window-based rule evaluators look at.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionHistoryEntry {
+    /** Id of the transaction row, or null when the entry was not read from the database. */
+    private final Long id;
+    private final BigDecimal amount;
+    private final Transaction.TransactionType transactionType;
+    private final String counterparty;
+    private final LocalDateTime createdAt;
+
+    public TransactionHistoryEntry(BigDecimal amount, Transaction.TransactionType transactionType,
+                                   String counterparty, LocalDateTime createdAt) {
+        this(null, amount, transactionType, counterparty, createdAt);
+    }
+}
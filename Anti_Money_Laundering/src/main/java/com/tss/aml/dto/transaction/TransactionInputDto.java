@@ -1,13 +1,17 @@
 package com.tss.aml.dto.transaction;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import com.tss.aml.entity.Transaction;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TransactionInputDto {
     private String txId;
     private String customerId;
@@ -0,0 +1,39 @@
+package com.tss.aml.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An account balance folded from the ledger: the previous snapshot plus every
+ * {@link LedgerEntry} whose {@code snapshotId} is this snapshot. {@code lastEntryId} is the
+ * newest of those entries and {@code asOf} the newest creation time among them, so the
+ * snapshot is valid for any point in time from then on.
+ */
+@Entity
+@Table(name = "balance_snapshot",
+        indexes = @Index(name = "idx_balance_snapshot_account", columnList = "account_number, id"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_number", nullable = false)
+    private String accountNumber;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private long lastEntryId;
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -21,6 +21,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -42,8 +43,14 @@ public class BankAccount {
     @Column(unique = true, nullable = false)
     private String accountNumber;
 
+    // balance at the last ledger compaction; the current balance is LedgerService.currentBalance
     private BigDecimal balance;
 
+    // bumped by every debit and compaction; stale writes of an account fail instead of overwriting it
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private long version;
+
     private String currency;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,39 @@
+package com.tss.aml.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * First and last time a customer sent a given transaction type to a counterparty account.
+ * Maintained alongside the transaction table for NEW_COUNTERPARTY screening.
+ */
+@Entity
+@Table(name = "known_counterparty",
+        uniqueConstraints = @UniqueConstraint(name = "uk_known_counterparty",
+                columnNames = {"customer_id", "counterparty", "transaction_type"}),
+        indexes = @Index(name = "idx_known_counterparty_last_seen", columnList = "last_seen"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class KnownCounterparty {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "counterparty", nullable = false)
+    private String counterparty;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false)
+    private Transaction.TransactionType transactionType;
+
+    @Column(name = "first_seen", nullable = false)
+    private LocalDateTime firstSeen;
+
+    @Column(name = "last_seen", nullable = false)
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,50 @@
+package com.tss.aml.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One debit, credit or adjustment of an account balance. Rows are only ever inserted, and
+ * compaction only sets {@code snapshotId}; an account's balance is its latest
+ * {@link BalanceSnapshot} plus the entries not yet folded into one.
+ */
+@Entity
+@Table(name = "ledger_entry",
+        indexes = {
+                @Index(name = "idx_ledger_entry_account", columnList = "account_number, id"),
+                @Index(name = "idx_ledger_entry_snapshot", columnList = "account_number, snapshot_id"),
+                @Index(name = "idx_ledger_entry_created", columnList = "created_at")
+        })
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class LedgerEntry {
+
+    public enum EntryType { CREDIT, DEBIT, ADJUSTMENT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_number", nullable = false)
+    private String accountNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false)
+    private EntryType entryType;
+
+    // signed: negative for debits
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // the snapshot this entry was folded into; null until compaction
+    @Column(name = "snapshot_id")
+    private Long snapshotId;
+}
@@ -51,6 +51,10 @@ public class SuspiciousKeyword {
 
     @Column(name = "whole_word_only", nullable = false)
     private boolean wholeWordOnly = true; 
+
+    // also match obfuscated spellings (leetspeak, split words, small typos), see KeywordIndex
+    @Column(name = "fuzzy_match", nullable = false)
+    private boolean fuzzyMatch;
     
     @Size(max = 100, message = "Created by cannot exceed 100 characters")
     @Column(name = "created_by")
@@ -0,0 +1,41 @@
+package com.tss.aml.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tss.aml.entity.BalanceSnapshot;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByAccountNumberOrderByIdDesc(String accountNumber);
+
+    Optional<BalanceSnapshot> findFirstByAccountNumberOrderByIdAsc(String accountNumber);
+
+    Optional<BalanceSnapshot> findFirstByAccountNumberAndAsOfLessThanEqualOrderByIdDesc(String accountNumber, LocalDateTime at);
+
+    /**
+     * Latest snapshot plus the entries not folded into one, read in a single statement so a
+     * compaction committing in between cannot be seen half applied.
+     */
+    @Query("select s.balance + coalesce((select sum(e.amount) from LedgerEntry e " +
+           "where e.accountNumber = s.accountNumber and e.snapshotId is null), 0) " +
+           "from BalanceSnapshot s where s.accountNumber = :accountNumber " +
+           "and s.id = (select max(l.id) from BalanceSnapshot l where l.accountNumber = :accountNumber)")
+    Optional<BigDecimal> currentBalance(@Param("accountNumber") String accountNumber);
+
+    /** Opening snapshots, from the stored balance, for accounts that have none. */
+    @Modifying
+    @Query(value = "insert into balance_snapshot (account_number, balance, last_entry_id, as_of, created_at) " +
+                   "select a.account_number, coalesce(a.balance, 0), 0, :now, :now from bank_account a " +
+                   "where not exists (select 1 from balance_snapshot s where s.account_number = a.account_number)",
+           nativeQuery = true)
+    int openMissing(@Param("now") LocalDateTime now);
+}
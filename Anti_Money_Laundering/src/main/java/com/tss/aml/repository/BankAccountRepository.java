@@ -1,9 +1,15 @@
 package com.tss.aml.repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.tss.aml.entity.BankAccount;
@@ -11,6 +17,8 @@ import com.tss.aml.entity.User;
 import com.tss.aml.entity.Enums.AccountStatus;
 import com.tss.aml.entity.Enums.ApprovalStatus;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
     List<BankAccount> findByUserId(Long userId);
@@ -18,4 +26,40 @@ public interface BankAccountRepository extends JpaRepository<BankAccount, Long>
     Optional<BankAccount> findByAccountNumber(String accountNumber);
     List<BankAccount> findByApprovalStatus(ApprovalStatus approvalStatus);
     List<BankAccount> findByStatus(AccountStatus status);
+
+    /** Bumps the version if it is still {@code version}; 0 means another writer got there first. */
+    @Modifying
+    @Query("update BankAccount a set a.version = a.version + 1 where a.id = :id and a.version = :version")
+    int claim(@Param("id") Long id, @Param("version") long version);
+
+    /*
+     * Lifecycle changes write only their own columns: saving the entity would write back
+     * bank_account.balance as it was loaded and bump the version concurrent debits claim.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccount a set a.approvalStatus = :approvalStatus, a.status = :status, " +
+           "a.approvedAt = :at, a.updatedAt = :at where a.id = :id")
+    int updateApproval(@Param("id") Long id,
+                       @Param("approvalStatus") ApprovalStatus approvalStatus,
+                       @Param("status") AccountStatus status,
+                       @Param("at") LocalDateTime at);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccount a set a.status = :status, a.suspendedAt = :at, a.updatedAt = :at where a.id = :id")
+    int updateSuspension(@Param("id") Long id, @Param("status") AccountStatus status, @Param("at") LocalDateTime at);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccount a set a.status = :status, a.activatedAt = :at, a.updatedAt = :at where a.id = :id")
+    int updateActivation(@Param("id") Long id, @Param("status") AccountStatus status, @Param("at") LocalDateTime at);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from BankAccount a where a.accountNumber = :accountNumber")
+    Optional<BankAccount> lockByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Modifying
+    @Query("update BankAccount a set a.balance = :balance, a.version = a.version + 1, a.updatedAt = :updatedAt " +
+           "where a.accountNumber = :accountNumber")
+    int updateBalance(@Param("accountNumber") String accountNumber,
+                      @Param("balance") BigDecimal balance,
+                      @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,50 @@
+package com.tss.aml.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tss.aml.entity.KnownCounterparty;
+import com.tss.aml.entity.Transaction;
+
+@Repository
+public interface KnownCounterpartyRepository extends JpaRepository<KnownCounterparty, Long> {
+
+    boolean existsByCustomerIdAndCounterpartyAndTransactionTypeInAndLastSeenAfter(
+            Long customerId, String counterparty, Collection<Transaction.TransactionType> types, LocalDateTime after);
+
+    @Query("select k.customerId, k.counterparty, k.transactionType from KnownCounterparty k")
+    List<Object[]> findAllKeys();
+
+    @Query("select k.customerId, k.counterparty, k.transactionType from KnownCounterparty k where k.lastSeen >= :since")
+    List<Object[]> findKeysSeenSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query(value = "insert into known_counterparty (customer_id, counterparty, transaction_type, first_seen, last_seen) " +
+                   "values (:customerId, :counterparty, :type, :seenAt, :seenAt) as seen " +
+                   "on duplicate key update first_seen = least(first_seen, seen.first_seen), " +
+                   "last_seen = greatest(last_seen, seen.last_seen)",
+           nativeQuery = true)
+    int upsert(@Param("customerId") Long customerId,
+               @Param("counterparty") String counterparty,
+               @Param("type") String type,
+               @Param("seenAt") LocalDateTime seenAt);
+
+    @Modifying
+    @Query(value = "insert into known_counterparty (customer_id, counterparty, transaction_type, first_seen, last_seen) " +
+                   "select * from (select t.customer_id, t.to_account_number, t.transaction_type, " +
+                   "min(t.created_at) as first_seen_at, max(t.created_at) as last_seen_at " +
+                   "from transaction t " +
+                   "where t.customer_id is not null and t.to_account_number is not null and t.transaction_type is not null " +
+                   "group by t.customer_id, t.to_account_number, t.transaction_type) as seen " +
+                   "on duplicate key update first_seen = least(first_seen, seen.first_seen_at), " +
+                   "last_seen = greatest(last_seen, seen.last_seen_at)",
+           nativeQuery = true)
+    int backfillFromTransactions();
+}
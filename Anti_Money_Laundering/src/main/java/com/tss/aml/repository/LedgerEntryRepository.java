@@ -0,0 +1,47 @@
+package com.tss.aml.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tss.aml.entity.LedgerEntry;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("select coalesce(sum(e.amount), 0) from LedgerEntry e " +
+           "where e.accountNumber = :accountNumber and e.snapshotId is null")
+    BigDecimal sumUnfolded(@Param("accountNumber") String accountNumber);
+
+    /** Sum of the account's entries created up to {@code at} that {@code snapshotId} and earlier snapshots do not include. */
+    @Query("select coalesce(sum(e.amount), 0) from LedgerEntry e where e.accountNumber = :accountNumber " +
+           "and (e.snapshotId is null or e.snapshotId > :snapshotId) and e.createdAt <= :at")
+    BigDecimal sumOutsideUpTo(@Param("accountNumber") String accountNumber,
+                              @Param("snapshotId") long snapshotId,
+                              @Param("at") LocalDateTime at);
+
+    /**
+     * Folds every unfolded entry of the account into {@code snapshotId}. Entries inserted by
+     * transactions still in flight are row-locked, so the update waits for them to commit.
+     */
+    @Modifying
+    @Query("update LedgerEntry e set e.snapshotId = :snapshotId " +
+           "where e.accountNumber = :accountNumber and e.snapshotId is null")
+    int fold(@Param("accountNumber") String accountNumber, @Param("snapshotId") long snapshotId);
+
+    /** Sum, newest id and newest creation time of the entries folded into {@code snapshotId}. */
+    @Query("select coalesce(sum(e.amount), 0), max(e.id), max(e.createdAt) from LedgerEntry e " +
+           "where e.accountNumber = :accountNumber and e.snapshotId = :snapshotId")
+    List<Object[]> summarizeFolded(@Param("accountNumber") String accountNumber, @Param("snapshotId") long snapshotId);
+
+    /** Per account with unfolded entries: account number, their count and the oldest creation time. */
+    @Query("select e.accountNumber, count(e), min(e.createdAt) from LedgerEntry e " +
+           "where e.snapshotId is null group by e.accountNumber")
+    List<Object[]> findUncompacted();
+}
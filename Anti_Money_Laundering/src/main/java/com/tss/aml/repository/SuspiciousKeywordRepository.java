@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,5 +29,7 @@ public interface SuspiciousKeywordRepository extends JpaRepository<SuspiciousKey
     
     long countByRiskLevelAndIsActiveTrue(SuspiciousKeyword.RiskLevel riskLevel);
     
+    long countByRiskLevelInAndIsActiveTrue(Collection<SuspiciousKeyword.RiskLevel> riskLevels);
+    
     boolean existsByKeywordIgnoreCase(String keyword);
 }
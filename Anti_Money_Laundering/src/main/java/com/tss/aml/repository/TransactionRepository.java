@@ -1,6 +1,8 @@
 package com.tss.aml.repository;
 
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
 import com.tss.aml.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -75,4 +77,24 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("after") LocalDateTime after,
             @Param("types") List<Transaction.TransactionType> types
     );
+
+    @Query("select new com.tss.aml.dto.transaction.TransactionHistoryEntry(t.id, t.amount, t.transactionType, t.toAccountNumber, t.createdAt) " +
+           "from Transaction t where t.customerId = :customerId and t.createdAt > :after order by t.createdAt asc, t.id asc")
+    List<TransactionHistoryEntry> findHistorySince(
+            @Param("customerId") Long customerId,
+            @Param("after") LocalDateTime after
+    );
+
+    /**
+     * id, customer id, amount, type and creation time of transactions created after {@code after},
+     * one page of ids below {@code beforeId} at a time, newest id first.
+     */
+    @Query("select t.id, t.customerId, t.amount, t.transactionType, t.createdAt from Transaction t " +
+           "where t.createdAt > :after and t.customerId is not null and t.id < :beforeId order by t.id desc")
+    List<Object[]> findRecentActivity(@Param("after") LocalDateTime after, @Param("beforeId") long beforeId, Pageable page);
+
+    /** Same columns as {@link #findRecentActivity}, for one customer. */
+    @Query("select t.id, t.customerId, t.amount, t.transactionType, t.createdAt from Transaction t " +
+           "where t.customerId = :customerId and t.createdAt > :after")
+    List<Object[]> findCustomerActivity(@Param("customerId") Long customerId, @Param("after") LocalDateTime after);
 }
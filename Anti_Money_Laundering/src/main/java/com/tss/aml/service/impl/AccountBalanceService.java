@@ -0,0 +1,170 @@
+package com.tss.aml.service.impl;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.LedgerEntry;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.repository.BankAccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Applies balance changes to bank accounts without lost updates. Changes are appended to the
+ * {@link LedgerService ledger}; the account row itself is not rewritten.
+ * <p>
+ * Credits are plain inserts and need no coordination. A debit must not overdraw, so its
+ * funds check and insert are serialized per account, as is a write-off to zero: within this process by a striped lock
+ * held until the surrounding transaction completes, and against other instances by a
+ * compare-and-set on the account's {@code version}. On a conflict the balance is re-read and
+ * the debit retried, up to {@code aml.accounts.balance.max-attempts} times. Callers run at
+ * READ_COMMITTED so that the re-read sees the latest committed entries.
+ * <p>
+ * Each call locks only the one account it debits or writes off; a transfer's credit is a
+ * plain insert. Callers make one such call per transaction, so no transaction ever holds
+ * two stripes and the locks cannot deadlock.
+ */
+@Service
+@RequiredArgsConstructor
+public class AccountBalanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountBalanceService.class);
+
+    private final BankAccountRepository bankAccountRepo;
+    private final LedgerService ledgerService;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aml.accounts.balance.lock-stripes:1024}")
+    private int lockStripes;
+
+    @Value("${aml.accounts.balance.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    @Value("${aml.accounts.balance.max-attempts:5}")
+    private int maxAttempts;
+
+    private ReentrantLock[] stripes;
+    private Counter conflicts;
+
+    @PostConstruct
+    void init() {
+        int size = 1;
+        while (size < lockStripes) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        conflicts = Counter.builder("aml.accounts.balance.conflicts")
+                .description("Debits retried because the account changed after it was read")
+                .register(meterRegistry);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(BankAccount account, BigDecimal amount, Long transactionId) {
+        ledgerService.append(account.getAccountNumber(), LedgerEntry.EntryType.CREDIT, amount, transactionId);
+    }
+
+    /** Debits the account, failing with {@code insufficientFundsMessage} if the balance does not cover it. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void debit(BankAccount account, BigDecimal amount, Long transactionId, String insufficientFundsMessage) {
+        lock(account);
+        debitLocked(account, amount, transactionId, insufficientFundsMessage);
+    }
+
+    /** Writes the account's balance off to zero with an adjustment entry and returns the balance it had. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public BigDecimal writeOff(BankAccount account, Long transactionId) {
+        lock(account);
+        return applyLocked(account, LedgerEntry.EntryType.ADJUSTMENT, transactionId, BigDecimal::negate);
+    }
+
+    /** Debits {@code debit} from one account and credits {@code credit} to the other, atomically. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transfer(BankAccount from, BigDecimal debit, BankAccount to, BigDecimal credit, Long transactionId,
+                         String insufficientFundsMessage) {
+        lock(from);
+        debitLocked(from, debit, transactionId, insufficientFundsMessage);
+        ledgerService.append(to.getAccountNumber(), LedgerEntry.EntryType.CREDIT, credit, transactionId);
+    }
+
+    private void lock(BankAccount account) {
+        ReentrantLock lock = stripes[stripeOf(account.getAccountNumber())];
+        try {
+            if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new AmlApiException(HttpStatus.SERVICE_UNAVAILABLE, "Account is busy, please try again.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmlApiException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the account.");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private void debitLocked(BankAccount account, BigDecimal amount, Long transactionId, String insufficientFundsMessage) {
+        applyLocked(account, LedgerEntry.EntryType.DEBIT, transactionId, balance -> {
+            if (balance.compareTo(amount) < 0) {
+                throw new AmlApiException(HttpStatus.BAD_REQUEST, insufficientFundsMessage);
+            }
+            return amount.negate();
+        });
+    }
+
+    /**
+     * Appends the change {@code changeFor} computes from the current balance, once the account's
+     * version claim succeeds. Returns the balance the change was computed from.
+     */
+    private BigDecimal applyLocked(BankAccount account, LedgerEntry.EntryType type, Long transactionId,
+                                   UnaryOperator<BigDecimal> changeFor) {
+        for (int attempt = 1; ; attempt++) {
+            if (attempt > 1) {
+                entityManager.refresh(account);
+            }
+            BigDecimal balance = ledgerService.currentBalance(account);
+            BigDecimal change = changeFor.apply(balance);
+            if (bankAccountRepo.claim(account.getId(), account.getVersion()) == 1) {
+                // bring the managed entity up to the new version
+                entityManager.refresh(account);
+                if (change.signum() != 0) {
+                    ledgerService.append(account.getAccountNumber(), type, change, transactionId);
+                }
+                return balance;
+            }
+            conflicts.increment();
+            if (attempt >= maxAttempts) {
+                log.warn("{} of account {} gave up after {} conflicting attempts", type, account.getAccountNumber(), attempt);
+                throw new AmlApiException(HttpStatus.CONFLICT, "Account balance changed concurrently, please try again.");
+            }
+            log.debug("Account {} changed since it was read, retrying (attempt {})", account.getAccountNumber(), attempt);
+        }
+    }
+
+    private int stripeOf(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -10,6 +10,8 @@ import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.tss.aml.dto.account.BankAccountDto;
 import com.tss.aml.dto.admin.AdminCustomerDetailsDto;
@@ -40,6 +42,10 @@ import com.tss.aml.repository.SuspiciousKeywordRepository;
 import com.tss.aml.repository.TransactionRepository;
 import com.tss.aml.repository.UserRepository;
 import com.tss.aml.service.IAdminService;
+import com.tss.aml.service.rules.RuleCompiler;
+import com.tss.aml.service.rules.CountryIndex;
+import com.tss.aml.service.rules.KeywordIndex;
+import com.tss.aml.service.rules.RuleSetCache;
 
 import lombok.RequiredArgsConstructor;
 
@@ -62,6 +68,12 @@ public class AdminServiceImpl implements IAdminService{
     private final TransactionServiceImpl transactionService;
     private final AuditLogServiceImpl auditLogService;
     private final EmailService emailService;
+    private final RuleSetCache ruleSetCache;
+    private final CountryIndex countryIndex;
+    private final KeywordIndex keywordIndex;
+    private final RuleCompiler ruleCompiler;
+    private final LedgerService ledgerService;
+    private final AccountBalanceService accountBalanceService;
 
     public List<UserDto> getAllUsers() {
         return userRepository.findAll().stream()
@@ -184,8 +196,33 @@ public class AdminServiceImpl implements IAdminService{
         return dto;
     }
 
+    /**
+     * Compiles each condition the same way the rule engine will, so malformed
+     * values are rejected here instead of silently never matching at runtime.
+     */
+    private void validateConditions(List<RuleConditionDto> conditions) {
+        if (conditions == null) {
+            return;
+        }
+        for (RuleConditionDto conditionDto : conditions) {
+            RuleCondition candidate = RuleCondition.builder()
+                    .type(conditionDto.getType())
+                    .field(conditionDto.getField())
+                    .operator(conditionDto.getOperator())
+                    .value(conditionDto.getValue())
+                    .build();
+            try {
+                ruleCompiler.compile(candidate);
+            } catch (IllegalArgumentException e) {
+                throw new AmlApiException(HttpStatus.BAD_REQUEST,
+                        "Invalid " + conditionDto.getType() + " condition: " + e.getMessage());
+            }
+        }
+    }
+
     public RuleDto createRule(RuleDto ruleDto) {
-       
+        validateConditions(ruleDto.getConditions());
+
         Rule rule = Rule.builder()
                 .name(ruleDto.getName())
                 .description(ruleDto.getDescription())
@@ -213,6 +250,7 @@ public class AdminServiceImpl implements IAdminService{
             ruleRepository.save(savedRule);
         }
         
+        ruleSetCache.refresh();
         auditLogService.logRuleCreation("ADMIN", savedRule.getName());
         
         return mapRuleToDto(savedRule);
@@ -221,6 +259,7 @@ public class AdminServiceImpl implements IAdminService{
     public RuleDto updateRule(Long id, RuleDto ruleDto) {
         Rule existing = ruleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Rule", "id", id));
+        validateConditions(ruleDto.getConditions());
         
         existing.setName(ruleDto.getName());
         existing.setDescription(ruleDto.getDescription());
@@ -261,6 +300,7 @@ public class AdminServiceImpl implements IAdminService{
         }
         
         Rule saved = ruleRepository.save(existing);
+        ruleSetCache.refresh();
         auditLogService.logRuleCreation("ADMIN", "Updated: " + saved.getName());
         return mapRuleToDto(saved);
     }
@@ -283,6 +323,7 @@ public class AdminServiceImpl implements IAdminService{
         }
         
         Rule saved = ruleRepository.save(existing);
+        ruleSetCache.refresh();
         String action = isActive ? "Activated" : "Deactivated";
         auditLogService.logRuleCreation("ADMIN", action + ": " + saved.getName());
         
@@ -293,6 +334,7 @@ public class AdminServiceImpl implements IAdminService{
         Rule existing = ruleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Rule", "id", id));
         ruleRepository.delete(existing);
+        ruleSetCache.refresh();
         auditLogService.logRuleCreation("ADMIN", "Deleted: " + existing.getName());
     }
 
@@ -305,6 +347,7 @@ public class AdminServiceImpl implements IAdminService{
     public SuspiciousKeywordDto addKeyword(SuspiciousKeywordDto keywordDto) {
         SuspiciousKeyword keyword = modelMapper.map(keywordDto, SuspiciousKeyword.class);
         SuspiciousKeyword savedKeyword = suspiciousKeywordRepository.save(keyword);
+        keywordIndex.refresh();
         return modelMapper.map(savedKeyword, SuspiciousKeywordDto.class);
     }
 
@@ -312,6 +355,7 @@ public class AdminServiceImpl implements IAdminService{
         SuspiciousKeyword existing = suspiciousKeywordRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("SuspiciousKeyword", "id", id));
         suspiciousKeywordRepository.delete(existing);
+        keywordIndex.refresh();
         auditLogService.logRuleCreation("ADMIN", "Deleted keyword: " + existing.getKeyword());
     }
     
@@ -326,6 +370,7 @@ public class AdminServiceImpl implements IAdminService{
         existing.setUpdatedAt(LocalDateTime.now());
 
         SuspiciousKeyword updated = suspiciousKeywordRepository.save(existing);
+        keywordIndex.refresh();
         return modelMapper.map(updated, SuspiciousKeywordDto.class);
     }
 
@@ -336,6 +381,7 @@ public class AdminServiceImpl implements IAdminService{
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public BankAccountDto approveAccount(Long accountId) {
         BankAccount account = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new ResourceNotFoundException("BankAccount", "id", accountId));
@@ -344,11 +390,8 @@ public class AdminServiceImpl implements IAdminService{
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Account is not in a pending state.");
         }
 
-        account.setApprovalStatus(ApprovalStatus.APPROVED);
-        account.setStatus(AccountStatus.ACTIVE); 
-        account.setApprovedAt(LocalDateTime.now());
-        
-        BankAccount updatedAccount = bankAccountRepository.save(account);
+        bankAccountRepository.updateApproval(accountId, ApprovalStatus.APPROVED, AccountStatus.ACTIVE, LocalDateTime.now());
+        BankAccount updatedAccount = reload(accountId);
         
         auditLogService.logAccountApproval("ADMIN", account.getAccountNumber(), account.getUser().getUsername());
         
@@ -376,6 +419,7 @@ public class AdminServiceImpl implements IAdminService{
                 .notes(dto.getNotes())
                 .build();
         CountryRisk saved = countryRiskRepository.save(entity);
+        countryIndex.refresh();
         return modelMapper.map(saved, CountryRiskDto.class);
     }
 
@@ -387,6 +431,7 @@ public class AdminServiceImpl implements IAdminService{
         existing.setRiskScore(dto.getRiskScore() != null ? dto.getRiskScore() : 0);
         existing.setNotes(dto.getNotes());
         CountryRisk saved = countryRiskRepository.save(existing);
+        countryIndex.refresh();
         return modelMapper.map(saved, CountryRiskDto.class);
     }
 
@@ -394,6 +439,7 @@ public class AdminServiceImpl implements IAdminService{
         CountryRisk existing = countryRiskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("CountryRisk", "id", id));
         countryRiskRepository.delete(existing);
+        countryIndex.refresh();
     }
 
     public List<TransactionDto> getTransactionsByAccountNumber(String accountNumber) {
@@ -404,8 +450,14 @@ public class AdminServiceImpl implements IAdminService{
                 .collect(Collectors.toList());
     }
 
+    private BankAccount reload(Long accountId) {
+        return bankAccountRepository.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("BankAccount", "id", accountId));
+    }
+
     private BankAccountDto mapAccountToDto(BankAccount account) {
         BankAccountDto dto = modelMapper.map(account, BankAccountDto.class);
+        dto.setBalance(ledgerService.currentBalance(account));
         if (account.getUser() != null) {
             dto.setCustomerId(account.getUser().getId());
             String first = account.getUser().getFirstName();
@@ -415,6 +467,7 @@ public class AdminServiceImpl implements IAdminService{
         return dto;
     }
 
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public BankAccountDto rejectAccount(Long accountId) {
         BankAccount account = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new ResourceNotFoundException("BankAccount", "id", accountId));
@@ -423,11 +476,12 @@ public class AdminServiceImpl implements IAdminService{
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Account is not in a pending state.");
         }
 
+        // first: the claim refreshes the entity, which would drop the changes below
+        BigDecimal originalBalance = accountBalanceService.writeOff(account, null);
+
         account.setApprovalStatus(ApprovalStatus.REJECTED);
         account.setStatus(AccountStatus.SUSPENDED); 
         account.setRejectedAt(LocalDateTime.now());
-        
-        BigDecimal originalBalance = account.getBalance();
         account.setBalance(BigDecimal.ZERO);
         
         BankAccount updatedAccount = bankAccountRepository.save(account);
@@ -462,6 +516,7 @@ public class AdminServiceImpl implements IAdminService{
         return mapAccountToDto(account);
     }
     
+    @Transactional
     public BankAccountDto suspendAccount(Long accountId) {
         BankAccount account = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new ResourceNotFoundException("BankAccount", "id", accountId));
@@ -470,9 +525,8 @@ public class AdminServiceImpl implements IAdminService{
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Account is already suspended.");
         }
         
-        account.setStatus(AccountStatus.SUSPENDED);
-        account.setSuspendedAt(LocalDateTime.now());
-        BankAccount updatedAccount = bankAccountRepository.save(account);
+        bankAccountRepository.updateSuspension(accountId, AccountStatus.SUSPENDED, LocalDateTime.now());
+        BankAccount updatedAccount = reload(accountId);
         
         auditLogService.logAccountSuspension("ADMIN", account.getAccountNumber(), account.getUser().getUsername());
         
@@ -486,6 +540,7 @@ public class AdminServiceImpl implements IAdminService{
         return mapAccountToDto(updatedAccount);
     }
     
+    @Transactional
     public BankAccountDto activateAccount(Long accountId) {
         BankAccount account = bankAccountRepository.findById(accountId)
                 .orElseThrow(() -> new ResourceNotFoundException("BankAccount", "id", accountId));
@@ -498,9 +553,8 @@ public class AdminServiceImpl implements IAdminService{
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Account must be approved before activation.");
         }
         
-        account.setStatus(AccountStatus.ACTIVE);
-        account.setActivatedAt(LocalDateTime.now());
-        BankAccount updatedAccount = bankAccountRepository.save(account);
+        bankAccountRepository.updateActivation(accountId, AccountStatus.ACTIVE, LocalDateTime.now());
+        BankAccount updatedAccount = reload(accountId);
         
         auditLogService.logAccountActivation("ADMIN", account.getAccountNumber(), account.getUser().getUsername());
         
@@ -561,6 +615,7 @@ public class AdminServiceImpl implements IAdminService{
         return modelMapper.map(updatedUser, UserDto.class);
     }
     
+    @Transactional
     public UserDto blockCustomer(Long userId, String reason) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
@@ -579,9 +634,7 @@ public class AdminServiceImpl implements IAdminService{
         List<BankAccount> userAccounts = bankAccountRepository.findByUser(user);
         for (BankAccount account : userAccounts) {
             if (account.getStatus() != AccountStatus.SUSPENDED) {
-                account.setStatus(AccountStatus.SUSPENDED);
-                account.setSuspendedAt(LocalDateTime.now());
-                bankAccountRepository.save(account);
+                bankAccountRepository.updateSuspension(account.getId(), AccountStatus.SUSPENDED, LocalDateTime.now());
             }
         }
         
@@ -590,6 +643,7 @@ public class AdminServiceImpl implements IAdminService{
         return modelMapper.map(updatedUser, UserDto.class);
     }
     
+    @Transactional
     public UserDto unblockCustomer(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
@@ -604,19 +658,13 @@ public class AdminServiceImpl implements IAdminService{
         List<BankAccount> userAccounts = bankAccountRepository.findByUser(user);
         for (BankAccount account : userAccounts) {
             if (account.getApprovalStatus().equals(ApprovalStatus.PENDING)) {
-                account.setStatus(AccountStatus.PENDING);
-                account.setActivatedAt(LocalDateTime.now());               
-                bankAccountRepository.save(account);
+                bankAccountRepository.updateActivation(account.getId(), AccountStatus.PENDING, LocalDateTime.now());
             }
             else if(account.getApprovalStatus().equals(ApprovalStatus.APPROVED)) {
-            	account.setStatus(AccountStatus.ACTIVE);
-                account.setActivatedAt(LocalDateTime.now());               
-                bankAccountRepository.save(account);
+            	bankAccountRepository.updateActivation(account.getId(), AccountStatus.ACTIVE, LocalDateTime.now());
             	}
             else if (account.getApprovalStatus().equals(ApprovalStatus.REJECTED)){
-            	account.setStatus(AccountStatus.SUSPENDED);
-                account.setActivatedAt(LocalDateTime.now());               
-                bankAccountRepository.save(account);
+            	bankAccountRepository.updateActivation(account.getId(), AccountStatus.SUSPENDED, LocalDateTime.now());
             }
             }
         
@@ -0,0 +1,477 @@
+package com.tss.aml.service.impl;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import com.tss.aml.dto.compliance.BacktestRequestDto;
+import com.tss.aml.dto.compliance.BacktestResultDto;
+import com.tss.aml.dto.compliance.BacktestSummaryDto;
+import com.tss.aml.dto.compliance.EvaluationResultDto;
+import com.tss.aml.dto.compliance.RuleDto;
+import com.tss.aml.dto.compliance.RuleMatchDto;
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
+import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.entity.Rule;
+import com.tss.aml.entity.RuleCondition;
+import com.tss.aml.entity.Transaction;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.repository.RuleRepository;
+import com.tss.aml.service.rules.CompiledRuleSet;
+import com.tss.aml.service.rules.CustomerHistory;
+import com.tss.aml.service.rules.EvaluationContext;
+import com.tss.aml.service.rules.OpeningBalances;
+import com.tss.aml.service.rules.RiskBand;
+import com.tss.aml.service.rules.RuleCompiler;
+import com.tss.aml.service.rules.RuleSetCache;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Replays historical transactions against a candidate rule set and the live one.
+ * <p>
+ * The transaction table is streamed once in creation order, starting one lookback before
+ * the requested range so windows are warm. Rows are partitioned by customer over worker
+ * threads; each worker keeps its customers' recent transactions in memory and evaluates
+ * every row against the history as it stood when the row was created. Nothing is written.
+ */
+@Service
+@RequiredArgsConstructor
+public class BacktestServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(BacktestServiceImpl.class);
+
+    private static final String REPLAY_SQL =
+            "select id, customer_id, transaction_type, amount, nlp_score, description, " +
+            "from_account_number, to_account_number, created_at from transaction " +
+            "where customer_id is not null and created_at >= ? and created_at < ? " +
+            "order by created_at, id";
+
+    private static final int CHUNK_SIZE = 512;
+    private static final int SWEEP_INTERVAL = 65_536;
+    private static final List<Row> END = List.of();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RuleSetCache ruleSetCache;
+    private final RuleRepository ruleRepository;
+    private final RuleEngineServiceImpl ruleEngine;
+    private final RuleCompiler ruleCompiler;
+
+    @Value("${aml.rules.backtest.workers:0}")
+    private int workerCount;
+
+    // chunks of CHUNK_SIZE rows buffered per worker before the reader blocks
+    @Value("${aml.rules.backtest.queue-chunks:16}")
+    private int queueChunks;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BacktestResultDto run(BacktestRequestDto request) {
+        if (request.getFrom() == null || request.getTo() == null || !request.getFrom().isBefore(request.getTo())) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, "A date range with 'from' before 'to' is required");
+        }
+        CompiledRuleSet live = ruleSetCache.current();
+        CompiledRuleSet candidate = buildCandidate(request, live);
+        if (!running.compareAndSet(false, true)) {
+            throw new AmlApiException(HttpStatus.CONFLICT, "A backtest is already running");
+        }
+        try {
+            return replay(request.getFrom(), request.getTo(), candidate, live);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private BacktestResultDto replay(LocalDateTime from, LocalDateTime to, CompiledRuleSet candidate, CompiledRuleSet live) {
+        long started = System.nanoTime();
+        Duration lookback = candidate.getMaxLookback().compareTo(live.getMaxLookback()) >= 0
+                ? candidate.getMaxLookback()
+                : live.getMaxLookback();
+        int n = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "Backtest-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        OpeningBalances openingBalances = new OpeningBalances();
+        Worker[] workers = new Worker[n];
+        List<Future<Tally>> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            workers[i] = new Worker(from, lookback, candidate, live, openingBalances, Math.max(1, queueChunks));
+            results.add(pool.submit(workers[i]));
+        }
+
+        try {
+            stream(from.minus(lookback), to, workers, results);
+            Tally total = new Tally();
+            for (Future<Tally> result : results) {
+                total.merge(result.get());
+            }
+            return toResult(from, to, n, live, candidate, total, System.nanoTime() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmlApiException(HttpStatus.SERVICE_UNAVAILABLE, "Backtest interrupted");
+        } catch (ExecutionException e) {
+            throw new AmlApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Backtest failed: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads rows on the calling thread with a forward-only streaming result set and hands
+     * them to the worker owning the customer. Bounded queues keep memory flat.
+     */
+    private void stream(LocalDateTime after, LocalDateTime before, Worker[] workers, List<Future<Tally>> results) {
+        List<List<Row>> pending = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            pending.add(new ArrayList<>(CHUNK_SIZE));
+        }
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(REPLAY_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // MySQL Connector/J streams row by row instead of buffering the whole result
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setObject(1, after);
+                ps.setObject(2, before);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                Row row = new Row(rs);
+                int target = Math.floorMod(Long.hashCode(row.customerId * 0x9E3779B97F4A7C15L), workers.length);
+                List<Row> chunk = pending.get(target);
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    send(workers[target], results.get(target), chunk);
+                    pending.set(target, new ArrayList<>(CHUNK_SIZE));
+                }
+            });
+        } catch (WorkerStoppedException e) {
+            // a worker failed; its exception is reported when its result is collected
+        }
+        for (int i = 0; i < workers.length; i++) {
+            try {
+                if (!pending.get(i).isEmpty()) {
+                    send(workers[i], results.get(i), pending.get(i));
+                }
+                send(workers[i], results.get(i), END);
+            } catch (WorkerStoppedException e) {
+                // same as above
+            }
+        }
+    }
+
+    private static void send(Worker worker, Future<Tally> result, List<Row> chunk) {
+        try {
+            while (!worker.queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (result.isDone()) {
+                    throw new WorkerStoppedException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkerStoppedException();
+        }
+    }
+
+    private CompiledRuleSet buildCandidate(BacktestRequestDto request, CompiledRuleSet live) {
+        List<Rule> rules = new ArrayList<>();
+        if (!request.isReplaceActiveRules()) {
+            live.getRules().forEach(r -> rules.add(r.getRule()));
+        }
+        if (request.getRuleIds() != null && !request.getRuleIds().isEmpty()) {
+            Set<Long> ids = new HashSet<>(request.getRuleIds());
+            List<Rule> saved = ruleRepository.findAllById(ids);
+            if (saved.size() != ids.size()) {
+                saved.forEach(r -> ids.remove(r.getId()));
+                throw new AmlApiException(HttpStatus.NOT_FOUND, "Rules not found: " + ids);
+            }
+            rules.removeIf(r -> ids.contains(r.getId()));
+            rules.addAll(saved);
+        }
+        if (request.getRules() != null) {
+            request.getRules().forEach(dto -> rules.add(validate(toRule(dto))));
+        }
+        if (rules.isEmpty()) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, "The candidate rule set is empty");
+        }
+        rules.sort(Comparator.comparingInt(Rule::getPriority));
+        return ruleSetCache.compile(0, rules);
+    }
+
+    /** Rejects ad-hoc conditions the compiler cannot build, as saving them as rules would. */
+    private Rule validate(Rule rule) {
+        for (RuleCondition condition : rule.getConditions()) {
+            try {
+                ruleCompiler.compile(condition);
+            } catch (IllegalArgumentException e) {
+                throw new AmlApiException(HttpStatus.BAD_REQUEST, "Invalid " + condition.getType() + " condition: " + e.getMessage());
+            }
+        }
+        return rule;
+    }
+
+    private static Rule toRule(RuleDto dto) {
+        Rule rule = Rule.builder()
+                .name(dto.getName())
+                .description(dto.getDescription())
+                .priority(dto.getPriority())
+                .action(dto.getAction())
+                .riskWeight(dto.getRiskWeight())
+                .isActive(true)
+                .build();
+        List<RuleCondition> conditions = new ArrayList<>();
+        if (dto.getConditions() != null) {
+            dto.getConditions().forEach(c -> conditions.add(RuleCondition.builder()
+                    .rule(rule)
+                    .type(c.getType())
+                    .field(c.getField())
+                    .operator(c.getOperator())
+                    .value(c.getValue())
+                    .isActive(true)
+                    .build()));
+        }
+        rule.setConditions(conditions);
+        return rule;
+    }
+
+    private static BacktestResultDto toResult(LocalDateTime from, LocalDateTime to, int workers, CompiledRuleSet live,
+                                              CompiledRuleSet candidate, Tally total, long elapsedNanos) {
+        BacktestSummaryDto candidateSummary = total.candidate.toDto(candidate.size());
+        BacktestSummaryDto liveSummary = total.live.toDto(live.size());
+        double perSecond = total.evaluated / Math.max(elapsedNanos / 1e9, 1e-9);
+        log.info("Backtest {} .. {}: {} rows scanned, {} evaluated for {} customers on {} workers in {} ms ({} tx/s)",
+                from, to, total.scanned, total.evaluated, total.customers, workers, elapsedNanos / 1_000_000, Math.round(perSecond));
+        return new BacktestResultDto(from, to, live.getVersion(), workers, total.scanned, total.evaluated, total.errors,
+                total.customers, elapsedNanos / 1_000_000, perSecond, candidateSummary, liveSummary,
+                candidateSummary.getFlagged() - liveSummary.getFlagged(),
+                candidateSummary.getBlocked() - liveSummary.getBlocked(),
+                total.changes);
+    }
+
+    /** Evaluates the rows of the customers hashed to it, in creation order. */
+    private final class Worker implements Callable<Tally> {
+
+        final BlockingQueue<List<Row>> queue;
+        private final LocalDateTime from;
+        private final Duration lookback;
+        private final CompiledRuleSet candidate;
+        private final CompiledRuleSet live;
+        private final OpeningBalances openingBalances;
+        private final Map<Long, List<TransactionHistoryEntry>> windows = new HashMap<>();
+        private final Set<Long> customers = new HashSet<>();
+        private final Tally tally = new Tally();
+
+        Worker(LocalDateTime from, Duration lookback, CompiledRuleSet candidate, CompiledRuleSet live,
+               OpeningBalances openingBalances, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.from = from;
+            this.lookback = lookback;
+            this.candidate = candidate;
+            this.live = live;
+            this.openingBalances = openingBalances;
+        }
+
+        @Override
+        public Tally call() throws InterruptedException {
+            while (true) {
+                List<Row> chunk = queue.take();
+                if (chunk == END) {
+                    return tally;
+                }
+                for (Row row : chunk) {
+                    process(row);
+                }
+            }
+        }
+
+        private void process(Row row) {
+            tally.scanned++;
+            List<TransactionHistoryEntry> window = windows.get(row.customerId);
+            if (window == null) {
+                window = new ArrayList<>();
+                windows.put(row.customerId, window);
+                if (customers.add(row.customerId)) {
+                    tally.customers++;
+                }
+            }
+            LocalDateTime cutoff = row.createdAt.minus(lookback);
+            trim(window, cutoff);
+            // the live engine sees the screened transaction in its own history, so append first
+            window.add(new TransactionHistoryEntry(row.amount, row.type, row.toAccountNumber, row.createdAt));
+
+            if (tally.scanned % SWEEP_INTERVAL == 0) {
+                windows.values().removeIf(w -> !w.get(w.size() - 1).getCreatedAt().isAfter(cutoff));
+            }
+            if (row.createdAt.isBefore(from)) {
+                return;
+            }
+
+            TransactionInputDto input = TransactionInputDto.builder()
+                    .txId(String.valueOf(row.id))
+                    .customerId(String.valueOf(row.customerId))
+                    .amount(row.amount)
+                    .nlpScore(row.nlpScore)
+                    .text(row.description)
+                    .transactionType(row.type)
+                    .fromAccountNumber(row.fromAccountNumber)
+                    .toAccountNumber(row.toAccountNumber)
+                    .build();
+            EvaluationContext context = new EvaluationContext(input, new CustomerHistory(window), row.createdAt, false,
+                    openingBalances);
+            try {
+                EvaluationResultDto candidateResult = ruleEngine.evaluateDetached(candidate, context);
+                EvaluationResultDto liveResult = ruleEngine.evaluateDetached(live, context);
+                RiskBand candidateBand = tally.candidate.add(candidateResult, row.nlpScore);
+                RiskBand liveBand = tally.live.add(liveResult, row.nlpScore);
+                tally.evaluated++;
+                if (candidateBand != liveBand) {
+                    tally.changes.merge(liveBand + "->" + candidateBand, 1L, Long::sum);
+                }
+            } catch (RuntimeException e) {
+                if (tally.errors++ == 0) {
+                    log.warn("Backtest evaluation failed for tx {}: {}", row.id, e.getMessage());
+                }
+            }
+        }
+
+        /** Drops entries no window can reach any more, once enough have accumulated to be worth a copy. */
+        private void trim(List<TransactionHistoryEntry> window, LocalDateTime cutoff) {
+            int stale = 0;
+            Iterator<TransactionHistoryEntry> it = window.iterator();
+            while (it.hasNext() && !it.next().getCreatedAt().isAfter(cutoff)) {
+                stale++;
+            }
+            if (stale > 0 && stale * 2 >= window.size()) {
+                window.subList(0, stale).clear();
+            }
+        }
+    }
+
+    private static final class Tally {
+        long scanned;
+        long evaluated;
+        long errors;
+        long customers;
+        final Outcomes candidate = new Outcomes();
+        final Outcomes live = new Outcomes();
+        final Map<String, Long> changes = new HashMap<>();
+
+        void merge(Tally other) {
+            scanned += other.scanned;
+            evaluated += other.evaluated;
+            errors += other.errors;
+            customers += other.customers;
+            candidate.merge(other.candidate);
+            live.merge(other.live);
+            other.changes.forEach((k, v) -> changes.merge(k, v, Long::sum));
+        }
+    }
+
+    /** Decision counts, rule score distribution and rule hits for one rule set. */
+    private static final class Outcomes {
+        final long[] decisions = new long[RiskBand.values().length];
+        final long[] histogram = new long[10];
+        long count;
+        long scoreSum;
+        final Map<String, Long> hits = new HashMap<>();
+
+        RiskBand add(EvaluationResultDto result, int nlpScore) {
+            int score = result.getTotalRiskScore();
+            RiskBand band = RiskBand.of(RiskBand.combine(score, nlpScore));
+            decisions[band.ordinal()]++;
+            histogram[Math.min(Math.max(score, 0) / 10, histogram.length - 1)]++;
+            count++;
+            scoreSum += score;
+            for (RuleMatchDto match : result.getMatchedRules()) {
+                hits.merge(match.getRuleName(), 1L, Long::sum);
+            }
+            return band;
+        }
+
+        void merge(Outcomes other) {
+            for (int i = 0; i < decisions.length; i++) {
+                decisions[i] += other.decisions[i];
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            count += other.count;
+            scoreSum += other.scoreSum;
+            other.hits.forEach((k, v) -> hits.merge(k, v, Long::sum));
+        }
+
+        BacktestSummaryDto toDto(int rules) {
+            return new BacktestSummaryDto(rules,
+                    decisions[RiskBand.APPROVED.ordinal()],
+                    decisions[RiskBand.FLAGGED.ordinal()],
+                    decisions[RiskBand.BLOCKED.ordinal()],
+                    count == 0 ? 0.0 : (double) scoreSum / count,
+                    Arrays.stream(histogram).boxed().collect(Collectors.toList()),
+                    hits);
+        }
+    }
+
+    private static final class Row {
+        final long id;
+        final long customerId;
+        final Transaction.TransactionType type;
+        final BigDecimal amount;
+        final int nlpScore;
+        final String description;
+        final String fromAccountNumber;
+        final String toAccountNumber;
+        final LocalDateTime createdAt;
+
+        Row(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.customerId = rs.getLong("customer_id");
+            String rawType = rs.getString("transaction_type");
+            this.type = rawType == null ? null : Transaction.TransactionType.valueOf(rawType);
+            this.amount = rs.getBigDecimal("amount");
+            this.nlpScore = rs.getInt("nlp_score");
+            this.description = rs.getString("description");
+            this.fromAccountNumber = rs.getString("from_account_number");
+            this.toAccountNumber = rs.getString("to_account_number");
+            this.createdAt = rs.getObject("created_at", LocalDateTime.class);
+        }
+    }
+
+    private static final class WorkerStoppedException extends RuntimeException {
+        WorkerStoppedException() {
+            super("Backtest worker stopped", null, false, false);
+        }
+    }
+}
@@ -35,11 +35,12 @@ public class BankAccountServiceImpl implements IBankAccountService{
     private final AuditLogServiceImpl auditLogService;
     private final EmailService emailService;
     private final CustomerRepository customerRepository;
+    private final LedgerService ledgerService;
 
 	@Autowired
 	    public BankAccountServiceImpl(BankAccountRepository bankAccountRepository, UserRepository userRepository,
             TransactionRepository transactionRepository, ModelMapper modelMapper, AuditLogServiceImpl auditLogService,
-            EmailService emailService, CustomerRepository customerRepository) {
+            EmailService emailService, CustomerRepository customerRepository, LedgerService ledgerService) {
         this.bankAccountRepository = bankAccountRepository;
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
@@ -47,6 +48,7 @@ public class BankAccountServiceImpl implements IBankAccountService{
         this.auditLogService = auditLogService;
         this.emailService = emailService;
         this.customerRepository = customerRepository;
+        this.ledgerService = ledgerService;
     }
 
 	    public BankAccountDto createAccount(String usernameOrEmail, CreateAccountDto createAccountDto) {
@@ -69,6 +71,7 @@ public class BankAccountServiceImpl implements IBankAccountService{
         newAccount.generateAccountNumber(); 
 
         BankAccount savedAccount = bankAccountRepository.save(newAccount);
+        ledgerService.open(savedAccount);
         
         String balanceInfo = initialBalance != null ? " with initial balance: " + initialBalance : " with zero balance";
         auditLogService.logAccountCreation(user.getUsername(), savedAccount.getAccountNumber() + balanceInfo);
@@ -85,7 +88,11 @@ public class BankAccountServiceImpl implements IBankAccountService{
 	public List<BankAccountDto> getAccountsForUser(String usernameOrEmail) {
 		User user = findUserByUsernameOrEmail(usernameOrEmail);
 		return bankAccountRepository.findByUserId(user.getId()).stream()
-				.map(account -> modelMapper.map(account, BankAccountDto.class)).collect(Collectors.toList());
+				.map(account -> {
+					BankAccountDto dto = modelMapper.map(account, BankAccountDto.class);
+					dto.setBalance(ledgerService.currentBalance(account));
+					return dto;
+				}).collect(Collectors.toList());
 	}
 
 
@@ -0,0 +1,168 @@
+package com.tss.aml.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.tss.aml.dto.compliance.BatchEvaluationItemDto;
+import com.tss.aml.dto.compliance.BatchEvaluationResultDto;
+import com.tss.aml.dto.compliance.EvaluationResultDto;
+import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.service.rules.CompiledRuleSet;
+import com.tss.aml.service.rules.CustomerHistory;
+import com.tss.aml.service.rules.CustomerHistoryLoader;
+import com.tss.aml.service.rules.EvaluationContext;
+import com.tss.aml.service.rules.OpeningBalances;
+import com.tss.aml.service.rules.RiskBand;
+import com.tss.aml.service.rules.RuleSetCache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Re-screens batches of transactions against the current rule set, as of now.
+ * Inputs are grouped by customer so each customer's history is loaded once, and
+ * customer groups are spread over a fork-join pool. Rules see only that loaded history,
+ * minus the transaction being evaluated when it is already saved. Nothing is persisted.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchEvaluationServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchEvaluationServiceImpl.class);
+
+    private final RuleSetCache ruleSetCache;
+    private final RuleEngineServiceImpl ruleEngine;
+    private final CustomerHistoryLoader customerHistoryLoader;
+
+    @Value("${aml.rules.batch.max-size:50000}")
+    private int maxBatchSize;
+
+    @Value("${aml.rules.batch.parallelism:0}")
+    private int parallelism;
+
+    private volatile ForkJoinPool pool;
+
+    public BatchEvaluationResultDto evaluate(List<TransactionInputDto> inputs) {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, "At least one transaction is required");
+        }
+        if (inputs.size() > maxBatchSize) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, "Batch size " + inputs.size() + " exceeds the limit of " + maxBatchSize);
+        }
+
+        long started = System.nanoTime();
+        CompiledRuleSet ruleSet = ruleSetCache.current();
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<String, List<Integer>> byCustomer = new LinkedHashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            String customerId = inputs.get(i).getCustomerId();
+            byCustomer.computeIfAbsent(customerId == null ? "" : customerId, k -> new ArrayList<>()).add(i);
+        }
+
+        OpeningBalances openingBalances = new OpeningBalances();
+        BatchEvaluationItemDto[] results = new BatchEvaluationItemDto[inputs.size()];
+        List<List<Integer>> groups = new ArrayList<>(byCustomer.values());
+        try {
+            pool().submit(() -> groups.parallelStream().forEach(indexes -> {
+                CustomerHistory history = loadHistory(inputs.get(indexes.get(0)), ruleSet, now);
+                for (int index : indexes) {
+                    results[index] = evaluateOne(inputs.get(index), ruleSet, history, now, openingBalances);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmlApiException(HttpStatus.SERVICE_UNAVAILABLE, "Batch evaluation interrupted");
+        } catch (ExecutionException e) {
+            throw new AmlApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Batch evaluation failed: " + e.getCause().getMessage());
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        long approved = 0, flagged = 0, blocked = 0;
+        for (BatchEvaluationItemDto item : results) {
+            if (item.getDecision() == null) {
+                continue;
+            }
+            switch (RiskBand.valueOf(item.getDecision())) {
+                case APPROVED -> approved++;
+                case FLAGGED -> flagged++;
+                case BLOCKED -> blocked++;
+            }
+        }
+        double perSecond = inputs.size() / Math.max(elapsedNanos / 1e9, 1e-9);
+        log.info("Batch evaluation: {} transactions for {} customers on rule set v{} in {} ms ({} tx/s)",
+                inputs.size(), groups.size(), ruleSet.getVersion(), elapsedNanos / 1_000_000, Math.round(perSecond));
+
+        return new BatchEvaluationResultDto(ruleSet.getVersion(), inputs.size(), groups.size(),
+                elapsedNanos / 1_000_000, perSecond, approved, flagged, blocked, List.of(results));
+    }
+
+    private CustomerHistory loadHistory(TransactionInputDto sample, CompiledRuleSet ruleSet, LocalDateTime now) {
+        if (ruleSet.getMaxLookback().isZero()) {
+            return CustomerHistory.empty();
+        }
+        try {
+            return customerHistoryLoader.load(Long.parseLong(sample.getCustomerId()), now.minus(ruleSet.getMaxLookback()));
+        } catch (NumberFormatException e) {
+            return CustomerHistory.empty();
+        }
+    }
+
+    private BatchEvaluationItemDto evaluateOne(TransactionInputDto input, CompiledRuleSet ruleSet, CustomerHistory history,
+                                               LocalDateTime now, OpeningBalances openingBalances) {
+        try {
+            // the loaded history, not the live stores, and never the transaction itself if it is already saved
+            EvaluationContext context = new EvaluationContext(input, history.without(parseId(input.getTxId())), now, false,
+                    openingBalances);
+            EvaluationResultDto result = ruleEngine.evaluateDetached(ruleSet, context);
+            int combined = RiskBand.combine(result.getTotalRiskScore(), input.getNlpScore());
+            return new BatchEvaluationItemDto(input.getTxId(), input.getCustomerId(), result.getTotalRiskScore(),
+                    input.getNlpScore(), combined, RiskBand.of(combined).name(), result.getMatchedRules(), null);
+        } catch (Exception e) {
+            log.warn("Batch evaluation failed for tx {}: {}", input.getTxId(), e.getMessage());
+            return new BatchEvaluationItemDto(input.getTxId(), input.getCustomerId(), 0, input.getNlpScore(), 0, null, List.of(), e.getMessage());
+        }
+    }
+
+    private static Long parseId(String txId) {
+        try {
+            return txId == null ? null : Long.valueOf(txId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private ForkJoinPool pool() {
+        ForkJoinPool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                p = pool;
+                if (p == null) {
+                    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+                    p = new ForkJoinPool(threads);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
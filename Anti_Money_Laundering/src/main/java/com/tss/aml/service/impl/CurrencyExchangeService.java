@@ -21,6 +21,7 @@ import java.util.Optional;
 public class CurrencyExchangeService implements IInterCurrencyService{
 
     private final CurrencyExchangeRepository currencyExchangeRepository;
+    private final LedgerService ledgerService;
 
    
     public boolean isIntercurrencyTransferRequired(BankAccount fromAccount, BankAccount toAccount) {
@@ -71,11 +72,12 @@ public class CurrencyExchangeService implements IInterCurrencyService{
 
     
     public void validateSufficientFunds(BankAccount fromAccount, BigDecimal totalDebitAmount) {
-        if (fromAccount.getBalance().compareTo(totalDebitAmount) < 0) {
+        BigDecimal available = ledgerService.currentBalance(fromAccount);
+        if (available.compareTo(totalDebitAmount) < 0) {
             throw new AmlApiException(
                 HttpStatus.BAD_REQUEST, 
                 String.format("Insufficient funds. Available: %s %s, Required: %s %s (including conversion charges)", 
-                    fromAccount.getBalance(), fromAccount.getCurrency(),
+                    available, fromAccount.getCurrency(),
                     totalDebitAmount, fromAccount.getCurrency())
             );
         }
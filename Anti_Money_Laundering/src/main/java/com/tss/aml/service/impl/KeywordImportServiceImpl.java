@@ -0,0 +1,619 @@
+package com.tss.aml.service.impl;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tss.aml.dto.compliance.KeywordImportErrorDto;
+import com.tss.aml.dto.compliance.KeywordImportStatusDto;
+import com.tss.aml.entity.SuspiciousKeyword;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.service.rules.KeywordIndex;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streaming import of suspicious keywords from CSV or NDJSON. The upload is copied to a
+ * temporary file and imported in the background, one chunk at a time: rows are validated,
+ * checked against the table with one existence query per chunk and inserted in a single
+ * JDBC batch. Memory use depends on the chunk size, not on the file size. Progress and
+ * per-row errors are available by job id while the import runs.
+ * <p>
+ * CSV needs a header row; column names are matched ignoring case, spaces and underscores
+ * (keyword, riskLevel, riskScore, category, description, caseSensitive, wholeWordOnly,
+ * fuzzyMatch, active). Quoted fields may contain commas but not line breaks.
+ * NDJSON has one JSON object per line with the same field names.
+ */
+@Service
+@RequiredArgsConstructor
+public class KeywordImportServiceImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordImportServiceImpl.class);
+
+    private static final String INSERT_SQL =
+            "insert into suspicious_keywords (keyword, risk_level, risk_score, category, description, is_active, "
+                    + "case_sensitive, whole_word_only, fuzzy_match, created_by, created_at, updated_at) "
+                    + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String EXISTING_SQL = "select keyword from suspicious_keywords where keyword in (:keywords)";
+    private static final int RETAINED_JOBS = 20;
+
+    public enum Format { CSV, NDJSON }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final KeywordIndex keywordIndex;
+    private final Executor taskExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Map<String, Job> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > RETAINED_JOBS;
+        }
+    };
+
+    @Value("${aml.keywords.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${aml.keywords.import.max-errors:1000}")
+    private int maxErrors;
+
+    /** Starts importing {@code file}; the returned status carries the job id to poll. */
+    public KeywordImportStatusDto start(MultipartFile file, String format, String importedBy) {
+        if (file == null || file.isEmpty()) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, "A non-empty file is required");
+        }
+        Format resolved = resolveFormat(format, file.getOriginalFilename());
+        if (!running.compareAndSet(false, true)) {
+            throw new AmlApiException(HttpStatus.CONFLICT, "A keyword import is already running");
+        }
+        Path spooled;
+        try {
+            // the multipart temp file is removed when the request ends
+            spooled = Files.createTempFile("keyword-import-", "." + resolved.name().toLowerCase(Locale.ROOT));
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            running.set(false);
+            throw new AmlApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not store the upload: " + e.getMessage());
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), resolved, file.getOriginalFilename(), file.getSize());
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        try {
+            taskExecutor.execute(() -> run(job, spooled, importedBy));
+        } catch (RuntimeException e) {
+            running.set(false);
+            deleteQuietly(spooled);
+            throw new AmlApiException(HttpStatus.SERVICE_UNAVAILABLE, "Could not start the import: " + e.getMessage());
+        }
+        return job.toDto();
+    }
+
+    public KeywordImportStatusDto status(String id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        if (job == null) {
+            throw new AmlApiException(HttpStatus.NOT_FOUND, "Keyword import not found: " + id);
+        }
+        return job.toDto();
+    }
+
+    private Format resolveFormat(String format, String fileName) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new AmlApiException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format + " (use CSV or NDJSON)");
+            }
+        }
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return Format.NDJSON;
+        }
+        throw new AmlApiException(HttpStatus.BAD_REQUEST, "Cannot tell the format from the file name; pass format=CSV or format=NDJSON");
+    }
+
+    private void run(Job job, Path file, String importedBy) {
+        try (InputStream in = new CountingInputStream(Files.newInputStream(file), job.bytesRead);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Iterator<Row> rows = job.format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            while (rows.hasNext()) {
+                chunk.add(rows.next());
+                if (chunk.size() == chunkSize) {
+                    importChunk(job, chunk, importedBy);
+                    chunk.clear();
+                }
+            }
+            importChunk(job, chunk, importedBy);
+            job.finish("COMPLETED", null);
+        } catch (Exception e) {
+            log.warn("Keyword import {} failed: {}", job.id, e.getMessage());
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            running.set(false);
+            deleteQuietly(file);
+            if (job.inserted.get() > 0) {
+                keywordIndex.refresh();
+            }
+            log.info("Keyword import {} {}: {} rows, {} inserted, {} duplicates, {} invalid",
+                    job.id, job.status, job.rowsRead.get(), job.inserted.get(), job.duplicates.get(), job.invalid.get());
+        }
+    }
+
+    private void importChunk(Job job, List<Row> chunk, String importedBy) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        job.rowsRead.addAndGet(chunk.size());
+
+        Map<String, Parsed> valid = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            if (row.error != null) {
+                job.reject(row.line, row.get("keyword"), row.error);
+                continue;
+            }
+            Parsed parsed = parse(row, importedBy);
+            if (parsed.error != null) {
+                job.reject(row.line, row.get("keyword"), parsed.error);
+            } else if (valid.putIfAbsent(parsed.keyword.getKeyword().toLowerCase(Locale.ROOT), parsed) != null) {
+                job.duplicates.incrementAndGet();
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (String keyword : namedParameterJdbcTemplate.queryForList(EXISTING_SQL,
+                Map.of("keywords", new ArrayList<>(valid.keySet())), String.class)) {
+            existing.add(keyword.toLowerCase(Locale.ROOT));
+        }
+        List<Parsed> inserts = new ArrayList<>(valid.size());
+        for (Map.Entry<String, Parsed> entry : valid.entrySet()) {
+            if (existing.contains(entry.getKey())) {
+                job.duplicates.incrementAndGet();
+            } else {
+                inserts.add(entry.getValue());
+            }
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (ps, parsed) -> bind(ps, parsed.keyword)));
+            job.inserted.addAndGet(inserts.size());
+        } catch (DataAccessException e) {
+            // the chunk was rolled back; insert row by row to find the offending rows
+            log.debug("Keyword import {} chunk batch failed, retrying row by row: {}", job.id, e.getMessage());
+            for (Parsed parsed : inserts) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, parsed.keyword));
+                    job.inserted.incrementAndGet();
+                } catch (DuplicateKeyException duplicate) {
+                    job.duplicates.incrementAndGet();
+                } catch (DataAccessException rowError) {
+                    job.reject(parsed.line, parsed.keyword.getKeyword(), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, SuspiciousKeyword keyword) throws SQLException {
+        Timestamp now = Timestamp.valueOf(keyword.getCreatedAt());
+        ps.setString(1, keyword.getKeyword());
+        ps.setString(2, keyword.getRiskLevel().name());
+        ps.setInt(3, keyword.getRiskScore());
+        ps.setString(4, keyword.getCategory());
+        ps.setString(5, keyword.getDescription());
+        ps.setBoolean(6, keyword.isActive());
+        ps.setBoolean(7, keyword.isCaseSensitive());
+        ps.setBoolean(8, keyword.isWholeWordOnly());
+        ps.setBoolean(9, keyword.isFuzzyMatch());
+        ps.setString(10, keyword.getCreatedBy());
+        ps.setTimestamp(11, now);
+        ps.setTimestamp(12, now);
+    }
+
+    private Parsed parse(Row row, String importedBy) {
+        String keyword = row.get("keyword");
+        if (keyword == null || keyword.isBlank()) {
+            return Parsed.error(row.line, "Keyword cannot be blank");
+        }
+        keyword = keyword.trim();
+        if (keyword.length() > 255) {
+            return Parsed.error(row.line, "Keyword cannot exceed 255 characters");
+        }
+        String level = row.get("risklevel");
+        if (level == null || level.isBlank()) {
+            return Parsed.error(row.line, "Risk level is required");
+        }
+        SuspiciousKeyword.RiskLevel riskLevel;
+        try {
+            riskLevel = SuspiciousKeyword.RiskLevel.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Parsed.error(row.line, "Unknown risk level: " + level);
+        }
+        String score = row.get("riskscore");
+        if (score == null || score.isBlank()) {
+            return Parsed.error(row.line, "Risk score is required");
+        }
+        int riskScore;
+        try {
+            riskScore = Integer.parseInt(score.trim());
+        } catch (NumberFormatException e) {
+            return Parsed.error(row.line, "Risk score is not a number: " + score);
+        }
+        String violation = SuspiciousKeywordServiceImpl.riskScoreViolation(riskScore, riskLevel);
+        if (violation != null) {
+            return Parsed.error(row.line, violation);
+        }
+        String category = blankToNull(row.get("category"));
+        if (category != null && category.length() > 100) {
+            return Parsed.error(row.line, "Category cannot exceed 100 characters");
+        }
+        String description = blankToNull(row.get("description"));
+        if (description != null && description.length() > 500) {
+            return Parsed.error(row.line, "Description cannot exceed 500 characters");
+        }
+        Boolean caseSensitive = bool(row.get("casesensitive"), false);
+        Boolean wholeWordOnly = bool(row.get("wholewordonly"), true);
+        Boolean fuzzyMatch = bool(row.get("fuzzymatch"), false);
+        Boolean active = bool(row.get("active"), true);
+        if (caseSensitive == null || wholeWordOnly == null || fuzzyMatch == null || active == null) {
+            return Parsed.error(row.line, "Flags must be true or false");
+        }
+
+        SuspiciousKeyword parsed = SuspiciousKeyword.builder()
+                .keyword(keyword)
+                .riskLevel(riskLevel)
+                .riskScore(riskScore)
+                .category(category)
+                .description(description)
+                .isActive(active)
+                .caseSensitive(caseSensitive)
+                .wholeWordOnly(wholeWordOnly)
+                .fuzzyMatch(fuzzyMatch)
+                .createdBy(importedBy)
+                .createdAt(LocalDateTime.now())
+                .build();
+        return new Parsed(row.line, parsed, null);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // null when the value is not a boolean
+    private static Boolean bool(String value, boolean defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        if (v.equals("true") || v.equals("yes") || v.equals("1")) {
+            return true;
+        }
+        if (v.equals("false") || v.equals("no") || v.equals("0")) {
+            return false;
+        }
+        return null;
+    }
+
+    /** Column or field name reduced to lower case letters and digits, e.g. risk_level -> risklevel. */
+    private static String columnKey(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Row {
+        final long line;
+        final Map<String, String> values;
+        // set when the line itself could not be read
+        final String error;
+
+        Row(long line, Map<String, String> values, String error) {
+            this.line = line;
+            this.values = values;
+            this.error = error;
+        }
+
+        String get(String key) {
+            return values.get(key);
+        }
+    }
+
+    private static final class Parsed {
+        final long line;
+        final SuspiciousKeyword keyword;
+        final String error;
+
+        Parsed(long line, SuspiciousKeyword keyword, String error) {
+            this.line = line;
+            this.keyword = keyword;
+            this.error = error;
+        }
+
+        static Parsed error(long line, String message) {
+            return new Parsed(line, null, message);
+        }
+    }
+
+    /** Reads ahead one non-blank line at a time. */
+    private abstract static class LineRows implements Iterator<Row> {
+        private final BufferedReader reader;
+        private long lineNumber;
+        private Row next;
+
+        LineRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        abstract Row toRow(long line, String text);
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            try {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (!text.isBlank()) {
+                        next = toRow(lineNumber, text);
+                        if (next != null) {
+                            return true;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the import file: " + e.getMessage(), e);
+            }
+            return false;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    private static final class CsvRows extends LineRows {
+        private List<String> header;
+
+        CsvRows(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        Row toRow(long line, String text) {
+            List<String> fields = split(text.charAt(0) == '\uFEFF' ? text.substring(1) : text);
+            if (header == null) {
+                if (fields == null) {
+                    throw new IllegalArgumentException("CSV header has an unterminated quoted field");
+                }
+                header = new ArrayList<>(fields.size());
+                for (String name : fields) {
+                    header.add(columnKey(name));
+                }
+                if (!header.contains("keyword") || !header.contains("risklevel") || !header.contains("riskscore")) {
+                    throw new IllegalArgumentException("CSV header must name the keyword, riskLevel and riskScore columns");
+                }
+                return null;
+            }
+            if (fields == null) {
+                return new Row(line, Map.of(), "Unterminated quoted field");
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                values.put(header.get(i), fields.get(i));
+            }
+            return new Row(line, values, null);
+        }
+
+        // RFC 4180 fields on one line; null if a quote is left open
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private final class NdjsonRows extends LineRows {
+
+        NdjsonRows(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        Row toRow(long line, String text) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new Row(line, Map.of(), "Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (node == null || !node.isObject()) {
+                return new Row(line, Map.of(), "Expected a JSON object");
+            }
+            Map<String, String> values = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                JsonNode value = field.getValue();
+                if (!value.isNull()) {
+                    values.put(columnKey(field.getKey()), value.asText());
+                }
+            });
+            return new Row(line, values, null);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count.addAndGet(n);
+            }
+            return n;
+        }
+    }
+
+    private final class Job {
+        final String id;
+        final Format format;
+        final String fileName;
+        final long bytesTotal;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicLong invalid = new AtomicLong();
+        final List<KeywordImportErrorDto> errors = new ArrayList<>();
+        volatile String status = "RUNNING";
+        volatile String message;
+        volatile LocalDateTime finishedAt;
+
+        Job(String id, Format format, String fileName, long bytesTotal) {
+            this.id = id;
+            this.format = format;
+            this.fileName = fileName;
+            this.bytesTotal = bytesTotal;
+        }
+
+        void reject(long line, String keyword, String error) {
+            invalid.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new KeywordImportErrorDto(line, keyword, error));
+                }
+            }
+        }
+
+        void finish(String finalStatus, String finalMessage) {
+            message = finalMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        KeywordImportStatusDto toDto() {
+            List<KeywordImportErrorDto> errorCopy;
+            synchronized (errors) {
+                errorCopy = new ArrayList<>(errors);
+            }
+            long read = bytesRead.get();
+            double percent = bytesTotal > 0 ? Math.min(100.0, 100.0 * read / bytesTotal) : 0.0;
+            if ("COMPLETED".equals(status)) {
+                percent = 100.0;
+            }
+            return new KeywordImportStatusDto(id, status, format.name(), fileName, bytesTotal, read, percent,
+                    rowsRead.get(), inserted.get(), duplicates.get(), invalid.get(), errorCopy, message,
+                    startedAt, finishedAt);
+        }
+    }
+}
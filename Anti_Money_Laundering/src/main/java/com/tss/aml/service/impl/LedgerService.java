@@ -0,0 +1,182 @@
+package com.tss.aml.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tss.aml.dto.transaction.BalanceDto;
+import com.tss.aml.entity.BalanceSnapshot;
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.LedgerEntry;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.exception.ResourceNotFoundException;
+import com.tss.aml.repository.BalanceSnapshotRepository;
+import com.tss.aml.repository.BankAccountRepository;
+import com.tss.aml.repository.LedgerEntryRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Append-only record of balance changes. Every debit and credit inserts a {@link LedgerEntry};
+ * an account's balance is its latest {@link BalanceSnapshot} plus the entries not yet folded
+ * into one, so money movement never rewrites a shared row.
+ * <p>
+ * A scheduled compaction folds entries into a new snapshot once an account has
+ * {@code min-entries} of them or the oldest is {@code max-age-minutes} old, which keeps the
+ * delta to sum short. Folding marks the entries with the snapshot and sums exactly those in the
+ * same transaction, so an entry that commits late is folded by a later run rather than skipped,
+ * whatever its id. Compaction also refreshes {@code bank_account.balance}, which listings read
+ * as the balance at the last compaction; anything that decides on a balance uses
+ * {@link #currentBalance(BankAccount)}.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${aml.ledger.compaction.min-entries:100}")
+    private long minEntries;
+
+    @Value("${aml.ledger.compaction.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    /** Existing accounts start the ledger from their stored balance. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void openMissingSnapshots() {
+        Integer opened = new TransactionTemplate(transactionManager)
+                .execute(status -> balanceSnapshotRepository.openMissing(LocalDateTime.now()));
+        if (opened != null && opened > 0) {
+            log.info("Opened ledger balance snapshots for {} accounts", opened);
+        }
+    }
+
+    /** Opening snapshot of a new account, at its initial balance. */
+    public void open(BankAccount account) {
+        LocalDateTime now = LocalDateTime.now();
+        balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                .accountNumber(account.getAccountNumber())
+                .balance(account.getBalance() != null ? account.getBalance() : BigDecimal.ZERO)
+                .lastEntryId(0)
+                .asOf(now)
+                .createdAt(now)
+                .build());
+    }
+
+    /** Records a balance change; {@code amount} is signed, negative for debits. */
+    public LedgerEntry append(String accountNumber, LedgerEntry.EntryType type, BigDecimal amount, Long transactionId) {
+        return ledgerEntryRepository.save(LedgerEntry.builder()
+                .accountNumber(accountNumber)
+                .entryType(type)
+                .amount(amount)
+                .transactionId(transactionId)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    public BigDecimal currentBalance(BankAccount account) {
+        return balanceSnapshotRepository.currentBalance(account.getAccountNumber())
+                .orElseGet(() -> (account.getBalance() != null ? account.getBalance() : BigDecimal.ZERO)
+                        .add(ledgerEntryRepository.sumUnfolded(account.getAccountNumber())));
+    }
+
+    /** When the account's ledger starts, or null if it has none yet. */
+    public LocalDateTime openedAt(String accountNumber) {
+        return balanceSnapshotRepository.findFirstByAccountNumberOrderByIdAsc(accountNumber)
+                .map(BalanceSnapshot::getAsOf)
+                .orElse(null);
+    }
+
+    /** The balance as it stood at {@code at}, rebuilt from the ledger. */
+    public BigDecimal balanceAt(String accountNumber, LocalDateTime at) {
+        BalanceSnapshot snapshot = balanceSnapshotRepository
+                .findFirstByAccountNumberAndAsOfLessThanEqualOrderByIdDesc(accountNumber, at)
+                .orElseThrow(() -> new AmlApiException(HttpStatus.BAD_REQUEST,
+                        "No ledger history for account " + accountNumber + " at " + at));
+        return snapshot.getBalance().add(ledgerEntryRepository.sumOutsideUpTo(accountNumber, snapshot.getId(), at));
+    }
+
+    /** The account's balance at {@code at}, or its current balance when {@code at} is null. */
+    public BalanceDto accountBalance(String accountNumber, LocalDateTime at) {
+        BankAccount account = bankAccountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", accountNumber));
+        BigDecimal balance = at != null ? balanceAt(accountNumber, at) : currentBalance(account);
+        return new BalanceDto(accountNumber, balance, account.getCurrency(),
+                String.valueOf(account.getAccountType()), String.valueOf(account.getStatus()));
+    }
+
+    @Scheduled(fixedDelayString = "${aml.ledger.compaction.interval-ms:300000}",
+               initialDelayString = "${aml.ledger.compaction.interval-ms:300000}")
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime stale = now.minusMinutes(maxAgeMinutes);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int compacted = 0;
+        for (Object[] row : ledgerEntryRepository.findUncompacted()) {
+            String accountNumber = (String) row[0];
+            long pending = ((Number) row[1]).longValue();
+            LocalDateTime oldest = (LocalDateTime) row[2];
+            if (pending < minEntries && oldest.isAfter(stale)) {
+                continue;
+            }
+            try {
+                tx.executeWithoutResult(status -> compact(accountNumber, status));
+                compacted++;
+            } catch (RuntimeException e) {
+                log.warn("Ledger compaction of account {} failed: {}", accountNumber, e.getMessage());
+            }
+        }
+        if (compacted > 0) {
+            log.info("Ledger compaction wrote snapshots for {} accounts", compacted);
+        }
+    }
+
+    private void compact(String accountNumber, TransactionStatus status) {
+        // serializes compactions of the account across instances
+        if (bankAccountRepository.lockByAccountNumber(accountNumber).isEmpty()) {
+            return;
+        }
+        BalanceSnapshot previous = balanceSnapshotRepository.findFirstByAccountNumberOrderByIdDesc(accountNumber).orElse(null);
+        if (previous == null) {
+            log.warn("Ledger entries for account {} without an opening snapshot, skipping compaction", accountNumber);
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BalanceSnapshot snapshot = balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                .accountNumber(accountNumber)
+                .balance(previous.getBalance())
+                .lastEntryId(previous.getLastEntryId())
+                .asOf(previous.getAsOf())
+                .createdAt(now)
+                .build());
+        if (ledgerEntryRepository.fold(accountNumber, snapshot.getId()) == 0) {
+            status.setRollbackOnly();
+            return;
+        }
+        Object[] folded = ledgerEntryRepository.summarizeFolded(accountNumber, snapshot.getId()).get(0);
+        LocalDateTime newest = (LocalDateTime) folded[2];
+        snapshot.setBalance(previous.getBalance().add((BigDecimal) folded[0]));
+        snapshot.setLastEntryId(((Number) folded[1]).longValue());
+        snapshot.setAsOf(newest.isAfter(previous.getAsOf()) ? newest : previous.getAsOf());
+        balanceSnapshotRepository.save(snapshot);
+        BigDecimal current = snapshot.getBalance().add(ledgerEntryRepository.sumUnfolded(accountNumber));
+        bankAccountRepository.updateBalance(accountNumber, current, now);
+        log.debug("Compacted ledger of account {} into snapshot {}: balance {}", accountNumber, snapshot.getId(), snapshot.getBalance());
+    }
+}
@@ -2,22 +2,32 @@ package com.tss.aml.service.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.tss.aml.dto.compliance.EvaluationResultDto;
 import com.tss.aml.dto.compliance.RuleMatchDto;
 import com.tss.aml.dto.transaction.TransactionInputDto;
-import com.tss.aml.entity.Rule;
-import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.RuleExecutionLog;
-import com.tss.aml.repository.RuleExecutionLogRepository;
-import com.tss.aml.repository.RuleRepository;
-import com.tss.aml.service.rules.RuleEvaluator;
-import com.tss.aml.service.rules.RuleEvaluatorFactory;
+import com.tss.aml.service.rules.AccountSnapshot;
+import com.tss.aml.service.rules.CompiledCondition;
+import com.tss.aml.service.rules.CompiledRule;
+import com.tss.aml.service.rules.CompiledRuleSet;
+import com.tss.aml.service.rules.ConditionMemo;
+import com.tss.aml.service.rules.ConditionStatistics;
+import com.tss.aml.service.rules.CustomerHistoryLoader;
+import com.tss.aml.service.rules.EvaluationContext;
+import com.tss.aml.service.rules.RiskBand;
+import com.tss.aml.service.rules.RuleExecutionLogWriter;
+import com.tss.aml.service.rules.RuleSetCache;
+import com.tss.aml.service.rules.ScreeningMetrics;
 
 import lombok.RequiredArgsConstructor;
 
@@ -25,106 +35,176 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class RuleEngineServiceImpl {
 
-    private final RuleRepository ruleRepo;
-    private final RuleEvaluatorFactory ruleEvaluatorFactory;
-    private final RuleExecutionLogRepository ruleExecutionLogRepository;
+    private static final String PARALLEL = "PARALLEL";
+
+    private final RuleSetCache ruleSetCache;
+    private final RuleExecutionLogWriter ruleExecutionLogWriter;
+    private final CustomerHistoryLoader customerHistoryLoader;
+    private final ConditionStatistics conditionStatistics;
+    private final ScreeningMetrics screeningMetrics;
+
+    private final ExecutorService ruleEvaluationExecutor;
+
+    /**
+     * SEQUENTIAL evaluates rules one after another on the request thread; PARALLEL submits
+     * every rule up front and folds the results in priority order, so BLOCK short-circuit
+     * and noisy-OR scoring are unchanged.
+     */
+    @Value("${aml.rules.evaluation-mode:SEQUENTIAL}")
+    private String evaluationMode;
+
+    /**
+     * Stops evaluating once the lowest possible score (matches so far) and the highest
+     * (every remaining rule matches) map to the same decision band.
+     */
+    @Value("${aml.rules.early-termination:false}")
+    private boolean earlyTermination;
 
     private static final Logger log = LoggerFactory.getLogger(RuleEngineServiceImpl.class);
 
     public EvaluationResultDto evaluate(TransactionInputDto input) {
-        List<Rule> rules = ruleRepo.findByIsActiveTrueOrderByPriorityAsc();
-        log.debug("Rule Engine - Found {} active rules", rules.size());
+        return evaluate(input, null, null);
+    }
+
+    /**
+     * Screens a transaction whose accounts the caller has already loaded; evaluators read
+     * balances from these snapshots instead of querying the accounts again.
+     */
+    public EvaluationResultDto evaluate(TransactionInputDto input, AccountSnapshot fromAccount, AccountSnapshot toAccount) {
+        CompiledRuleSet ruleSet = ruleSetCache.current();
+        log.debug("Rule Engine - Using rule set v{} with {} active rules", ruleSet.getVersion(), ruleSet.size());
+        EvaluationContext context = new EvaluationContext(input, fromAccount, toAccount,
+                ruleSet.getMaxLookback(), customerHistoryLoader);
+        long started = System.nanoTime();
+        try {
+            return evaluate(ruleSet, context, PARALLEL.equalsIgnoreCase(evaluationMode), true);
+        } finally {
+            screeningMetrics.recordScreening(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Evaluates on the calling thread without persisting execution logs, per-decision INFO
+     * logging, condition statistics or metrics. Used for re-screening and backtests, where the
+     * caller supplies the rule set and context.
+     */
+    public EvaluationResultDto evaluateDetached(CompiledRuleSet ruleSet, EvaluationContext context) {
+        return evaluate(ruleSet, context, false, false);
+    }
+
+    private EvaluationResultDto evaluate(CompiledRuleSet ruleSet, EvaluationContext context, boolean parallel, boolean live) {
+        TransactionInputDto input = context.getInput();
+        List<CompiledRule> rules = ruleSet.getRules();
+        ConditionMemo memo = new ConditionMemo(ruleSet);
+        List<Future<RuleOutcome>> pending = null;
+        if (parallel && rules.size() > 1) {
+            // workers cannot see the caller's uncommitted pending transaction, so load history here
+            if (!ruleSet.getMaxLookback().isZero()) {
+                try {
+                    context.history();
+                } catch (Exception e) {
+                    log.warn("Failed to prefetch customer history: {}", e.getMessage());
+                }
+            }
+            pending = new ArrayList<>(rules.size());
+            for (CompiledRule rule : rules) {
+                pending.add(ruleEvaluationExecutor.submit(() -> evaluateRule(rule, context, memo, true)));
+            }
+        }
 
         List<RuleExecutionLog> logs = new ArrayList<>();
         List<RuleMatchDto> flaggedRules = new ArrayList<>();
         List<RuleMatchDto> blockedRules = new ArrayList<>();
+        List<RuleMatchDto> notEvaluatedRules = new ArrayList<>();
 
         // Probability-based aggregation
         double productComplement = 1.0; // Start with full complement (for independence)
 
-        for (Rule rule : rules) {
-            log.debug("Evaluating rule: {} (Weight: {}, Action: {}, Priority: {})",
-                    rule.getName(), rule.getRiskWeight(), rule.getAction(), rule.getPriority());
+        try {
+            for (int i = 0; i < rules.size(); i++) {
+                CompiledRule rule = rules.get(i);
+                if (earlyTermination && bandDecided(productComplement, ruleSet.remainingComplement(i), input.getNlpScore())) {
+                    for (CompiledRule skipped : rules.subList(i, rules.size())) {
+                        notEvaluatedRules.add(toMatchDto(skipped));
+                    }
+                    if (live) {
+                        log.info("  Decision band fixed; {} remaining rules not evaluated", notEvaluatedRules.size());
+                    }
+                    break;
+                }
+                RuleOutcome outcome = pending != null ? await(pending.get(i)) : evaluateRule(rule, context, memo, live);
 
-            boolean ruleMatched = true;
-            List<String> conditionResults = new ArrayList<>();
+                // If rule matched, include its probability contribution 
+                if (outcome.matched) {
+                    if (live) {
+                        log.info("  Rule MATCHED: {}", rule.getName());
+                    }
 
-            // Evaluate rule conditions
-            for (RuleCondition cond : rule.getConditions()) {
-                if (!cond.isActive()) {
-                    log.trace("  Condition inactive: {}", cond.getType());
-                    continue;
-                }
+                    // Convert risk weight (0–100) → probability (0–1)
+                    // Use the rule's configured risk weight regardless of action type
+                    double ruleProb = Math.min(1.0, Math.max(0.0, rule.getRiskWeight() / 100.0));
 
-                RuleEvaluator evaluator = ruleEvaluatorFactory.getEvaluator(cond.getType());
-                if (evaluator == null) {
-                    log.warn("No evaluator found for condition type: {}", cond.getType());
-                    ruleMatched = false;
-                    break;
-                }
+                    // Apply noisy-OR aggregation: P_total = 1 - Π(1 - p_i)
+                    productComplement *= (1.0 - ruleProb);
 
-                boolean condResult = evaluator.evaluate(input, cond);
-                conditionResults.add(cond.getType() + " " + cond.getOperator() + " " + cond.getValue() + " => " + condResult);
+                    // Logging and DTO creation 
+                    RuleExecutionLog entry = RuleExecutionLog.builder()
+                            .rule(rule.getRule())
+                            .transactionId(input.getTxId())
+                            .matched(true)
+                            .details("Rule triggered: " + rule.getName() +
+                                     " | action=" + rule.getAction() +
+                                     " | weight=" + rule.getRiskWeight() +
+                                     " | priority=" + rule.getPriority() +
+                                     " | conditions=" + String.join("; ", outcome.conditionResults))
+                            .evaluatedAt(java.time.LocalDateTime.now())
+                            .build();
+                    logs.add(entry);
 
-                if (!condResult) {
-                    ruleMatched = false;
-                    break; // AND logic: one false condition fails the rule
-                }
-            }
+                    RuleMatchDto matchDto = toMatchDto(rule);
+
+                    if (rule.isBlock()) {
+                        blockedRules.add(matchDto);
+                        if (live) {
+                            log.info("  BLOCK action triggered. Short-circuiting further evaluation.");
+                        }
+                        break; // Stop evaluating further rules
+                    } else {
+                        flaggedRules.add(matchDto);
+                    }
 
-            // If rule matched, include its probability contribution 
-            if (ruleMatched) {
-                log.info("  Rule MATCHED: {}", rule.getName());
-
-                // Convert risk weight (0–100) → probability (0–1)
-                // Use the rule's configured risk weight regardless of action type
-                double ruleProb = Math.min(1.0, Math.max(0.0, rule.getRiskWeight() / 100.0));
-
-                // Apply noisy-OR aggregation: P_total = 1 - Π(1 - p_i)
-                productComplement *= (1.0 - ruleProb);
-
-                // Logging and DTO creation 
-                RuleExecutionLog entry = RuleExecutionLog.builder()
-                        .rule(rule)
-                        .transactionId(input.getTxId())
-                        .matched(true)
-                        .details("Rule triggered: " + rule.getName() +
-                                 " | action=" + rule.getAction() +
-                                 " | weight=" + rule.getRiskWeight() +
-                                 " | priority=" + rule.getPriority() +
-                                 " | conditions=" + String.join("; ", conditionResults))
-                        .evaluatedAt(java.time.LocalDateTime.now())
-                        .build();
-                logs.add(entry);
-                try { ruleExecutionLogRepository.save(entry); } 
-                catch (Exception e) { log.warn("Failed to persist RuleExecutionLog: {}", e.getMessage()); }
-
-                RuleMatchDto matchDto = new RuleMatchDto(
-                        rule.getId(),
-                        rule.getName(),
-                        rule.getAction(),
-                        rule.getRiskWeight(),
-                        rule.getPriority()
-                );
-
-                if ("BLOCK".equalsIgnoreCase(rule.getAction())) {
-                    blockedRules.add(matchDto);
-                    log.info("  BLOCK action triggered. Short-circuiting further evaluation.");
-                    break; // Stop evaluating further rules
                 } else {
-                    flaggedRules.add(matchDto);
+                    log.trace("  Rule NOT matched: {}", rule.getName());
                 }
-
-            } else {
-                log.trace("  Rule NOT matched: {}", rule.getName());
+            }
+        } finally {
+            if (pending != null) {
+                pending.forEach(f -> f.cancel(false));
             }
         }
 
+        if (live) {
+            ruleExecutionLogWriter.write(List.copyOf(logs));
+            screeningMetrics.recordConditionMemo(memo.hits(), memo.misses());
+        }
+
         // Final probabilistic score computation 
         double finalProb = 1.0 - productComplement; // 1 - Π(1 - p_i)
         finalProb = Math.max(0.0, Math.min(1.0, finalProb)); // Clamp 0–1
         double combinedRiskScore = finalProb * 100.0;
 
+        if (live) {
+            logDecision(combinedRiskScore, flaggedRules, blockedRules);
+        }
+
+        List<RuleMatchDto> allMatches = new ArrayList<>();
+        allMatches.addAll(flaggedRules);
+        allMatches.addAll(blockedRules);
+
+        return new EvaluationResultDto((int) Math.round(combinedRiskScore), logs, allMatches, notEvaluatedRules);
+    }
+
+    private static void logDecision(double combinedRiskScore, List<RuleMatchDto> flaggedRules, List<RuleMatchDto> blockedRules) {
         log.info("Rule Engine Final Probability-Based Score: {}", combinedRiskScore);
 
         if (!flaggedRules.isEmpty() || !blockedRules.isEmpty()) {
@@ -135,11 +215,84 @@ public class RuleEngineServiceImpl {
         } else {
             log.info("No rules matched.");
         }
+    }
 
-        List<RuleMatchDto> allMatches = new ArrayList<>();
-        allMatches.addAll(flaggedRules);
-        allMatches.addAll(blockedRules);
+    private static boolean bandDecided(double productComplement, double remainingComplement, int nlpScore) {
+        int lower = (int) Math.round((1.0 - productComplement) * 100.0);
+        int upper = (int) Math.round((1.0 - productComplement * remainingComplement) * 100.0);
+        return RiskBand.of(RiskBand.combine(lower, nlpScore)) == RiskBand.of(RiskBand.combine(upper, nlpScore));
+    }
+
+    private static RuleMatchDto toMatchDto(CompiledRule rule) {
+        return new RuleMatchDto(
+                rule.getId(),
+                rule.getName(),
+                rule.getAction(),
+                rule.getRiskWeight(),
+                rule.getPriority()
+        );
+    }
 
-        return new EvaluationResultDto((int) Math.round(combinedRiskScore), logs, allMatches);
+    private RuleOutcome evaluateRule(CompiledRule rule, EvaluationContext context, ConditionMemo memo, boolean instrument) {
+        log.debug("Evaluating rule: {} (Weight: {}, Action: {}, Priority: {})",
+                rule.getName(), rule.getRiskWeight(), rule.getAction(), rule.getPriority());
+
+        long ruleStarted = System.nanoTime();
+        boolean ruleMatched = rule.isMatchable();
+        List<String> conditionResults = new ArrayList<>();
+
+        // Evaluate rule conditions
+        if (ruleMatched) {
+            for (CompiledCondition cond : rule.getConditions()) {
+                Boolean memoized = memo.get(cond);
+                boolean condResult;
+                if (memoized != null) {
+                    condResult = memoized;
+                } else {
+                    long started = System.nanoTime();
+                    condResult = cond.evaluate(context);
+                    memo.put(cond, condResult);
+                    if (instrument) {
+                        long elapsed = System.nanoTime() - started;
+                        conditionStatistics.record(cond.getType(), elapsed, condResult);
+                        screeningMetrics.recordCondition(cond.getType(), elapsed);
+                    }
+                }
+                conditionResults.add(cond.describe() + " => " + condResult);
+
+                if (!condResult) {
+                    ruleMatched = false;
+                    break; // AND logic: one false condition fails the rule
+                }
+            }
+        }
+        if (instrument) {
+            screeningMetrics.recordRule(rule, System.nanoTime() - ruleStarted, ruleMatched);
+        }
+        return new RuleOutcome(ruleMatched, conditionResults);
+    }
+
+    private static RuleOutcome await(Future<RuleOutcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rule evaluation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Rule evaluation failed", e.getCause());
+        }
+    }
+
+    private static final class RuleOutcome {
+        final boolean matched;
+        final List<String> conditionResults;
+
+        RuleOutcome(boolean matched, List<String> conditionResults) {
+            this.matched = matched;
+            this.conditionResults = conditionResults;
+        }
     }
-}
\ No newline at end of file
+}
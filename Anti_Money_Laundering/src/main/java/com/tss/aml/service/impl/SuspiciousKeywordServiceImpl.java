@@ -4,20 +4,27 @@ import com.tss.aml.entity.SuspiciousKeyword;
 import com.tss.aml.exception.AmlApiException;
 import com.tss.aml.exception.ResourceNotFoundException;
 import com.tss.aml.repository.SuspiciousKeywordRepository;
+import com.tss.aml.service.rules.KeywordIndex;
+import com.tss.aml.service.rules.KeywordScoreCache;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SuspiciousKeywordServiceImpl {
 
+    private static final Logger log = LoggerFactory.getLogger(SuspiciousKeywordServiceImpl.class);
+
     private final SuspiciousKeywordRepository suspiciousKeywordRepository;
+    private final KeywordIndex keywordIndex;
+    private final KeywordScoreCache keywordScoreCache;
 
   
     public List<SuspiciousKeyword> getAllActiveKeywords() {
@@ -45,7 +52,9 @@ public class SuspiciousKeywordServiceImpl {
         // Validate risk score matches risk level
         validateRiskScoreAndLevel(keyword.getRiskScore(), keyword.getRiskLevel());
 
-        return suspiciousKeywordRepository.save(keyword);
+        SuspiciousKeyword saved = suspiciousKeywordRepository.save(keyword);
+        keywordIndex.refresh();
+        return saved;
     }
 
     
@@ -71,9 +80,12 @@ public class SuspiciousKeywordServiceImpl {
         existingKeyword.setDescription(updatedKeyword.getDescription());
         existingKeyword.setCaseSensitive(updatedKeyword.isCaseSensitive());
         existingKeyword.setWholeWordOnly(updatedKeyword.isWholeWordOnly());
+        existingKeyword.setFuzzyMatch(updatedKeyword.isFuzzyMatch());
         existingKeyword.setUpdatedBy(updatedKeyword.getUpdatedBy());
 
-        return suspiciousKeywordRepository.save(existingKeyword);
+        SuspiciousKeyword saved = suspiciousKeywordRepository.save(existingKeyword);
+        keywordIndex.refresh();
+        return saved;
     }
 
     
@@ -85,6 +97,7 @@ public class SuspiciousKeywordServiceImpl {
         keyword.setActive(false);
         keyword.setUpdatedBy(deactivatedBy);
         suspiciousKeywordRepository.save(keyword);
+        keywordIndex.refresh();
     }
 
     
@@ -96,6 +109,7 @@ public class SuspiciousKeywordServiceImpl {
         keyword.setActive(true);
         keyword.setUpdatedBy(activatedBy);
         suspiciousKeywordRepository.save(keyword);
+        keywordIndex.refresh();
     }
 
   
@@ -105,6 +119,7 @@ public class SuspiciousKeywordServiceImpl {
             throw new ResourceNotFoundException("SuspiciousKeyword", "id", id);
         }
         suspiciousKeywordRepository.deleteById(id);
+        keywordIndex.refresh();
     }
 
     
@@ -114,48 +129,54 @@ public class SuspiciousKeywordServiceImpl {
 
     
     public Map<String, Long> getKeywordStatistics() {
+        // both spellings of each level are stored: CSV imports use the upper-case constants
         return Map.of(
-            "CRITICAL", suspiciousKeywordRepository.countByRiskLevelAndIsActiveTrue(SuspiciousKeyword.RiskLevel.Critical),
-            "HIGH", suspiciousKeywordRepository.countByRiskLevelAndIsActiveTrue(SuspiciousKeyword.RiskLevel.High),
-            "MEDIUM", suspiciousKeywordRepository.countByRiskLevelAndIsActiveTrue(SuspiciousKeyword.RiskLevel.Medium),
-            "LOW", suspiciousKeywordRepository.countByRiskLevelAndIsActiveTrue(SuspiciousKeyword.RiskLevel.Low)
+            "CRITICAL", countActive(SuspiciousKeyword.RiskLevel.CRITICAL, SuspiciousKeyword.RiskLevel.Critical),
+            "HIGH", countActive(SuspiciousKeyword.RiskLevel.HIGH, SuspiciousKeyword.RiskLevel.High),
+            "MEDIUM", countActive(SuspiciousKeyword.RiskLevel.MEDIUM, SuspiciousKeyword.RiskLevel.Medium),
+            "LOW", countActive(SuspiciousKeyword.RiskLevel.LOW, SuspiciousKeyword.RiskLevel.Low)
         );
     }
 
+    private long countActive(SuspiciousKeyword.RiskLevel... levels) {
+        return suspiciousKeywordRepository.countByRiskLevelInAndIsActiveTrue(List.of(levels));
+    }
+
     
     public int calculateRiskScore(String text) {
         if (text == null || text.trim().isEmpty()) {
             return 0;
         }
 
-        List<SuspiciousKeyword> activeKeywords = getAllActiveKeywords();
+        String normalized = KeywordScoreCache.normalize(text);
+        // read before matching, so a concurrent keyword change can only make the entry stale
+        long version = keywordIndex.version();
+        KeywordScoreCache.Entry cached = keywordScoreCache.get(normalized, version);
+        if (cached != null) {
+            log.debug("Keyword risk score (cached): {}", cached.getScore());
+            return cached.getScore();
+        }
+
         double productComplement = 1.0;
-        String processedText = text.toLowerCase();
-
-        System.out.println("\n--- Keyword Risk Evaluation Started ---");
-
-        for (SuspiciousKeyword keyword : activeKeywords) {
-            if (containsKeyword(processedText, keyword)) {
-                double p = Math.min(1.0, Math.max(0.0, keyword.getRiskScore() / 100.0));
-                productComplement *= (1.0 - p);
-
-                System.out.printf(
-                    "Matched Keyword: %-20s | Level: %-8s | RiskScore: %-3d | Probability: %.2f%%%n",
-                    keyword.getKeyword(),
-                    keyword.getRiskLevel(),
-                    keyword.getRiskScore(),
-                    p * 100
-                );
-            }
+        List<SuspiciousKeyword> matched = keywordIndex.match(normalized);
+        long[] matchedIds = new long[matched.size()];
+
+        for (int i = 0; i < matched.size(); i++) {
+            SuspiciousKeyword keyword = matched.get(i);
+            double p = Math.min(1.0, Math.max(0.0, keyword.getRiskScore() / 100.0));
+            productComplement *= (1.0 - p);
+            matchedIds[i] = keyword.getId() != null ? keyword.getId() : -1L;
+
+            log.debug("Matched keyword '{}' (level {}, risk score {})",
+                    keyword.getKeyword(), keyword.getRiskLevel(), keyword.getRiskScore());
         }
 
         double finalProb = 1.0 - productComplement;
         double combinedRiskScore = Math.round(finalProb * 100.0);
 
-        System.out.println("-----------------------------------------");
-        System.out.printf("Final Probability-Based Risk Score: %.2f%n", combinedRiskScore);
-        System.out.println("-----------------------------------------\n");
+        log.debug("Keyword risk score: {}", combinedRiskScore);
 
+        keywordScoreCache.put(normalized, version, (int) combinedRiskScore, matchedIds);
         return (int) combinedRiskScore;
     }
 
@@ -166,12 +187,7 @@ public class SuspiciousKeywordServiceImpl {
             return List.of();
         }
 
-        List<SuspiciousKeyword> activeKeywords = getAllActiveKeywords();
-        String processedText = text.toLowerCase();
-
-        return activeKeywords.stream()
-                .filter(keyword -> containsKeyword(processedText, keyword))
-                .collect(Collectors.toList());
+        return keywordIndex.match(text);
     }
 
     
@@ -184,29 +200,23 @@ public class SuspiciousKeywordServiceImpl {
                 suspiciousKeywordRepository.save(keyword);
             }
         }
+        keywordIndex.refresh();
     }
 
     
-    private boolean containsKeyword(String text, SuspiciousKeyword keyword) {
-        String searchText = keyword.isCaseSensitive() ? text : text.toLowerCase();
-        String searchKeyword = keyword.isCaseSensitive() ? keyword.getKeyword() : keyword.getKeyword().toLowerCase();
-
-        if (keyword.isWholeWordOnly()) {
-            // Use word boundaries for whole word matching
-            String pattern = "\\b" + java.util.regex.Pattern.quote(searchKeyword) + "\\b";
-            return java.util.regex.Pattern.compile(pattern).matcher(searchText).find();
-        } else {
-            // Simple substring matching
-            return searchText.contains(searchKeyword);
+    private void validateRiskScoreAndLevel(Integer riskScore, SuspiciousKeyword.RiskLevel riskLevel) {
+        String violation = riskScoreViolation(riskScore, riskLevel);
+        if (violation != null) {
+            throw new AmlApiException(HttpStatus.BAD_REQUEST, violation);
         }
     }
 
-    
-    private void validateRiskScoreAndLevel(Integer riskScore, SuspiciousKeyword.RiskLevel riskLevel) {
+    /** Why the score does not fit the level, or null if it does. */
+    static String riskScoreViolation(Integer riskScore, SuspiciousKeyword.RiskLevel riskLevel) {
         if (riskScore < riskLevel.getMinScore() || riskScore > riskLevel.getMaxScore()) {
-            throw new AmlApiException(HttpStatus.BAD_REQUEST, 
-                String.format("Risk score %d is not valid for risk level %s (valid range: %d-%d)", 
-                    riskScore, riskLevel, riskLevel.getMinScore(), riskLevel.getMaxScore()));
+            return String.format("Risk score %d is not valid for risk level %s (valid range: %d-%d)", 
+                    riskScore, riskLevel, riskLevel.getMinScore(), riskLevel.getMaxScore());
         }
+        return null;
     }
 }
@@ -2,13 +2,15 @@ package com.tss.aml.service.impl;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.tss.aml.dto.compliance.EvaluationResultDto;
@@ -23,7 +25,6 @@ import com.tss.aml.dto.transaction.WithdrawalDto;
 import com.tss.aml.entity.Alert;
 import com.tss.aml.entity.BankAccount;
 import com.tss.aml.entity.Case;
-import com.tss.aml.entity.CountryRisk;
 import com.tss.aml.entity.Customer;
 import com.tss.aml.entity.Transaction;
 import com.tss.aml.entity.User;
@@ -34,10 +35,17 @@ import com.tss.aml.exception.ResourceNotFoundException;
 import com.tss.aml.repository.AlertRepository;
 import com.tss.aml.repository.BankAccountRepository;
 import com.tss.aml.repository.CaseRepository;
-import com.tss.aml.repository.CountryRiskRepository;
 import com.tss.aml.repository.CustomerRepository;
 import com.tss.aml.repository.TransactionRepository;
 import com.tss.aml.repository.UserRepository;
+import com.tss.aml.service.rules.AccountSnapshot;
+import com.tss.aml.service.rules.BehavioralSketchStore;
+import com.tss.aml.service.rules.CountryIndex;
+import com.tss.aml.service.rules.DecisionTracer;
+import com.tss.aml.service.rules.KnownCounterpartyIndex;
+import com.tss.aml.service.rules.RiskBand;
+import com.tss.aml.service.rules.ScreeningMetrics;
+import com.tss.aml.service.rules.SlidingWindowStore;
 
 import lombok.RequiredArgsConstructor;
 
@@ -45,20 +53,29 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class TransactionServiceImpl {
 
+    private static final Logger log = LoggerFactory.getLogger(TransactionServiceImpl.class);
+
     private final TransactionRepository txRepo;
     private final AlertRepository alertRepo;
     private final CaseRepository caseRepo;
     private final BankAccountRepository bankAccountRepo;
     private final UserRepository userRepository;
     private final CustomerRepository customerRepository;
-    private final CountryRiskRepository countryRiskRepo;
+    private final CountryIndex countryIndex;
     private final NLPService nlpService;
     private final RuleEngineServiceImpl ruleEngine;
     private final ModelMapper modelMapper;
     private final SuspiciousKeywordServiceImpl suspiciousKeywordService;
     private final CurrencyExchangeService currencyExchangeService;
-
-    @Transactional
+    private final SlidingWindowStore slidingWindowStore;
+    private final BehavioralSketchStore behavioralSketchStore;
+    private final KnownCounterpartyIndex knownCounterpartyIndex;
+    private final ScreeningMetrics screeningMetrics;
+    private final DecisionTracer decisionTracer;
+    private final AccountBalanceService accountBalanceService;
+    private final LedgerService ledgerService;
+
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public TransactionDto deposit(DepositDto depositDto) {
         BankAccount toAccount = bankAccountRepo.findByAccountNumber(depositDto.getToAccountNumber())
                 .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", depositDto.getToAccountNumber()));
@@ -77,22 +94,21 @@ public class TransactionServiceImpl {
         // STEP 2: Handle based on risk assessment result
         if ("BLOCKED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but BLOCKED - no money movement
-            System.out.println("DEPOSIT BLOCKED: Transaction saved but money not deposited due to high risk score: " + riskAssessment.getCombinedRiskScore());
+            log.info("DEPOSIT BLOCKED: Transaction saved but money not deposited due to high risk score: {}", riskAssessment.getCombinedRiskScore());
             return riskAssessment;
         } else if ("FLAGGED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but money is NOT moved - awaiting manual approval
-            System.out.println("DEPOSIT FLAGGED: Transaction saved but money not deposited. Awaiting manual approval.");
+            log.info("DEPOSIT FLAGGED: Transaction saved but money not deposited. Awaiting manual approval.");
             return riskAssessment;
         } else {
             // STEP 3: Only execute money movement if APPROVED
-            toAccount.setBalance(toAccount.getBalance().add(depositDto.getAmount()));
-            bankAccountRepo.save(toAccount);
-            System.out.println("DEPOSIT APPROVED: Money deposited successfully.");
+            accountBalanceService.credit(toAccount, depositDto.getAmount(), riskAssessment.getId());
+            log.info("DEPOSIT APPROVED: Money deposited successfully.");
             return riskAssessment;
         }
     }
 
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public TransactionDto withdraw(WithdrawalDto withdrawalDto) {
         BankAccount fromAccount = bankAccountRepo.findByAccountNumber(withdrawalDto.getFromAccountNumber())
                 .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", withdrawalDto.getFromAccountNumber()));
@@ -105,7 +121,7 @@ public class TransactionServiceImpl {
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Account is not active for transactions.");
         }
 
-        if (fromAccount.getBalance().compareTo(withdrawalDto.getAmount()) < 0) {
+        if (ledgerService.currentBalance(fromAccount).compareTo(withdrawalDto.getAmount()) < 0) {
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Insufficient funds");
         }
 
@@ -115,22 +131,21 @@ public class TransactionServiceImpl {
         // STEP 2: Handle based on risk assessment result
         if ("BLOCKED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but BLOCKED - no money movement
-            System.out.println("WITHDRAWAL BLOCKED: Transaction saved but money not withdrawn due to high risk score: " + riskAssessment.getCombinedRiskScore());
+            log.info("WITHDRAWAL BLOCKED: Transaction saved but money not withdrawn due to high risk score: {}", riskAssessment.getCombinedRiskScore());
             return riskAssessment;
         } else if ("FLAGGED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but money is NOT withdrawn - awaiting manual approval
-            System.out.println("WITHDRAWAL FLAGGED: Transaction saved but money not withdrawn. Awaiting manual approval.");
+            log.info("WITHDRAWAL FLAGGED: Transaction saved but money not withdrawn. Awaiting manual approval.");
             return riskAssessment;
         } else {
             // STEP 3: Only execute money movement if APPROVED
-            fromAccount.setBalance(fromAccount.getBalance().subtract(withdrawalDto.getAmount()));
-            bankAccountRepo.save(fromAccount);
-            System.out.println("WITHDRAWAL APPROVED: Money withdrawn successfully.");
+            accountBalanceService.debit(fromAccount, withdrawalDto.getAmount(), riskAssessment.getId(), "Insufficient funds");
+            log.info("WITHDRAWAL APPROVED: Money withdrawn successfully.");
             return riskAssessment;
         }
     }
 
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public TransactionDto transfer(TransferDto transferDto) {
         BankAccount fromAccount = bankAccountRepo.findByAccountNumber(transferDto.getFromAccountNumber())
                 .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transferDto.getFromAccountNumber()));
@@ -156,11 +171,11 @@ public class TransactionServiceImpl {
             detectedReceiverCountryCode = getCountryCodeFromAccount(toAccount);
         }
         
-        System.out.println("AUTO-DETECTED: Currency=" + detectedCurrency + ", ReceiverCountry=" + detectedReceiverCountryCode);
+        log.debug("AUTO-DETECTED: Currency={}, ReceiverCountry={}", detectedCurrency, detectedReceiverCountryCode);
 
         // AUTOMATIC INTERCURRENCY DETECTION
         if (currencyExchangeService.isIntercurrencyTransferRequired(fromAccount, toAccount)) {
-            System.out.println("INTERCURRENCY TRANSFER DETECTED: " + fromAccount.getCurrency() + " to " + toAccount.getCurrency());
+            log.debug("INTERCURRENCY TRANSFER DETECTED: {} to {}", fromAccount.getCurrency(), toAccount.getCurrency());
             
             // Convert TransferDto to IntercurrencyTransferDto for processing
             IntercurrencyTransferDto intercurrencyDto = new IntercurrencyTransferDto();
@@ -174,7 +189,7 @@ public class TransactionServiceImpl {
         }
 
         // REGULAR SAME-CURRENCY TRANSFER
-        if (fromAccount.getBalance().compareTo(transferDto.getAmount()) < 0) {
+        if (ledgerService.currentBalance(fromAccount).compareTo(transferDto.getAmount()) < 0) {
             throw new AmlApiException(HttpStatus.BAD_REQUEST, "Insufficient funds");
         }
 
@@ -184,19 +199,16 @@ public class TransactionServiceImpl {
         // STEP 2: Handle based on risk assessment result
         if ("BLOCKED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but BLOCKED - no money movement
-            System.out.println("TRANSFER BLOCKED: Transaction saved but money not transferred due to high risk score: " + riskAssessment.getCombinedRiskScore());
+            log.info("TRANSFER BLOCKED: Transaction saved but money not transferred due to high risk score: {}", riskAssessment.getCombinedRiskScore());
             return riskAssessment;
         } else if ("FLAGGED".equals(riskAssessment.getStatus())) {
             // Transaction is saved but money is NOT transferred - awaiting manual approval
-            System.out.println("TRANSFER FLAGGED: Transaction saved but money not transferred. Awaiting manual approval.");
+            log.info("TRANSFER FLAGGED: Transaction saved but money not transferred. Awaiting manual approval.");
             return riskAssessment;
         } else {
             // STEP 3: Only execute money movement if APPROVED
-            fromAccount.setBalance(fromAccount.getBalance().subtract(transferDto.getAmount()));
-            toAccount.setBalance(toAccount.getBalance().add(transferDto.getAmount()));
-            bankAccountRepo.save(fromAccount);
-            bankAccountRepo.save(toAccount);
-            System.out.println("TRANSFER APPROVED: Money transferred successfully.");
+            accountBalanceService.transfer(fromAccount, transferDto.getAmount(), toAccount, transferDto.getAmount(), riskAssessment.getId(), "Insufficient funds");
+            log.info("TRANSFER APPROVED: Money transferred successfully.");
             return riskAssessment;
         }
     }
@@ -204,22 +216,20 @@ public class TransactionServiceImpl {
     // Overloaded method for transfers with receiver country code
     private TransactionDto processTransaction(BankAccount from, BankAccount to, BigDecimal amount, String currency, String desc, String receiverCountryCode, Transaction.TransactionType type) {
       int nlp = suspiciousKeywordService.calculateRiskScore(desc);
-        System.out.println("Database-driven keyword risk score: " + nlp);
+        log.debug("Database-driven keyword risk score: {}", nlp);
 
         // Find customer based on the account involved in the transaction
         Customer customer = findCustomerFromAccount(from, to);
         
         // Log customer info for debugging
-        System.out.println("Transaction processing - Customer ID: " + customer.getId() + 
-                          ", Email: " + customer.getEmail() + 
-                          ", Name: " + customer.getFirstName() + " " + customer.getLastName());
-        System.out.println("Basic NLP Score: " + nlp + ", Description: " + desc);
+        log.debug("Transaction processing - Customer ID: {}", customer.getId());
+        log.debug("Basic NLP Score: {}, Description: {}", nlp, desc);
 
         // Use receiver country code from request, with fallback to customer's country
         String countryCode = (receiverCountryCode != null && !receiverCountryCode.trim().isEmpty()) 
                 ? receiverCountryCode.trim().toUpperCase() 
                 : getCountryCodeFromAccount(to);
-        System.out.println("Receiver country code: " + countryCode + " (from request: " + receiverCountryCode + ")");
+        log.debug("Receiver country code: {} (from request: {})", countryCode, receiverCountryCode);
         
         return processTransactionInternal(from, to, amount, currency, desc, countryCode, nlp, customer, type);
     }
@@ -228,18 +238,16 @@ public class TransactionServiceImpl {
     private TransactionDto processTransaction(BankAccount from, BankAccount to, BigDecimal amount, String currency, String desc, Transaction.TransactionType type) {
         // Use database-driven suspicious keyword analysis instead of NLP
         int nlp = suspiciousKeywordService.calculateRiskScore(desc);
-        System.out.println("Database-driven keyword risk score: " + nlp);
+        log.debug("Database-driven keyword risk score: {}", nlp);
 
         Customer customer = findCustomerFromAccount(from, to);
         
-        System.out.println("Transaction processing - Customer ID: " + customer.getId() + 
-                          ", Email: " + customer.getEmail() + 
-                          ", Name: " + customer.getFirstName() + " " + customer.getLastName());
-        System.out.println("Basic NLP Score: " + nlp + ", Description: " + desc);
+        log.debug("Transaction processing - Customer ID: {}", customer.getId());
+        log.debug("Basic NLP Score: {}, Description: {}", nlp, desc);
 
         // Get country code from customer's address (for deposits/withdrawals)
         String countryCode = getCountryCodeFromCustomer(customer);
-        System.out.println("Customer country: " + countryCode);
+        log.debug("Customer country: {}", countryCode);
         
         return processTransactionInternal(from, to, amount, currency, desc, countryCode, nlp, customer, type);
     }
@@ -258,12 +266,14 @@ public class TransactionServiceImpl {
                 .nlpScore(nlp)
                 .build();
         Transaction savedTx = txRepo.save(pendingTx);
+        slidingWindowStore.record(savedTx);
+        behavioralSketchStore.record(savedTx);
 
         // Get sender country code for transfers (when fromAccount exists)
         String senderCountryCode = null;
         if (from != null && type == Transaction.TransactionType.TRANSFER) {
             senderCountryCode = getCountryCodeFromAccount(from);
-            System.out.println("Sender country code: " + senderCountryCode);
+            log.debug("Sender country code: {}", senderCountryCode);
         }
 
         var input = TransactionInputDto.builder()
@@ -279,10 +289,12 @@ public class TransactionServiceImpl {
                 .toAccountNumber(to != null ? to.getAccountNumber() : null)
                 .build();
 
-        System.out.println("Calling rule engine with input: " + input.getCustomerId() + ", Amount: " + input.getAmount() + ", Receiver Country: " + countryCode + ", Sender Country: " + senderCountryCode);
-        EvaluationResultDto ruleResult = ruleEngine.evaluate(input);
+        log.debug("Calling rule engine with input: {}, Amount: {}, Receiver Country: {}, Sender Country: {}",
+                input.getCustomerId(), input.getAmount(), countryCode, senderCountryCode);
+        EvaluationResultDto ruleResult = ruleEngine.evaluate(input, accountSnapshot(from), accountSnapshot(to));
+        knownCounterpartyIndex.record(savedTx);
         int ruleScore = ruleResult.getTotalRiskScore();
-        System.out.println("Rule engine result - Total Risk Score: " + ruleScore);
+        log.debug("Rule engine result - Total Risk Score: {}", ruleScore);
 
         // ========== DOMINANT RISK LOGIC ==========
         // Calculate both weighted average and maximum score
@@ -292,19 +304,16 @@ public class TransactionServiceImpl {
         // Use the HIGHER of the two (dominant risk wins)
         int combined = Math.max(weightedAverage, maxScore);
         
-        System.out.println("=== RISK CALCULATION ===");
-        System.out.println("NLP Score: " + nlp);
-        System.out.println("Rule Engine Score: " + ruleScore);
-        System.out.println("Weighted Average (60-40): " + weightedAverage);
-        System.out.println("Max Score (Dominant): " + maxScore);
-        System.out.println("Final Combined Score: " + combined);
-        System.out.println("========================");
+        log.debug("Risk calculation tx {}: nlp={}, rules={}, weighted={}, max={}, combined={}",
+                savedTx.getId(), nlp, ruleScore, weightedAverage, maxScore, combined);
 
         // Determine status based on combined score with dominant logic
         String status;
         String riskReason = "";
         
-        if (combined >= 90) {
+        RiskBand band = RiskBand.of(combined);
+        screeningMetrics.recordDecision(band);
+        if (band == RiskBand.BLOCKED) {
             status = "BLOCKED";
             if (nlp >= 90 && ruleScore >= 90) {
                 riskReason = "CRITICAL: Both suspicious keywords and rule violations detected";
@@ -315,7 +324,7 @@ public class TransactionServiceImpl {
             } else {
                 riskReason = "HIGH RISK: Combined factors indicate critical threat";
             }
-        } else if (combined >= 60) {
+        } else if (band == RiskBand.FLAGGED) {
             status = "FLAGGED";
             if (nlp >= 60 && ruleScore >= 60) {
                 riskReason = "MODERATE RISK: Both suspicious keywords and rule violations detected";
@@ -331,9 +340,10 @@ public class TransactionServiceImpl {
             riskReason = "LOW RISK: Transaction appears legitimate";
         }
         
-        System.out.println("Status: " + status + " | Reason: " + riskReason);
+        log.debug("Status: {} | Reason: {}", status, riskReason);
+        decisionTracer.trace(input, nlp, ruleScore, combined, band, ruleResult.getMatchedRules());
         
-        boolean exceeds = combined >= 60;
+        boolean exceeds = band != RiskBand.APPROVED;
 
         savedTx.setRuleEngineScore(ruleScore);
         savedTx.setCombinedRiskScore(weightedAverage);
@@ -357,7 +367,7 @@ public class TransactionServiceImpl {
     }
     
    
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public TransactionDto approveTransaction(Long transactionId, String officerEmail) {
         Transaction transaction = txRepo.findById(transactionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction", "id", transactionId));
@@ -389,12 +399,12 @@ public class TransactionServiceImpl {
                     associatedCase.setStatus(Case.CaseStatus.RESOLVED);
                     associatedCase.setUpdatedAt(java.time.LocalDateTime.now());
                     caseRepo.save(associatedCase);
-                    System.out.println("Case " + associatedCase.getId() + " resolved due to transaction approval by: " + officerEmail);
+                    log.info("Case {} resolved due to transaction approval by: {}", associatedCase.getId(), officerEmail);
                 }
             }
         }
         
-        System.out.println("Transaction " + transactionId + " approved by officer: " + officerEmail);
+        log.info("Transaction {} approved by officer: {}", transactionId, officerEmail);
         return modelMapper.map(savedTx, TransactionDto.class);
     }
     
@@ -429,12 +439,12 @@ public class TransactionServiceImpl {
                     associatedCase.setStatus(Case.CaseStatus.RESOLVED);
                     associatedCase.setUpdatedAt(java.time.LocalDateTime.now());
                     caseRepo.save(associatedCase);
-                    System.out.println("Case " + associatedCase.getId() + " resolved due to transaction rejection by: " + officerEmail + ". Reason: " + reason);
+                    log.info("Case {} resolved due to transaction rejection by: {}. Reason: {}", associatedCase.getId(), officerEmail, reason);
                 }
             }
         }
         
-        System.out.println("Transaction " + transactionId + " rejected by officer: " + officerEmail + ". Reason: " + reason);
+        log.info("Transaction {} rejected by officer: {}. Reason: {}", transactionId, officerEmail, reason);
         return modelMapper.map(savedTx, TransactionDto.class);
     }
     
@@ -445,40 +455,32 @@ public class TransactionServiceImpl {
         if (transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT) {
             BankAccount toAccount = bankAccountRepo.findByAccountNumber(transaction.getToAccountNumber())
                     .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transaction.getToAccountNumber()));
-            toAccount.setBalance(toAccount.getBalance().add(transaction.getAmount()));
-            bankAccountRepo.save(toAccount);
-            System.out.println("Money deposited: " + transaction.getAmount() + " to account " + transaction.getToAccountNumber());
+            accountBalanceService.credit(toAccount, transaction.getAmount(), transaction.getId());
+            log.info("Money deposited: {} to account {}", transaction.getAmount(), transaction.getToAccountNumber());
             
         } else if (transaction.getTransactionType() == Transaction.TransactionType.WITHDRAWAL) {
             BankAccount fromAccount = bankAccountRepo.findByAccountNumber(transaction.getFromAccountNumber())
                     .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transaction.getFromAccountNumber()));
-            
-            if (fromAccount.getBalance().compareTo(transaction.getAmount()) < 0) {
-                throw new AmlApiException(HttpStatus.BAD_REQUEST, "Insufficient funds for withdrawal");
-            }
-            
-            fromAccount.setBalance(fromAccount.getBalance().subtract(transaction.getAmount()));
-            bankAccountRepo.save(fromAccount);
-            System.out.println("Money withdrawn: " + transaction.getAmount() + " from account " + transaction.getFromAccountNumber());
+            accountBalanceService.debit(fromAccount, transaction.getAmount(), transaction.getId(), "Insufficient funds for withdrawal");
+            log.info("Money withdrawn: {} from account {}", transaction.getAmount(), transaction.getFromAccountNumber());
             
         } else if (transaction.getTransactionType() == Transaction.TransactionType.TRANSFER) {
             BankAccount fromAccount = bankAccountRepo.findByAccountNumber(transaction.getFromAccountNumber())
                     .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transaction.getFromAccountNumber()));
             BankAccount toAccount = bankAccountRepo.findByAccountNumber(transaction.getToAccountNumber())
                     .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transaction.getToAccountNumber()));
-            
-            if (fromAccount.getBalance().compareTo(transaction.getAmount()) < 0) {
-                throw new AmlApiException(HttpStatus.BAD_REQUEST, "Insufficient funds for transfer");
-            }
-            
-            fromAccount.setBalance(fromAccount.getBalance().subtract(transaction.getAmount()));
-            toAccount.setBalance(toAccount.getBalance().add(transaction.getAmount()));
-            bankAccountRepo.save(fromAccount);
-            bankAccountRepo.save(toAccount);
-            System.out.println("Money transferred: " + transaction.getAmount() + " from " + transaction.getFromAccountNumber() + " to " + transaction.getToAccountNumber());
+            accountBalanceService.transfer(fromAccount, transaction.getAmount(), toAccount, transaction.getAmount(), transaction.getId(), "Insufficient funds for transfer");
+            log.info("Money transferred: {} from {} to {}", transaction.getAmount(), transaction.getFromAccountNumber(), transaction.getToAccountNumber());
         }
     }
     
+    /**
+     * Account as the rule engine sees it, with the current balance from the ledger
+     */
+    private AccountSnapshot accountSnapshot(BankAccount account) {
+        return account != null ? AccountSnapshot.of(account, ledgerService.currentBalance(account)) : null;
+    }
+
     /**
      * Find customer based on the bank account involved in the transaction
      */
@@ -528,7 +530,7 @@ public class TransactionServiceImpl {
         }
         
         // Fallback to a default country code (you can change this based on your business logic)
-        System.out.println("Warning: No country found for customer " + customer.getId() + ", using default 'US'");
+        log.warn("No country found for customer {}, using default 'US'", customer.getId());
         return "US"; // Default fallback
     }
     
@@ -540,29 +542,11 @@ public class TransactionServiceImpl {
             return null;
         }
 
-        String country = countryName.toLowerCase().trim();
-
-        try {
-            // First try exact match with country name
-            Optional<CountryRisk> countryRisk = countryRiskRepo.findByCountryNameIgnoreCase(countryName.trim());
-
-            if (countryRisk.isPresent()) {
-                return countryRisk.get().getCountryCode();
-            }
-
-            // For any other country, try to find by partial name match
-            List<CountryRisk> matches = countryRiskRepo.findByCountryNameContainingIgnoreCase(countryName);
-            if (!matches.isEmpty()) {
-                 return matches.get(0).getCountryCode();
-            }
-
-            System.out.println("Country name '" + countryName + "' not found in database");
-            return null; // Return null if country name not recognized in database
-
-        } catch (Exception e) {
-            System.out.println("Error looking up country code for '" + countryName + "': " + e.getMessage());
-            return null; // Return null on database error
+        String code = countryIndex.resolveCode(countryName);
+        if (code == null) {
+            log.debug("Country name '{}' not found in database", countryName);
         }
+        return code;
     }
     
     // Old calculateBasicNlpScore method removed - now using database-driven SuspiciousKeywordService
@@ -612,7 +596,7 @@ public class TransactionServiceImpl {
         
         return new BalanceDto(
                 account.getAccountNumber(),
-                account.getBalance(),
+                ledgerService.currentBalance(account),
                 account.getCurrency(),
                 account.getAccountType().toString(),
                 account.getStatus().toString()
@@ -675,7 +659,7 @@ public class TransactionServiceImpl {
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error getting country code from account: " + e.getMessage());
+            log.warn("Error getting country code from account: {}", e.getMessage());
         }
         return "US"; // Default fallback
     }
@@ -683,7 +667,7 @@ public class TransactionServiceImpl {
     /**
      * INTERCURRENCY TRANSFER - Main method for currency conversion transfers
      */
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public TransactionDto intercurrencyTransfer(IntercurrencyTransferDto transferDto) {
         BankAccount fromAccount = bankAccountRepo.findByAccountNumber(transferDto.getFromAccountNumber())
                 .orElseThrow(() -> new ResourceNotFoundException("Bank Account", "accountNumber", transferDto.getFromAccountNumber()));
@@ -733,7 +717,7 @@ public class TransactionServiceImpl {
                              "Your transaction amount is approximately %.2f INR.", amountInINR));
         }
         
-        System.out.println("Intercurrency transfer validation passed: Amount in INR = " + amountInINR);
+        log.debug("Intercurrency transfer validation passed: Amount in INR = {}", amountInINR);
 
         // Calculate conversion details
         CurrencyExchangeService.CurrencyConversionResult conversionResult = 
@@ -762,24 +746,20 @@ public class TransactionServiceImpl {
         
         // STEP 2: Handle based on risk assessment result
         if ("BLOCKED".equals(riskAssessment.getStatus())) {
-            System.out.println("INTERCURRENCY TRANSFER BLOCKED: Transaction saved but money not transferred due to high risk score: " + riskAssessment.getCombinedRiskScore());
+            log.info("INTERCURRENCY TRANSFER BLOCKED: Transaction saved but money not transferred due to high risk score: {}", riskAssessment.getCombinedRiskScore());
             return riskAssessment;
         } else if ("FLAGGED".equals(riskAssessment.getStatus())) {
-            System.out.println("INTERCURRENCY TRANSFER FLAGGED: Transaction saved but money not transferred. Awaiting manual approval.");
+            log.info("INTERCURRENCY TRANSFER FLAGGED: Transaction saved but money not transferred. Awaiting manual approval.");
             return riskAssessment;
         } else {
             // STEP 3: Only execute money movement if APPROVED
-            // Debit original amount + charges from sender
-            fromAccount.setBalance(fromAccount.getBalance().subtract(conversionResult.getTotalDebitAmount()));
-            // Credit converted amount to receiver
-            toAccount.setBalance(toAccount.getBalance().add(conversionResult.getConvertedAmount()));
-            
-            bankAccountRepo.save(fromAccount);
-            bankAccountRepo.save(toAccount);
+            // Debit original amount + charges from sender, credit converted amount to receiver
+            accountBalanceService.transfer(fromAccount, conversionResult.getTotalDebitAmount(),
+                    toAccount, conversionResult.getConvertedAmount(), riskAssessment.getId(), "Insufficient funds");
             
-            System.out.println("INTERCURRENCY TRANSFER APPROVED: Money transferred successfully with conversion.");
-            System.out.println("Debited: " + conversionResult.getTotalDebitAmount() + " " + conversionResult.getOriginalCurrency());
-            System.out.println("Credited: " + conversionResult.getConvertedAmount() + " " + conversionResult.getConvertedCurrency());
+            log.info("INTERCURRENCY TRANSFER APPROVED: Money transferred successfully with conversion.");
+            log.debug("Debited: {} {}", conversionResult.getTotalDebitAmount(), conversionResult.getOriginalCurrency());
+            log.debug("Credited: {} {}", conversionResult.getConvertedAmount(), conversionResult.getConvertedCurrency());
             
             return riskAssessment;
         }
@@ -827,7 +807,7 @@ public class TransactionServiceImpl {
         
         // Use database-driven suspicious keyword analysis
         int nlp = suspiciousKeywordService.calculateRiskScore(description);
-        System.out.println("Database-driven keyword risk score for intercurrency transfer: " + nlp);
+        log.debug("Database-driven keyword risk score for intercurrency transfer: {}", nlp);
 
         // Find customer based on the account involved in the transaction
         Customer customer = findCustomerFromAccount(fromAccount, toAccount);
@@ -837,7 +817,7 @@ public class TransactionServiceImpl {
                 ? receiverCountryCode.trim().toUpperCase() 
                 : getCountryCodeFromCustomer(customer);
         
-        System.out.println("Intercurrency transfer - Customer: " + customer.getEmail() + ", Country: " + countryCode);
+        log.debug("Intercurrency transfer - Customer ID: {}, Country: {}", customer.getId(), countryCode);
         
         return processIntercurrencyTransactionInternal(
                 fromAccount, toAccount, conversionResult, description, countryCode, nlp, customer
@@ -877,6 +857,8 @@ public class TransactionServiceImpl {
                 .build();
         
         Transaction savedTransaction = txRepo.save(pendingTransaction);
+        slidingWindowStore.record(savedTransaction);
+        behavioralSketchStore.record(savedTransaction);
         
         // Now use the actual transaction ID for rule evaluation
         // Normalize amount for rule evaluation to INR base
@@ -898,7 +880,7 @@ public class TransactionServiceImpl {
 
         // Get sender country code for intercurrency transfers
         String senderCountryCode = getCountryCodeFromAccount(fromAccount);
-        System.out.println("Intercurrency - Sender country: " + senderCountryCode + ", Receiver country: " + countryCode);
+        log.debug("Intercurrency - Sender country: {}, Receiver country: {}", senderCountryCode, countryCode);
 
         var input = TransactionInputDto.builder()
                 .txId(savedTransaction.getId().toString())
@@ -913,7 +895,8 @@ public class TransactionServiceImpl {
                 .toAccountNumber(toAccount.getAccountNumber())
                 .build();
 
-        EvaluationResultDto result = ruleEngine.evaluate(input);
+        EvaluationResultDto result = ruleEngine.evaluate(input, accountSnapshot(fromAccount), accountSnapshot(toAccount));
+        knownCounterpartyIndex.record(savedTransaction);
         int ruleScore = result.getTotalRiskScore();
         
         // ========== DOMINANT RISK LOGIC FOR INTERCURRENCY ==========
@@ -923,19 +906,16 @@ public class TransactionServiceImpl {
         // Use the HIGHER of the two (dominant risk wins)
         int combined = Math.max(weightedAverage, maxScore);
 
-        System.out.println("=== INTERCURRENCY RISK CALCULATION ===");
-        System.out.println("NLP Score: " + nlp);
-        System.out.println("Rule Engine Score: " + ruleScore);
-        System.out.println("Weighted Average (60-40): " + weightedAverage);
-        System.out.println("Max Score (Dominant): " + maxScore);
-        System.out.println("Final Combined Score: " + combined);
-        System.out.println("======================================");
+        log.debug("Intercurrency risk calculation tx {}: nlp={}, rules={}, weighted={}, max={}, combined={}",
+                savedTransaction.getId(), nlp, ruleScore, weightedAverage, maxScore, combined);
 
         // Determine status with dominant logic
         String status;
         String riskReason = "";
         
-        if (combined >= 90) {
+        RiskBand band = RiskBand.of(combined);
+        screeningMetrics.recordDecision(band);
+        if (band == RiskBand.BLOCKED) {
             status = "BLOCKED";
             if (nlp >= 90 && ruleScore >= 90) {
                 riskReason = "CRITICAL INTERCURRENCY: Both suspicious keywords and rule violations";
@@ -946,7 +926,7 @@ public class TransactionServiceImpl {
             } else {
                 riskReason = "HIGH RISK INTERCURRENCY: Combined critical threat";
             }
-        } else if (combined >= 60) {
+        } else if (band == RiskBand.FLAGGED) {
             status = "FLAGGED";
             if (nlp >= 60 && ruleScore >= 60) {
                 riskReason = "MODERATE INTERCURRENCY: Both suspicious keywords and rule violations";
@@ -962,11 +942,12 @@ public class TransactionServiceImpl {
             riskReason = "LOW RISK INTERCURRENCY: Transaction appears legitimate";
         }
         
-        System.out.println("Intercurrency Status: " + status + " | " + riskReason);
+        log.debug("Intercurrency Status: {} | {}", status, riskReason);
+        decisionTracer.trace(input, nlp, ruleScore, combined, band, result.getMatchedRules());
         
         String alertId = null;
 
-        if (combined >= 60) {
+        if (band != RiskBand.APPROVED) {
             Alert alert = new Alert();
             alert.setReason(riskReason + " | Score: " + combined + " (NLP: " + nlp + ", Rules: " + ruleScore + ") | " +
                     "Conversion: " + conversionResult.getOriginalAmount() + " " + conversionResult.getOriginalCurrency() + 
@@ -981,7 +962,7 @@ public class TransactionServiceImpl {
         savedTransaction.setStatus(status);
         savedTransaction.setRuleEngineScore(ruleScore);
         savedTransaction.setCombinedRiskScore(weightedAverage);
-        savedTransaction.setThresholdExceeded(combined >= 60);
+        savedTransaction.setThresholdExceeded(band != RiskBand.APPROVED);
         savedTransaction.setAlertId(alertId);
         savedTransaction.setTransactionReference(generateTransactionReference(Transaction.TransactionType.INTERCURRENCY_TRANSFER));
         savedTransaction.setConversionCharges(conversionResult.getConversionCharges());
@@ -0,0 +1,46 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.Enums.AccountStatus;
+
+/**
+ * The account fields evaluators read, copied when screening starts so every condition
+ * sees the same values and none has to query the account again.
+ */
+public final class AccountSnapshot {
+
+    private final String accountNumber;
+    private final BigDecimal balance;
+    private final String currency;
+    private final AccountStatus status;
+
+    private AccountSnapshot(String accountNumber, BigDecimal balance, String currency, AccountStatus status) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.currency = currency;
+        this.status = status;
+    }
+
+    /** A snapshot of the account with a balance the caller has already resolved. */
+    public static AccountSnapshot of(BankAccount account, BigDecimal balance) {
+        return new AccountSnapshot(account.getAccountNumber(), balance, account.getCurrency(), account.getStatus());
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public AccountStatus getStatus() {
+        return status;
+    }
+}
@@ -13,28 +13,17 @@ public class AmountEvaluator implements RuleEvaluator {
     private static final Logger log = LoggerFactory.getLogger(AmountEvaluator.class);
 
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
-        boolean result = compareNumber(input.getAmount(), condition.getOperator(), condition.getValue());
-        log.debug("AmountEvaluator: {} {} {} = {}", input.getAmount(), condition.getOperator(), condition.getValue(), result);
-        return result;
+    public ConditionParams compile(RuleCondition condition) {
+        return ThresholdParams.parse(condition);
     }
 
-    private boolean compareNumber(Number actual, String operator, String expectedStr) {
-        if (actual == null) return false;
-        try {
-            double actualVal = actual.doubleValue();    
-            double expected = Double.parseDouble(expectedStr);
-            return switch (operator) {
-                case ">" -> actualVal > expected;
-                case ">=" -> actualVal >= expected;
-                case "<" -> actualVal < expected;
-                case "<=" -> actualVal <= expected;
-                case "==" -> Math.abs(actualVal - expected) < 1e-6;
-                default -> false;
-            };
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        TransactionInputDto input = context.getInput();
+        ThresholdParams params = condition.params(ThresholdParams.class);
+        boolean result = input.getAmount() != null
+                && params.getComparison().test(input.getAmount().doubleValue(), params.getThresholdValue());
+        log.debug("AmountEvaluator: {} {} {} = {}", input.getAmount(), condition.getOperator(), condition.getValue(), result);
+        return result;
     }
 }
-
@@ -7,8 +7,9 @@ import org.springframework.stereotype.Component;
 import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.Transaction;
-import com.tss.aml.entity.BankAccount;
+import com.tss.aml.exception.AmlApiException;
 import com.tss.aml.repository.BankAccountRepository;
+import com.tss.aml.service.impl.LedgerService;
 
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -19,6 +20,7 @@ import org.slf4j.LoggerFactory;
 public class BalanceRatioEvaluator implements RuleEvaluator {
 
     private final BankAccountRepository bankAccountRepository;
+    private final LedgerService ledgerService;
     private static final Logger log = LoggerFactory.getLogger(BalanceRatioEvaluator.class);
 
     // condition.type = AMOUNT_BALANCE_RATIO
@@ -26,26 +28,32 @@ public class BalanceRatioEvaluator implements RuleEvaluator {
     // condition.operator: >, >=, etc. applied to ratio (amount/balance)
     // condition.value: decimal ratio threshold, e.g., "0.8"
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
+    public ConditionParams compile(RuleCondition condition) {
+        return ThresholdParams.parse(condition);
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        TransactionInputDto input = context.getInput();
+        ThresholdParams params = condition.params(ThresholdParams.class);
         try {
             String accountNumber = resolvePrimaryAccountNumber(input);
             if (accountNumber == null) {
                 log.debug("BalanceRatioEvaluator: no account number available for txType={}, returning false", input.getTransactionType());
                 return false;
             }
-            BankAccount acct = bankAccountRepository.findByAccountNumber(accountNumber)
-                    .orElse(null);
-            if (acct == null || acct.getBalance() == null || acct.getBalance().compareTo(BigDecimal.ZERO) <= 0) {
+            BigDecimal balance = balance(context, accountNumber);
+            if (balance == null || balance.compareTo(BigDecimal.ZERO) <= 0) {
                 log.debug("BalanceRatioEvaluator: missing/zero balance for account {}", accountNumber);
                 return false;
             }
 
             BigDecimal amount = input.getAmount();
-            BigDecimal ratio = amount.divide(acct.getBalance(), 6, java.math.RoundingMode.HALF_UP);
-            BigDecimal threshold = new BigDecimal(condition.getValue());
+            BigDecimal ratio = amount.divide(balance, 6, java.math.RoundingMode.HALF_UP);
+            BigDecimal threshold = params.getThreshold();
 
-            boolean result = compare(ratio, condition.getOperator(), threshold);
-            log.debug("BalanceRatioEvaluator: amount={} balance={} ratio={} {} {} => {}", amount, acct.getBalance(), ratio, condition.getOperator(), threshold, result);
+            boolean result = params.getComparison().test(ratio.compareTo(threshold));
+            log.debug("BalanceRatioEvaluator: amount={} balance={} ratio={} {} {} => {}", amount, balance, ratio, condition.getOperator(), threshold, result);
             return result;
         } catch (Exception ex) {
             log.warn("BalanceRatioEvaluator error: {}", ex.getMessage());
@@ -53,6 +61,40 @@ public class BalanceRatioEvaluator implements RuleEvaluator {
         }
     }
 
+    /**
+     * The snapshot the caller took when screening live; otherwise the ledger balance, as of the
+     * transaction's own time when replaying the past. Before an account's opening snapshot the
+     * ledger knows nothing, so the current balance stands in (see {@link OpeningBalances}).
+     * {@code bank_account.balance} is only refreshed by compaction and must not be used here.
+     */
+    private BigDecimal balance(EvaluationContext context, String accountNumber) {
+        AccountSnapshot snapshot = context.account(accountNumber);
+        if (snapshot != null) {
+            return snapshot.getBalance();
+        }
+        if (!context.usesLiveAggregates()) {
+            OpeningBalances.Opening opening = context.openingBalances().get(accountNumber, this::opening);
+            if (!opening.covers(context.getNow())) {
+                return opening.currentBalance;
+            }
+            try {
+                return ledgerService.balanceAt(accountNumber, context.getNow());
+            } catch (AmlApiException e) {
+                log.debug("BalanceRatioEvaluator: {}", e.getMessage());
+                return null;
+            }
+        }
+        return currentBalance(accountNumber);
+    }
+
+    private OpeningBalances.Opening opening(String accountNumber) {
+        return new OpeningBalances.Opening(ledgerService.openedAt(accountNumber), currentBalance(accountNumber));
+    }
+
+    private BigDecimal currentBalance(String accountNumber) {
+        return bankAccountRepository.findByAccountNumber(accountNumber).map(ledgerService::currentBalance).orElse(null);
+    }
+
     private String resolvePrimaryAccountNumber(TransactionInputDto input) {
         if (input.getTransactionType() == Transaction.TransactionType.WITHDRAWAL || input.getTransactionType() == Transaction.TransactionType.TRANSFER) {
             return input.getFromAccountNumber();
@@ -62,17 +104,4 @@ public class BalanceRatioEvaluator implements RuleEvaluator {
         }
         return null;
     }
-
-    private boolean compare(BigDecimal actual, String operator, BigDecimal expected) {
-        int cmp = actual.compareTo(expected);
-        return switch (operator) {
-            case ">" -> cmp > 0;
-            case ">=" -> cmp >= 0;
-            case "<" -> cmp < 0;
-            case "<=" -> cmp <= 0;
-            case "==" -> cmp == 0;
-            default -> false;
-        };
-    }
 }
-
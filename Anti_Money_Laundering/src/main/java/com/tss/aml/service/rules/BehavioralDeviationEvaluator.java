@@ -1,6 +1,7 @@
 package com.tss.aml.service.rules;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -9,15 +10,19 @@ import org.springframework.stereotype.Component;
 
 import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
-import com.tss.aml.repository.TransactionRepository;
 
 import lombok.RequiredArgsConstructor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 @Component("BEHAVIORAL_DEVIATION")
 @RequiredArgsConstructor
 public class BehavioralDeviationEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    private static final Logger log = LoggerFactory.getLogger(BehavioralDeviationEvaluator.class);
+
+    private final BehavioralSketchStore behavioralSketchStore;
 
     /**
      * Condition conventions:
@@ -27,53 +32,72 @@ public class BehavioralDeviationEvaluator implements RuleEvaluator {
      * - condition.value = "lookbackDays|percentile"
      *   e.g. "90|95" means: current amount >= 95th percentile of user's amounts over last 90 days
      */
+    static final class Params implements ConditionParams {
+        final Comparison comparison;
+        final int lookbackDays;
+        final int percentile;
+
+        Params(Comparison comparison, int lookbackDays, int percentile) {
+            this.comparison = comparison;
+            this.lookbackDays = lookbackDays;
+            this.percentile = percentile;
+        }
+
+        @Override
+        public Duration lookback() {
+            return Duration.ofDays(lookbackDays);
+        }
+    }
+
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
+    public ConditionParams compile(RuleCondition condition) {
+        String[] parts = ConditionValues.split(condition.getValue(), 2, "lookbackDays|percentile");
+        return new Params(
+                Comparison.parse(condition.getOperator()),
+                ConditionValues.integer(parts[0], "lookbackDays"),
+                ConditionValues.integer(parts[1], "percentile"));
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        TransactionInputDto input = context.getInput();
+        Params params = condition.params(Params.class);
         try {
-            // Parse "lookbackDays|percentile"
-            String[] parts = condition.getValue().split("\\|");
-            if (parts.length < 2) {
-                System.out.println("BehavioralDeviationEvaluator: invalid value format: " + condition.getValue());
+            Long customerId = context.getCustomerId();
+            if (customerId == null) {
                 return false;
             }
-
-            int lookbackDays = Integer.parseInt(parts[0].trim());
-            int percentile = Integer.parseInt(parts[1].trim());
-
-            Long customerId = Long.parseLong(input.getCustomerId());
-            LocalDateTime after = LocalDateTime.now().minusDays(lookbackDays);
-            LocalDateTime before = LocalDateTime.now();
-
-            // ✅ Use existing method
-            List<BigDecimal> amounts = transactionRepository.findHistoricalAmounts(customerId, after, before);
-            if (amounts.size() < 5) {
-                System.out.println("    BehavioralDeviationEvaluator: no history, returning false");
+            long historySize;
+            BigDecimal percentileValue;
+            BehavioralSketchStore.Estimate estimate = context.usesLiveAggregates()
+                    ? behavioralSketchStore.estimate(customerId, params.lookbackDays, params.percentile, context.getNow())
+                    : null;
+            if (estimate != null) {
+                historySize = estimate.count;
+                percentileValue = estimate.value;
+            } else {
+                LocalDateTime after = context.getNow().minusDays(params.lookbackDays);
+                LocalDateTime before = context.getNow();
+
+                List<BigDecimal> amounts = context.history().amountsBetween(after, before);
+                Collections.sort(amounts);
+                historySize = amounts.size();
+                percentileValue = computePercentile(amounts, params.percentile);
+            }
+            if (historySize < 5) {
+                log.debug("BehavioralDeviationEvaluator: insufficient history ({} amounts), returning false", historySize);
                 return false;
             }
 
-            Collections.sort(amounts);
-            BigDecimal percentileValue = computePercentile(amounts, percentile);
-
-            int cmp = input.getAmount().compareTo(percentileValue);
-            boolean result = switch (condition.getOperator()) {
-                case ">" -> cmp > 0;
-                case ">=" -> cmp >= 0;
-                case "==" -> cmp == 0;
-                case "<" -> cmp < 0;
-                case "<=" -> cmp <= 0;
-                default -> false;
-            };
-
-            System.out.println("BehavioralDeviationEvaluator: customerId=" + customerId +
-                    ", current=" + input.getAmount() +
-                    ", percentile(" + percentile + ")=" + percentileValue +
-                    ", operator=" + condition.getOperator() +
-                    " => " + result);
+            boolean result = params.comparison.test(input.getAmount().compareTo(percentileValue));
+
+            log.debug("BehavioralDeviationEvaluator: customerId={}, current={}, percentile({})={}, operator={} => {}",
+                    customerId, input.getAmount(), params.percentile, percentileValue, condition.getOperator(), result);
 
             return result;
 
         } catch (Exception ex) {
-            System.out.println("BehavioralDeviationEvaluator error: " + ex.getMessage());
+            log.warn("BehavioralDeviationEvaluator error: {}", ex.getMessage());
             return false;
         }
     }
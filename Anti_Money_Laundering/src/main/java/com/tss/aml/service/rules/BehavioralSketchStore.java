@@ -0,0 +1,313 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tss.aml.entity.RuleCondition;
+import com.tss.aml.entity.Transaction;
+import com.tss.aml.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Per-customer amount distributions for BEHAVIORAL_DEVIATION, kept as one
+ * {@link QuantileSketch} per calendar day and merged once a day into a sketch per
+ * lookback horizon used by the active rules. New transactions update both, so a
+ * percentile is answered without reading or sorting the customer's history.
+ * A horizon of N days covers today and the previous N whole days.
+ * <p>
+ * Like {@link SlidingWindowStore}, sketches learn transactions saved by other instances at
+ * the next refresh ({@code refresh-ms}, re-reading {@code refresh-overlap-ms} for late
+ * commits, with the ids applied in that overlap tracked per customer), and stop answering
+ * if refreshes stop for two intervals.
+ */
+@Component
+@RequiredArgsConstructor
+public class BehavioralSketchStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BehavioralSketchStore.class);
+
+    private final TransactionRepository transactionRepository;
+
+    @Value("${aml.rules.behavioral.sketch-enabled:true}")
+    private boolean enabled;
+
+    @Value("${aml.rules.behavioral.sketch-k:200}")
+    private int k;
+
+    @Value("${aml.rules.behavioral.max-customers:50000}")
+    private int maxCustomers;
+
+    @Value("${aml.rules.behavioral.idle-minutes:60}")
+    private long idleMinutes;
+
+    @Value("${aml.rules.behavioral.refresh-ms:30000}")
+    private long refreshMs;
+
+    @Value("${aml.rules.behavioral.refresh-overlap-ms:300000}")
+    private long refreshOverlapMs;
+
+    @Value("${aml.rules.windows.page-size:10000}")
+    private int pageSize;
+
+    private final Map<Long, CustomerSketches> customers = new ConcurrentHashMap<>();
+    private volatile TreeSet<Integer> horizons = new TreeSet<>();
+    // creation time bound for the next refresh, and when the sketches last caught up with the table
+    private volatile LocalDateTime refreshedFrom;
+    private volatile long refreshedAtMillis = System.currentTimeMillis();
+
+    /** Estimated percentile over a lookback horizon, with the number of amounts it covers. */
+    public static final class Estimate {
+        public final long count;
+        public final BigDecimal value;
+
+        Estimate(long count, BigDecimal value) {
+            this.count = count;
+            this.value = value;
+        }
+    }
+
+    public void configure(CompiledRuleSet ruleSet) {
+        if (!enabled) {
+            return;
+        }
+        TreeSet<Integer> next = new TreeSet<>();
+        for (CompiledRule rule : ruleSet.getRules()) {
+            if (!rule.isMatchable()) {
+                continue;
+            }
+            for (CompiledCondition cond : rule.getConditions()) {
+                if (cond.getType() == RuleCondition.ConditionType.BEHAVIORAL_DEVIATION) {
+                    next.add(cond.params(BehavioralDeviationEvaluator.Params.class).lookbackDays);
+                }
+            }
+        }
+        if (!next.equals(horizons)) {
+            horizons = next;
+            customers.clear();
+            log.info("Behavioral sketches reconfigured for lookback horizons {}", next);
+        }
+    }
+
+    public void record(Transaction tx) {
+        TreeSet<Integer> current = horizons;
+        if (!enabled || current.isEmpty() || tx.getCustomerId() == null || tx.getAmount() == null) {
+            return;
+        }
+        Long customerId = tx.getCustomerId();
+        CustomerSketches sketches = customers.computeIfAbsent(customerId, id -> new CustomerSketches(current.last()));
+        try {
+            synchronized (sketches) {
+                if (sketches.loaded) {
+                    if (sketches.track(tx.getId(), tx.getCreatedAt(), refreshFloor())) {
+                        sketches.add(tx.getCreatedAt(), tx.getAmount(), LocalDate.now());
+                    }
+                } else {
+                    // the freshly saved row is visible to this thread's query, so it is included here
+                    load(customerId, sketches);
+                }
+            }
+        } catch (RuntimeException e) {
+            customers.remove(customerId, sketches);
+            log.warn("Failed to record transaction {} in behavioral sketch: {}", tx.getId(), e.getMessage());
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // sketches cannot subtract; reload from the database on next use
+                    if (status != STATUS_COMMITTED) {
+                        customers.remove(customerId, sketches);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Percentile of the customer's amounts over the lookback horizon, or null if the
+     * horizon is not tracked and the caller should compute it from history.
+     */
+    public Estimate estimate(Long customerId, int lookbackDays, int percentile, LocalDateTime now) {
+        TreeSet<Integer> current = horizons;
+        if (!enabled || !current.contains(lookbackDays) || System.currentTimeMillis() - refreshedAtMillis > 2 * refreshMs) {
+            return null;
+        }
+        CustomerSketches sketches = customers.computeIfAbsent(customerId, id -> new CustomerSketches(current.last()));
+        synchronized (sketches) {
+            if (!sketches.loaded) {
+                try {
+                    load(customerId, sketches);
+                } catch (RuntimeException e) {
+                    customers.remove(customerId, sketches);
+                    throw e;
+                }
+            }
+            if (lookbackDays > sketches.maxHorizon) {
+                return null;
+            }
+            sketches.lastAccess = System.currentTimeMillis();
+            QuantileSketch sketch = sketches.horizon(lookbackDays, now.toLocalDate());
+            if (sketch.count() == 0) {
+                return new Estimate(0, BigDecimal.ZERO);
+            }
+            return new Estimate(sketch.count(), BigDecimal.valueOf(sketch.percentile(percentile)));
+        }
+    }
+
+    /** Adds transactions created since the last refresh, including those saved by other instances. */
+    @Scheduled(fixedDelayString = "${aml.rules.behavioral.refresh-ms:30000}",
+               initialDelayString = "${aml.rules.behavioral.refresh-ms:30000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        LocalDateTime floor = refreshFloor();
+        int[] applied = new int[1];
+        if (!customers.isEmpty()) {
+            LocalDate today = LocalDate.now();
+            RecentActivity.scan(transactionRepository, floor, pageSize, a -> {
+                CustomerSketches sketches = customers.get(a.customerId);
+                if (sketches != null) {
+                    synchronized (sketches) {
+                        if (sketches.loaded && sketches.track(a.id, a.createdAt, floor)) {
+                            sketches.add(a.createdAt, a.amount, today);
+                            applied[0]++;
+                        }
+                    }
+                }
+            });
+        }
+        refreshedFrom = started;
+        LocalDateTime nextFloor = refreshFloor();
+        customers.values().forEach(c -> {
+            synchronized (c) {
+                c.applied.values().removeIf(createdAt -> !createdAt.isAfter(nextFloor));
+            }
+        });
+        refreshedAtMillis = System.currentTimeMillis();
+        log.debug("Behavioral sketches refreshed with {} transactions from other instances", applied[0]);
+    }
+
+    @Scheduled(fixedDelayString = "${aml.rules.windows.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        if (!enabled || customers.isEmpty()) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - Duration.ofMinutes(idleMinutes).toMillis();
+        customers.entrySet().removeIf(e -> e.getValue().lastAccess < idleBefore);
+
+        int excess = customers.size() - maxCustomers;
+        if (excess > 0) {
+            customers.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(customers::remove);
+        }
+    }
+
+    /** Transactions created after this are re-read by the next refresh, so their ids are tracked. */
+    private LocalDateTime refreshFloor() {
+        LocalDateTime from = refreshedFrom;
+        return (from != null ? from : LocalDateTime.now()).minus(Duration.ofMillis(refreshOverlapMs));
+    }
+
+    private void load(Long customerId, CustomerSketches sketches) {
+        LocalDateTime after = LocalDate.now().minusDays(sketches.maxHorizon).atStartOfDay().minusNanos(1);
+        LocalDate today = LocalDate.now();
+        LocalDateTime floor = refreshFloor();
+        RecentActivity.forCustomer(transactionRepository, customerId, after, a -> {
+            if (sketches.track(a.id, a.createdAt, floor)) {
+                sketches.add(a.createdAt, a.amount, today);
+            }
+        });
+        sketches.loaded = true;
+        sketches.lastAccess = System.currentTimeMillis();
+    }
+
+    private final class CustomerSketches {
+        final int maxHorizon;
+        final TreeMap<LocalDate, QuantileSketch> daily = new TreeMap<>();
+        final Map<Integer, Horizon> horizons = new HashMap<>();
+        // ids of added transactions the next refresh will read again, with their creation time
+        final Map<Long, LocalDateTime> applied = new HashMap<>();
+        boolean loaded;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        CustomerSketches(int maxHorizon) {
+            this.maxHorizon = maxHorizon;
+        }
+
+        /** False if the transaction was already added. */
+        boolean track(Long id, LocalDateTime createdAt, LocalDateTime floor) {
+            if (id == null || createdAt == null || !createdAt.isAfter(floor)) {
+                return true;
+            }
+            return applied.putIfAbsent(id, createdAt) == null;
+        }
+
+        void add(LocalDateTime createdAt, BigDecimal amount, LocalDate today) {
+            if (createdAt == null || amount == null) {
+                return;
+            }
+            LocalDate day = createdAt.toLocalDate();
+            if (day.isBefore(today.minusDays(maxHorizon))) {
+                return;
+            }
+            double value = amount.doubleValue();
+            daily.computeIfAbsent(day, d -> new QuantileSketch(k)).update(value);
+            for (Horizon h : horizons.values()) {
+                if (h.builtFor.equals(today) && !day.isBefore(today.minusDays(h.days))) {
+                    h.sketch.update(value);
+                }
+            }
+        }
+
+        QuantileSketch horizon(int days, LocalDate today) {
+            Horizon h = horizons.get(days);
+            if (h == null || !h.builtFor.equals(today)) {
+                daily.headMap(today.minusDays(maxHorizon), false).clear();
+                QuantileSketch merged = new QuantileSketch(k);
+                for (QuantileSketch day : daily.tailMap(today.minusDays(days), true).values()) {
+                    merged.merge(day);
+                }
+                h = new Horizon(days, today, merged);
+                horizons.put(days, h);
+            }
+            return h.sketch;
+        }
+    }
+
+    private static final class Horizon {
+        final int days;
+        final LocalDate builtFor;
+        final QuantileSketch sketch;
+
+        Horizon(int days, LocalDate builtFor, QuantileSketch sketch) {
+            this.days = days;
+            this.builtFor = builtFor;
+            this.sketch = sketch;
+        }
+    }
+}
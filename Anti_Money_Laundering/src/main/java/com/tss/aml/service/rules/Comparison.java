@@ -0,0 +1,56 @@
+package com.tss.aml.service.rules;
+
+/**
+ * Relational operator of a rule condition, parsed once when the rule set is compiled.
+ */
+public enum Comparison {
+    GT(">"), GTE(">="), LT("<"), LTE("<="), EQ("==");
+
+    private final String symbol;
+
+    Comparison(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Applies the operator to the result of {@code actual.compareTo(expected)}.
+     */
+    public boolean test(int cmp) {
+        return switch (this) {
+            case GT -> cmp > 0;
+            case GTE -> cmp >= 0;
+            case LT -> cmp < 0;
+            case LTE -> cmp <= 0;
+            case EQ -> cmp == 0;
+        };
+    }
+
+    /**
+     * Compares two doubles, treating values within 1e-6 of each other as equal for {@code ==}.
+     */
+    public boolean test(double actual, double expected) {
+        return switch (this) {
+            case GT -> actual > expected;
+            case GTE -> actual >= expected;
+            case LT -> actual < expected;
+            case LTE -> actual <= expected;
+            case EQ -> Math.abs(actual - expected) < 1e-6;
+        };
+    }
+
+    public static Comparison parse(String operator) {
+        if (operator != null) {
+            String op = operator.trim();
+            for (Comparison c : values()) {
+                if (c.symbol.equals(op)) {
+                    return c;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported operator: " + operator);
+    }
+}
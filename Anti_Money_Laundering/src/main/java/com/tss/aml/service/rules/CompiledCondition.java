@@ -0,0 +1,78 @@
+package com.tss.aml.service.rules;
+
+import java.time.Duration;
+
+import com.tss.aml.entity.RuleCondition;
+import com.tss.aml.entity.RuleCondition.ConditionType;
+
+/**
+ * A {@link RuleCondition} bound to its evaluator and its parsed parameters.
+ * Within a {@link CompiledRuleSet}, identical conditions of different rules share one
+ * instance and one memo slot, so each is evaluated at most once per transaction.
+ */
+public final class CompiledCondition {
+
+    private final RuleCondition source;
+    private final RuleEvaluator evaluator;
+    private final ConditionParams params;
+    private final String description;
+    private final int memoSlot;
+
+    public CompiledCondition(RuleCondition source, RuleEvaluator evaluator, ConditionParams params) {
+        this(source, evaluator, params, -1);
+    }
+
+    private CompiledCondition(RuleCondition source, RuleEvaluator evaluator, ConditionParams params, int memoSlot) {
+        this.source = source;
+        this.evaluator = evaluator;
+        this.params = params;
+        this.description = source.getType() + " " + source.getOperator() + " " + source.getValue();
+        this.memoSlot = memoSlot;
+    }
+
+    public CompiledCondition withMemoSlot(int slot) {
+        return new CompiledCondition(source, evaluator, params, slot);
+    }
+
+    public boolean evaluate(EvaluationContext context) {
+        return evaluator.evaluate(context, this);
+    }
+
+    public Duration lookback() {
+        return params.lookback();
+    }
+
+    public ConditionType getType() {
+        return source.getType();
+    }
+
+    public String getField() {
+        return source.getField();
+    }
+
+    public String getOperator() {
+        return source.getOperator();
+    }
+
+    public String getValue() {
+        return source.getValue();
+    }
+
+    public RuleCondition getSource() {
+        return source;
+    }
+
+    public <P extends ConditionParams> P params(Class<P> type) {
+        return type.cast(params);
+    }
+
+    /** Index of this condition's result in a {@link ConditionMemo}, or -1 if it is not memoized. */
+    public int getMemoSlot() {
+        return memoSlot;
+    }
+
+    /** "TYPE operator value", as written into rule execution logs. */
+    public String describe() {
+        return description;
+    }
+}
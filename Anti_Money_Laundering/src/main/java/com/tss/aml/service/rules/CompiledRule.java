@@ -0,0 +1,62 @@
+package com.tss.aml.service.rules;
+
+import java.util.List;
+
+import com.tss.aml.entity.Rule;
+
+/**
+ * Immutable view of an active {@link Rule} as seen by the rule engine.
+ * Only the rule's active conditions are kept, ordered for evaluation (see {@link ConditionStatistics}).
+ * A rule with a condition that failed to compile is kept but can never match,
+ * which is how a malformed condition behaved before compilation existed.
+ */
+public final class CompiledRule {
+
+    private final Rule rule;
+    private final List<CompiledCondition> conditions;
+    private final boolean matchable;
+
+    public CompiledRule(Rule rule, List<CompiledCondition> conditions, boolean matchable) {
+        this.rule = rule;
+        this.conditions = List.copyOf(conditions);
+        this.matchable = matchable;
+    }
+
+    /** The detached entity this rule was compiled from; used as the FK for execution logs. */
+    public Rule getRule() {
+        return rule;
+    }
+
+    public Long getId() {
+        return rule.getId();
+    }
+
+    public String getName() {
+        return rule.getName();
+    }
+
+    public String getAction() {
+        return rule.getAction();
+    }
+
+    public int getRiskWeight() {
+        return rule.getRiskWeight();
+    }
+
+    public int getPriority() {
+        return rule.getPriority();
+    }
+
+    public boolean isBlock() {
+        return "BLOCK".equalsIgnoreCase(rule.getAction());
+    }
+
+    public List<CompiledCondition> getConditions() {
+        return conditions;
+    }
+
+    /** False when one of the rule's conditions could not be compiled. */
+    public boolean isMatchable() {
+        return matchable;
+    }
+}
@@ -0,0 +1,72 @@
+package com.tss.aml.service.rules;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Versioned, immutable snapshot of the active rules ordered by priority.
+ * A new snapshot replaces the old one as a whole, so an evaluation that
+ * started on one version never observes a half-applied rule change.
+ */
+public final class CompiledRuleSet {
+
+    private final long version;
+    private final List<CompiledRule> rules;
+    private final Duration maxLookback;
+    private final double[] remainingComplement;
+    private final int distinctConditions;
+
+    public CompiledRuleSet(long version, List<CompiledRule> rules) {
+        this.version = version;
+        this.rules = List.copyOf(rules);
+        this.maxLookback = this.rules.stream()
+                .filter(CompiledRule::isMatchable)
+                .flatMap(r -> r.getConditions().stream())
+                .map(CompiledCondition::lookback)
+                .max(Duration::compareTo)
+                .orElse(Duration.ZERO);
+        this.distinctConditions = this.rules.stream()
+                .flatMap(r -> r.getConditions().stream())
+                .mapToInt(c -> c.getMemoSlot() + 1)
+                .max()
+                .orElse(0);
+
+        this.remainingComplement = new double[this.rules.size() + 1];
+        remainingComplement[this.rules.size()] = 1.0;
+        for (int i = this.rules.size() - 1; i >= 0; i--) {
+            CompiledRule rule = this.rules.get(i);
+            double p = rule.isMatchable() ? Math.min(1.0, Math.max(0.0, rule.getRiskWeight() / 100.0)) : 0.0;
+            remainingComplement[i] = remainingComplement[i + 1] * (1.0 - p);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    /** Widest history window any active condition needs. */
+    public Duration getMaxLookback() {
+        return maxLookback;
+    }
+
+    /**
+     * Product of (1 - weight/100) over the matchable rules from {@code index} on, i.e. the
+     * factor the noisy-OR complement would shrink by if every remaining rule matched.
+     */
+    public double remainingComplement(int index) {
+        return remainingComplement[index];
+    }
+
+    /** Number of memo slots a {@link ConditionMemo} for this rule set needs. */
+    public int getDistinctConditions() {
+        return distinctConditions;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+}
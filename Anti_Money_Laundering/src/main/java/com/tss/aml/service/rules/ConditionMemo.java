@@ -0,0 +1,50 @@
+package com.tss.aml.service.rules;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a rule set's distinct conditions for one transaction. Safe for the
+ * parallel evaluation mode; two rules racing on the same condition may both evaluate it.
+ */
+public final class ConditionMemo {
+
+    private static final int UNKNOWN = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+
+    private final AtomicIntegerArray results;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ConditionMemo(CompiledRuleSet ruleSet) {
+        this.results = new AtomicIntegerArray(ruleSet.getDistinctConditions());
+    }
+
+    /** The recorded result, or null if the condition has not been evaluated yet. */
+    public Boolean get(CompiledCondition condition) {
+        int slot = condition.getMemoSlot();
+        int result = slot < 0 ? UNKNOWN : results.get(slot);
+        if (result == UNKNOWN) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return result == TRUE;
+    }
+
+    public void put(CompiledCondition condition, boolean result) {
+        int slot = condition.getMemoSlot();
+        if (slot >= 0) {
+            results.set(slot, result ? TRUE : FALSE);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,18 @@
+package com.tss.aml.service.rules;
+
+import java.time.Duration;
+
+/**
+ * Typed, pre-validated form of a {@code RuleCondition}'s operator and value,
+ * produced by {@link RuleEvaluator#compile} when the rule set is built.
+ */
+public interface ConditionParams {
+
+    /**
+     * How far back into the customer's history the condition looks; zero if it
+     * only inspects the transaction itself.
+     */
+    default Duration lookback() {
+        return Duration.ZERO;
+    }
+}
@@ -0,0 +1,84 @@
+package com.tss.aml.service.rules;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.entity.RuleCondition.ConditionType;
+
+/**
+ * Runtime cost (latency) and selectivity (pass rate) per condition type, kept as
+ * exponentially weighted moving averages. Used to order a rule's AND-ed conditions
+ * so that cheap conditions likely to fail run first.
+ */
+@Component
+public class ConditionStatistics {
+
+    private static final double ALPHA = 0.05;
+
+    /** Conditions answered from the transaction itself or in-memory data. */
+    private static final Set<ConditionType> IN_MEMORY = EnumSet.of(
+            ConditionType.AMOUNT, ConditionType.NLP_SCORE, ConditionType.KEYWORD_MATCH, ConditionType.COUNTRY_RISK);
+    private static final double IN_MEMORY_COST_PRIOR_NANOS = 1_000;
+    private static final double DB_COST_PRIOR_NANOS = 1_000_000;
+    private static final double PASS_RATE_PRIOR = 0.5;
+
+    private final Map<ConditionType, Stats> stats = new EnumMap<>(ConditionType.class);
+
+    public ConditionStatistics() {
+        for (ConditionType type : ConditionType.values()) {
+            stats.put(type, new Stats(IN_MEMORY.contains(type) ? IN_MEMORY_COST_PRIOR_NANOS : DB_COST_PRIOR_NANOS));
+        }
+    }
+
+    public void record(ConditionType type, long elapsedNanos, boolean passed) {
+        if (type != null) {
+            stats.get(type).record(elapsedNanos, passed);
+        }
+    }
+
+    /**
+     * Expected cost paid per rejection: cost / (1 - passRate). Conditions with the lowest
+     * rank should run first; a condition that always passes ranks last.
+     */
+    public double rank(ConditionType type) {
+        Stats s = stats.get(type);
+        double failRate;
+        double cost;
+        synchronized (s) {
+            failRate = 1.0 - s.passRate;
+            cost = s.costNanos;
+        }
+        return failRate <= 1e-9 ? Double.MAX_VALUE : cost / failRate;
+    }
+
+    public Comparator<CompiledCondition> order() {
+        Map<ConditionType, Double> ranks = new EnumMap<>(ConditionType.class);
+        for (ConditionType type : ConditionType.values()) {
+            ranks.put(type, rank(type));
+        }
+        return Comparator.comparingDouble(c -> c.getType() == null ? Double.MAX_VALUE : ranks.get(c.getType()));
+    }
+
+    private static final class Stats {
+        double costNanos;
+        double passRate = PASS_RATE_PRIOR;
+        long samples;
+
+        Stats(double costPrior) {
+            this.costNanos = costPrior;
+        }
+
+        synchronized void record(long elapsedNanos, boolean passed) {
+            samples++;
+            // plain average for the first samples so the prior is replaced quickly
+            double alpha = Math.max(ALPHA, 1.0 / samples);
+            costNanos += alpha * (elapsedNanos - costNanos);
+            passRate += alpha * ((passed ? 1.0 : 0.0) - passRate);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.tss.aml.entity.Transaction.TransactionType;
+
+/**
+ * Parsing helpers for the pipe-delimited condition values
+ * (e.g. {@code "100000|3|24|DEPOSIT"}). All methods throw
+ * {@link IllegalArgumentException} with a readable message on bad input.
+ */
+public final class ConditionValues {
+
+    private ConditionValues() {
+    }
+
+    public static String[] split(String value, int minParts, String format) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Value is required, expected " + format);
+        }
+        String[] parts = value.split("\\|");
+        if (parts.length < minParts) {
+            throw new IllegalArgumentException("Invalid value '" + value + "', expected " + format);
+        }
+        return parts;
+    }
+
+    public static BigDecimal decimal(String raw, String name) {
+        try {
+            return new BigDecimal(raw.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": '" + raw + "' is not a number");
+        }
+    }
+
+    public static int integer(String raw, String name) {
+        try {
+            return Integer.parseInt(raw.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": '" + raw + "' is not an integer");
+        }
+    }
+
+    /**
+     * Parses {@code ANY} or a comma-separated list of transaction types.
+     * What {@code ANY} stands for differs between condition types, so the caller supplies it.
+     */
+    public static List<TransactionType> types(String raw, List<TransactionType> any) {
+        String spec = raw.trim().toUpperCase(Locale.ROOT);
+        if ("ANY".equals(spec)) {
+            return any;
+        }
+        List<TransactionType> types = new ArrayList<>();
+        for (String s : spec.split(",")) {
+            String name = s.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                types.add(TransactionType.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown transaction type '" + name
+                        + "', expected ANY or one of " + Arrays.toString(TransactionType.values()));
+            }
+        }
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("At least one transaction type is required");
+        }
+        return List.copyOf(types);
+    }
+}
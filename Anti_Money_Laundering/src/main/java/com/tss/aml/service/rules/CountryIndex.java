@@ -0,0 +1,179 @@
+package com.tss.aml.service.rules;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.entity.CountryRisk;
+import com.tss.aml.repository.CountryRiskRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * In-memory copy of the country risk table, indexed by code and by normalized name.
+ * The table is small and changes only through the admin API, which calls {@link #refresh()};
+ * each refresh swaps in a complete snapshot, so lookups never hit the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class CountryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CountryIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    // common names that neither match the stored name nor contain it, mapped to ISO codes
+    private static final Map<String, String> ALIASES = Map.ofEntries(
+            Map.entry("usa", "US"),
+            Map.entry("us", "US"),
+            Map.entry("america", "US"),
+            Map.entry("united states of america", "US"),
+            Map.entry("uk", "GB"),
+            Map.entry("britain", "GB"),
+            Map.entry("great britain", "GB"),
+            Map.entry("england", "GB"),
+            Map.entry("uae", "AE"),
+            Map.entry("emirates", "AE"),
+            Map.entry("bharat", "IN"),
+            Map.entry("holland", "NL"),
+            Map.entry("russia", "RU"),
+            Map.entry("south korea", "KR"),
+            Map.entry("korea", "KR"),
+            Map.entry("north korea", "KP"),
+            Map.entry("dprk", "KP"),
+            Map.entry("iran", "IR"),
+            Map.entry("syria", "SY"),
+            Map.entry("vietnam", "VN"),
+            Map.entry("ivory coast", "CI"),
+            Map.entry("czechia", "CZ"),
+            Map.entry("burma", "MM"),
+            Map.entry("prc", "CN"));
+
+    private final CountryRiskRepository countryRiskRepository;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * Reloads the table and atomically replaces the snapshot.
+     */
+    public synchronized void refresh() {
+        List<CountryRisk> rows = new ArrayList<>(countryRiskRepository.findAll());
+        rows.sort(Comparator.comparing(CountryRisk::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        current.set(new Snapshot(rows));
+        log.info("Country index loaded with {} countries", rows.size());
+    }
+
+    /** The risk entry for an ISO code (case-insensitive), or null. */
+    public CountryRisk byCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        return snapshot().byCode.get(code.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolves a free-text country (as entered in an address) to a code in the table:
+     * exact name, then code, then alias, then unique name prefix, then the first name
+     * containing the text. Returns null if nothing matches.
+     */
+    public String resolveCode(String nameOrCode) {
+        if (nameOrCode == null || nameOrCode.isBlank()) {
+            return null;
+        }
+        Snapshot s = snapshot();
+        String key = normalize(nameOrCode);
+
+        CountryRisk match = s.byName.get(key);
+        if (match == null) {
+            match = s.byCode.get(nameOrCode.trim().toUpperCase(Locale.ROOT));
+        }
+        if (match == null && ALIASES.containsKey(key)) {
+            match = s.byCode.get(ALIASES.get(key));
+        }
+        if (match == null && !key.isEmpty()) {
+            NavigableMap<String, CountryRisk> prefixed = s.byName.subMap(key, true, key + Character.MAX_VALUE, false);
+            if (prefixed.size() == 1) {
+                match = prefixed.firstEntry().getValue();
+            }
+        }
+        if (match == null && !key.isEmpty()) {
+            for (CountryRisk row : s.rows) {
+                if (normalize(row.getCountryName()).contains(key)) {
+                    match = row;
+                    break;
+                }
+            }
+        }
+        return match != null ? match.getCountryCode() : null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = current.get();
+        if (s == null) {
+            refresh();
+            s = current.get();
+        }
+        return s;
+    }
+
+    /** Lower case, accents stripped, punctuation collapsed to single spaces, leading "the" dropped. */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String s = Normalizer.normalize(text, Normalizer.Form.NFD);
+        s = DIACRITICS.matcher(s).replaceAll("").toLowerCase(Locale.ROOT);
+        s = NON_ALNUM.matcher(s).replaceAll(" ").trim();
+        return s.startsWith("the ") ? s.substring(4) : s;
+    }
+
+    private static final class Snapshot {
+        final List<CountryRisk> rows;
+        final Map<String, CountryRisk> byCode = new HashMap<>();
+        final NavigableMap<String, CountryRisk> byName = new TreeMap<>();
+
+        Snapshot(List<CountryRisk> source) {
+            List<CountryRisk> copies = new ArrayList<>(source.size());
+            for (CountryRisk row : source) {
+                // detached copies; callers must not see later changes to managed entities
+                CountryRisk copy = CountryRisk.builder()
+                        .id(row.getId())
+                        .countryCode(row.getCountryCode())
+                        .countryName(row.getCountryName())
+                        .riskScore(row.getRiskScore())
+                        .category(row.getCategory())
+                        .notes(row.getNotes())
+                        .isActive(row.isActive())
+                        .build();
+                copies.add(copy);
+                if (copy.getCountryCode() != null) {
+                    byCode.putIfAbsent(copy.getCountryCode().trim().toUpperCase(Locale.ROOT), copy);
+                }
+                if (copy.getCountryName() != null) {
+                    byName.putIfAbsent(normalize(copy.getCountryName()), copy);
+                }
+            }
+            this.rows = List.copyOf(copies);
+        }
+    }
+}
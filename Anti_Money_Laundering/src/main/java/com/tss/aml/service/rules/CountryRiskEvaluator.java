@@ -5,7 +5,6 @@ import org.springframework.stereotype.Component;
 import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.CountryRisk;
 import com.tss.aml.entity.RuleCondition;
-import com.tss.aml.repository.CountryRiskRepository;
 
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -15,17 +14,24 @@ import org.slf4j.LoggerFactory;
 @RequiredArgsConstructor
 public class CountryRiskEvaluator implements RuleEvaluator {
 
-    private final CountryRiskRepository countryRepo;
+    private final CountryIndex countryIndex;
     private static final Logger log = LoggerFactory.getLogger(CountryRiskEvaluator.class);
 
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
+    public ConditionParams compile(RuleCondition condition) {
+        return ThresholdParams.parse(condition);
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        TransactionInputDto input = context.getInput();
+        ThresholdParams params = condition.params(ThresholdParams.class);
         boolean hasSenderCountry = input.getSenderCountryCode() != null && !input.getSenderCountryCode().trim().isEmpty();
         boolean hasReceiverCountry = input.getCountryCode() != null && !input.getCountryCode().trim().isEmpty();
         
         if (hasSenderCountry && hasReceiverCountry) {
-            CountryRisk senderRisk = countryRepo.findByCountryCodeIgnoreCase(input.getSenderCountryCode());
-            CountryRisk receiverRisk = countryRepo.findByCountryCodeIgnoreCase(input.getCountryCode());
+            CountryRisk senderRisk = countryIndex.byCode(input.getSenderCountryCode());
+            CountryRisk receiverRisk = countryIndex.byCode(input.getCountryCode());
             
             if (senderRisk == null && receiverRisk == null) {
                 log.debug("CountryRiskEvaluator: No country risk data for sender {} or receiver {}, returning false", 
@@ -35,7 +41,7 @@ public class CountryRiskEvaluator implements RuleEvaluator {
             
             boolean senderMatch = false;
             if (senderRisk != null) {
-                senderMatch = compareNumber(senderRisk.getRiskScore(), condition.getOperator(), condition.getValue());
+                senderMatch = params.getComparison().test(senderRisk.getRiskScore(), params.getThresholdValue());
                 log.debug("CountryRiskEvaluator [SENDER]: {} risk={} {} {} = {}", 
                          input.getSenderCountryCode(), senderRisk.getRiskScore(), 
                          condition.getOperator(), condition.getValue(), senderMatch);
@@ -43,7 +49,7 @@ public class CountryRiskEvaluator implements RuleEvaluator {
             
             boolean receiverMatch = false;
             if (receiverRisk != null) {
-                receiverMatch = compareNumber(receiverRisk.getRiskScore(), condition.getOperator(), condition.getValue());
+                receiverMatch = params.getComparison().test(receiverRisk.getRiskScore(), params.getThresholdValue());
                 log.debug("CountryRiskEvaluator [RECEIVER]: {} risk={} {} {} = {}", 
                          input.getCountryCode(), receiverRisk.getRiskScore(), 
                          condition.getOperator(), condition.getValue(), receiverMatch);
@@ -56,33 +62,14 @@ public class CountryRiskEvaluator implements RuleEvaluator {
             return result;
         }
         
-        CountryRisk cr = countryRepo.findByCountryCodeIgnoreCase(input.getCountryCode());
+        CountryRisk cr = countryIndex.byCode(input.getCountryCode());
         if (cr == null) {
             log.debug("CountryRiskEvaluator: No country risk data for {}, returning false", input.getCountryCode());
             return false;
         }
-        boolean result = compareNumber(cr.getRiskScore(), condition.getOperator(), condition.getValue());
+        boolean result = params.getComparison().test(cr.getRiskScore(), params.getThresholdValue());
         log.debug("CountryRiskEvaluator [SINGLE-CHECK]: {} risk={} {} {} = {}", 
                  input.getCountryCode(), cr.getRiskScore(), condition.getOperator(), condition.getValue(), result);
         return result;
     }
-
-    private boolean compareNumber(Number actual, String operator, String expectedStr) {
-        if (actual == null) return false;
-        try {
-            double actualVal = actual.doubleValue();
-            double expected = Double.parseDouble(expectedStr);
-            return switch (operator) {
-                case ">" -> actualVal > expected;
-                case ">=" -> actualVal >= expected;
-                case "<" -> actualVal < expected;
-                case "<=" -> actualVal <= expected;
-                case "==" -> Math.abs(actualVal - expected) < 1e-6;
-                default -> false;
-            };
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
 }
-
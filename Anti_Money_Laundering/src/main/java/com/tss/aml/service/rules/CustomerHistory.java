@@ -0,0 +1,128 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
+import com.tss.aml.entity.Transaction;
+
+/**
+ * A customer's recent transactions, ordered by creation time, loaded once per
+ * evaluation and shared by every window-based evaluator. Window bounds follow
+ * the repository queries they replace: {@code after} and {@code before} are exclusive.
+ */
+public final class CustomerHistory {
+
+    private static final CustomerHistory EMPTY = new CustomerHistory(List.of());
+
+    private final List<TransactionHistoryEntry> entries;
+
+    /**
+     * @param entries transactions sorted by {@code createdAt} ascending; the list is not copied
+     */
+    public CustomerHistory(List<TransactionHistoryEntry> entries) {
+        this.entries = entries;
+    }
+
+    public static CustomerHistory empty() {
+        return EMPTY;
+    }
+
+    /** This history without the transaction with the given id; the same instance if it is not part of it. */
+    public CustomerHistory without(Long id) {
+        if (id == null) {
+            return this;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            if (id.equals(entries.get(i).getId())) {
+                List<TransactionHistoryEntry> rest = new ArrayList<>(entries.size() - 1);
+                rest.addAll(entries.subList(0, i));
+                rest.addAll(entries.subList(i + 1, entries.size()));
+                return new CustomerHistory(rest);
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<TransactionHistoryEntry> entriesAfter(LocalDateTime after) {
+        return entries.subList(firstAfter(after), entries.size());
+    }
+
+    /** Number of transactions of the given types (all types if null) with amount >= minAmount (any if null). */
+    public long countAfter(LocalDateTime after, Collection<Transaction.TransactionType> types, BigDecimal minAmount) {
+        long count = 0;
+        for (int i = firstAfter(after); i < entries.size(); i++) {
+            TransactionHistoryEntry e = entries.get(i);
+            if (matchesType(e, types) && (minAmount == null || (e.getAmount() != null && e.getAmount().compareTo(minAmount) >= 0))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public BigDecimal sumAfter(LocalDateTime after, Collection<Transaction.TransactionType> types) {
+        return sumBelowAfter(after, types, null);
+    }
+
+    /** Sum of amounts strictly below maxSingle (no cap if null) for the given types (all types if null). */
+    public BigDecimal sumBelowAfter(LocalDateTime after, Collection<Transaction.TransactionType> types, BigDecimal maxSingle) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = firstAfter(after); i < entries.size(); i++) {
+            TransactionHistoryEntry e = entries.get(i);
+            if (e.getAmount() != null && matchesType(e, types)
+                    && (maxSingle == null || e.getAmount().compareTo(maxSingle) < 0)) {
+                sum = sum.add(e.getAmount());
+            }
+        }
+        return sum;
+    }
+
+    public List<BigDecimal> amountsBetween(LocalDateTime after, LocalDateTime before) {
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (int i = firstAfter(after); i < entries.size(); i++) {
+            TransactionHistoryEntry e = entries.get(i);
+            if (!e.getCreatedAt().isBefore(before)) {
+                break;
+            }
+            amounts.add(e.getAmount());
+        }
+        return amounts;
+    }
+
+    public long countToCounterparty(String counterparty, LocalDateTime after, Collection<Transaction.TransactionType> types) {
+        long count = 0;
+        for (int i = firstAfter(after); i < entries.size(); i++) {
+            TransactionHistoryEntry e = entries.get(i);
+            if (counterparty.equals(e.getCounterparty()) && matchesType(e, types)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean matchesType(TransactionHistoryEntry e, Collection<Transaction.TransactionType> types) {
+        return types == null || types.contains(e.getTransactionType());
+    }
+
+    /** Index of the first entry created strictly after the given instant. */
+    private int firstAfter(LocalDateTime after) {
+        int lo = 0;
+        int hi = entries.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries.get(mid).getCreatedAt().isAfter(after)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+}
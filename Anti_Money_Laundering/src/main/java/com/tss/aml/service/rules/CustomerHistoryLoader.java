@@ -0,0 +1,23 @@
+package com.tss.aml.service.rules;
+
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class CustomerHistoryLoader {
+
+    private final TransactionRepository transactionRepository;
+
+    /**
+     * Fetches every transaction the customer created after the given instant in a single query.
+     */
+    public CustomerHistory load(Long customerId, LocalDateTime after) {
+        return new CustomerHistory(transactionRepository.findHistorySince(customerId, after));
+    }
+}
@@ -0,0 +1,291 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tss.aml.dto.compliance.RuleMatchDto;
+import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.entity.Transaction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Structured trace of screening decisions. The request thread copies the inputs, scores and
+ * matched rules into a preallocated ring buffer slot; a background thread drains the slots and
+ * writes one JSON line per decision to the {@code aml.decision-trace} logger. When the buffer is
+ * full the trace is dropped rather than blocking the screening.
+ * Level and sample rate can be changed at runtime through {@link #configure}.
+ */
+@Component
+@RequiredArgsConstructor
+public class DecisionTracer {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionTracer.class);
+    private static final Logger traceLog = LoggerFactory.getLogger("aml.decision-trace");
+
+    public enum Level {
+        OFF,
+        // only FLAGGED and BLOCKED decisions
+        ALERTS,
+        // alerts plus a sample of APPROVED decisions
+        ALL
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${aml.trace.level:ALERTS}")
+    private Level initialLevel;
+
+    @Value("${aml.trace.sample-rate:0.01}")
+    private double initialSampleRate;
+
+    @Value("${aml.trace.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${aml.trace.idle-park-ms:5}")
+    private long idleParkMs;
+
+    private volatile Level level = Level.OFF;
+    private volatile double sampleRate;
+
+    private Slot[] slots;
+    private int mask;
+    // next sequence to claim; slots below tail have been written out
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private Thread worker;
+    private volatile boolean running;
+    private Counter dropped;
+    private Counter written;
+
+    private static final class Slot {
+        // sequence of the trace held in this slot, published last
+        volatile long sequence = -1;
+        long timestamp;
+        String txId;
+        String customerId;
+        Transaction.TransactionType type;
+        BigDecimal amount;
+        String countryCode;
+        String senderCountryCode;
+        int nlpScore;
+        int ruleScore;
+        int combinedScore;
+        RiskBand decision;
+        List<RuleMatchDto> matchedRules;
+
+        void clear() {
+            txId = null;
+            customerId = null;
+            type = null;
+            amount = null;
+            countryCode = null;
+            senderCountryCode = null;
+            decision = null;
+            matchedRules = null;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+        level = initialLevel;
+        sampleRate = clampRate(initialSampleRate);
+
+        Gauge.builder("aml.trace.buffer.depth", this, t -> t.head.get() - t.tail.get())
+                .description("Decision traces waiting to be written")
+                .register(meterRegistry);
+        dropped = Counter.builder("aml.trace.dropped")
+                .description("Decision traces dropped because the buffer was full")
+                .register(meterRegistry);
+        written = Counter.builder("aml.trace.written")
+                .description("Decision traces written to the trace log")
+                .register(meterRegistry);
+
+        running = true;
+        worker = new Thread(this::run, "DecisionTracer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Captures one screening decision, subject to the current level and sample rate. */
+    public void trace(TransactionInputDto input, int nlpScore, int ruleScore, int combinedScore,
+                      RiskBand decision, List<RuleMatchDto> matchedRules) {
+        if (!shouldTrace(decision) || !running) {
+            return;
+        }
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        Slot slot = slots[(int) (seq & mask)];
+        slot.timestamp = System.currentTimeMillis();
+        slot.txId = input.getTxId();
+        slot.customerId = input.getCustomerId();
+        slot.type = input.getTransactionType();
+        slot.amount = input.getAmount();
+        slot.countryCode = input.getCountryCode();
+        slot.senderCountryCode = input.getSenderCountryCode();
+        slot.nlpScore = nlpScore;
+        slot.ruleScore = ruleScore;
+        slot.combinedScore = combinedScore;
+        slot.decision = decision;
+        slot.matchedRules = matchedRules;
+        slot.sequence = seq;
+    }
+
+    private boolean shouldTrace(RiskBand decision) {
+        Level current = level;
+        if (current == Level.OFF) {
+            return false;
+        }
+        if (decision != RiskBand.APPROVED) {
+            return true;
+        }
+        if (current != Level.ALL) {
+            return false;
+        }
+        double rate = sampleRate;
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public void configure(Level newLevel, Double newSampleRate) {
+        if (newLevel != null) {
+            level = newLevel;
+        }
+        if (newSampleRate != null) {
+            sampleRate = clampRate(newSampleRate);
+        }
+        log.info("Decision trace level={}, sampleRate={}", level, sampleRate);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getCapacity() {
+        return slots != null ? slots.length : 0;
+    }
+
+    public long getDropped() {
+        return dropped != null ? (long) dropped.count() : 0L;
+    }
+
+    public long getWritten() {
+        return written != null ? (long) written.count() : 0L;
+    }
+
+    private static double clampRate(double rate) {
+        return Math.min(1.0, Math.max(0.0, rate));
+    }
+
+    private void run() {
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleParkMs));
+        while (running || tail.get() < head.get()) {
+            if (!drain()) {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+    }
+
+    /** Writes out every published slot in sequence order; returns false when nothing was ready. */
+    private boolean drain() {
+        boolean any = false;
+        long next = tail.get();
+        while (next < head.get()) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.sequence != next) {
+                // claimed but not yet published
+                break;
+            }
+            try {
+                if (traceLog.isInfoEnabled()) {
+                    traceLog.info(toJson(slot));
+                }
+                written.increment();
+            } catch (Exception e) {
+                log.warn("Failed to write decision trace for tx {}: {}", slot.txId, e.getMessage());
+            } finally {
+                slot.clear();
+                tail.set(++next);
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private String toJson(Slot slot) throws Exception {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("ts", Instant.ofEpochMilli(slot.timestamp).toString());
+        node.put("txId", slot.txId);
+        node.put("customerId", slot.customerId);
+        node.put("type", slot.type != null ? slot.type.name() : null);
+        node.put("amount", slot.amount);
+        node.put("country", slot.countryCode);
+        node.put("senderCountry", slot.senderCountryCode);
+        node.put("nlpScore", slot.nlpScore);
+        node.put("ruleScore", slot.ruleScore);
+        node.put("combinedScore", slot.combinedScore);
+        node.put("decision", slot.decision.name());
+        ArrayNode rules = node.putArray("matchedRules");
+        if (slot.matchedRules != null) {
+            for (RuleMatchDto match : slot.matchedRules) {
+                rules.addObject()
+                        .put("id", match.getRuleId())
+                        .put("name", match.getRuleName())
+                        .put("action", match.getAction())
+                        .put("weight", match.getRiskWeight());
+            }
+        }
+        return objectMapper.writeValueAsString(node);
+    }
+
+    /** Stops accepting traces and writes out what is still buffered. */
+    @PreDestroy
+    void shutdown() {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
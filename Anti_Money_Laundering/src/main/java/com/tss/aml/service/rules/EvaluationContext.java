@@ -0,0 +1,163 @@
+package com.tss.aml.service.rules;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import com.tss.aml.dto.transaction.TransactionInputDto;
+
+/**
+ * State shared by all conditions evaluated for one transaction: the input, the parsed
+ * customer id, one evaluation timestamp, the normalized description and, for live
+ * screening, snapshots of the accounts the caller already loaded.
+ * The customer's history is fetched on first use, covering the widest lookback
+ * of the rule set, so window evaluators never query the database themselves.
+ */
+public final class EvaluationContext {
+
+    private final TransactionInputDto input;
+    private final Long customerId;
+    private final LocalDateTime now;
+    private final Duration lookback;
+    private final CustomerHistoryLoader historyLoader;
+    private final boolean liveAggregates;
+    private final AccountSnapshot fromAccount;
+    private final AccountSnapshot toAccount;
+    private final OpeningBalances openingBalances;
+
+    private volatile CustomerHistory history;
+    private volatile NormalizedText text;
+
+    public EvaluationContext(TransactionInputDto input, Duration lookback, CustomerHistoryLoader historyLoader) {
+        this(input, null, null, lookback, historyLoader);
+    }
+
+    public EvaluationContext(TransactionInputDto input, AccountSnapshot fromAccount, AccountSnapshot toAccount,
+                             Duration lookback, CustomerHistoryLoader historyLoader) {
+        this.input = input;
+        this.customerId = parseCustomerId(input.getCustomerId());
+        this.now = LocalDateTime.now();
+        this.lookback = lookback;
+        this.historyLoader = historyLoader;
+        this.liveAggregates = true;
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.openingBalances = null;
+    }
+
+    /**
+     * A context evaluated as of {@code now} over an already loaded history, e.g. one
+     * shared by all transactions of a customer in a batch.
+     */
+    public EvaluationContext(TransactionInputDto input, CustomerHistory history, LocalDateTime now) {
+        this(input, history, now, true);
+    }
+
+    /**
+     * @param liveAggregates false when {@code now} is in the past (backtests): the in-memory
+     *                       window, sketch and counterparty stores only know the present, so
+     *                       evaluators must answer from {@code history} instead
+     */
+    public EvaluationContext(TransactionInputDto input, CustomerHistory history, LocalDateTime now, boolean liveAggregates) {
+        this(input, history, now, liveAggregates, new OpeningBalances());
+    }
+
+    /**
+     * @param openingBalances shared by every context of the same run, so each account's
+     *                        ledger opening is looked up once
+     */
+    public EvaluationContext(TransactionInputDto input, CustomerHistory history, LocalDateTime now, boolean liveAggregates,
+                             OpeningBalances openingBalances) {
+        this.input = input;
+        this.customerId = parseCustomerId(input.getCustomerId());
+        this.now = now;
+        this.lookback = Duration.ZERO;
+        this.historyLoader = null;
+        this.history = history;
+        this.liveAggregates = liveAggregates;
+        this.fromAccount = null;
+        this.toAccount = null;
+        this.openingBalances = openingBalances;
+    }
+
+    public TransactionInputDto getInput() {
+        return input;
+    }
+
+    /** The numeric customer id, or null if the input does not carry one. */
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public LocalDateTime getNow() {
+        return now;
+    }
+
+    public AccountSnapshot getFromAccount() {
+        return fromAccount;
+    }
+
+    public AccountSnapshot getToAccount() {
+        return toAccount;
+    }
+
+    /** The snapshot of the given account if the caller supplied it, otherwise null. */
+    public AccountSnapshot account(String accountNumber) {
+        if (accountNumber == null) {
+            return null;
+        }
+        if (fromAccount != null && accountNumber.equals(fromAccount.getAccountNumber())) {
+            return fromAccount;
+        }
+        if (toAccount != null && accountNumber.equals(toAccount.getAccountNumber())) {
+            return toAccount;
+        }
+        return null;
+    }
+
+    /** The run's memo of ledger openings; null for live screening, which reads current balances. */
+    public OpeningBalances openingBalances() {
+        return openingBalances;
+    }
+
+    /** Whether evaluators may consult the live in-memory aggregates rather than {@link #history()}. */
+    public boolean usesLiveAggregates() {
+        return liveAggregates;
+    }
+
+    /** The description normalized for keyword matching, computed on first use. */
+    public NormalizedText text() {
+        NormalizedText t = text;
+        if (t == null) {
+            t = NormalizedText.of(input.getText());
+            text = t;
+        }
+        return t;
+    }
+
+    public CustomerHistory history() {
+        CustomerHistory h = history;
+        if (h == null) {
+            synchronized (this) {
+                h = history;
+                if (h == null) {
+                    h = customerId == null
+                            ? CustomerHistory.empty()
+                            : historyLoader.load(customerId, now.minus(lookback));
+                    history = h;
+                }
+            }
+        }
+        return h;
+    }
+
+    private static Long parseCustomerId(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.tss.aml.service.rules;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fuzzy lookup of keyword forms within a bounded Levenshtein distance, using symmetric
+ * deletes: every string reachable from a keyword by deleting up to its allowed distance of
+ * characters is hashed into a sorted table. A query generates its own deletes and looks each
+ * one up, so the cost depends on the query length and distance, not on the number of
+ * keywords. Candidates are confirmed with an exact distance check, which also discards hash
+ * collisions. Built once per keyword snapshot and read-only afterwards.
+ */
+final class FuzzyKeywordDictionary {
+
+    interface MatchHandler {
+        void onMatch(int keyword, int distance);
+    }
+
+    // delete hashes, sorted, with the keyword each came from
+    private final long[] hashes;
+    private final int[] owners;
+    // indexed by keyword id; null for keywords that are not fuzzy
+    private final String[] forms;
+    private final int[] maxDistances;
+    private final int size;
+    private final int minLength;
+    private final int maxLength;
+
+    private FuzzyKeywordDictionary(long[] hashes, int[] owners, String[] forms, int[] maxDistances,
+                                   int size, int minLength, int maxLength) {
+        this.hashes = hashes;
+        this.owners = owners;
+        this.forms = forms;
+        this.maxDistances = maxDistances;
+        this.size = size;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    static final class Builder {
+        private final String[] forms;
+        private final int[] maxDistances;
+        private long[] hashes = new long[256];
+        private int[] owners = new int[256];
+        private int entries;
+        private int size;
+        private int minLength = Integer.MAX_VALUE;
+        private int maxLength;
+
+        Builder(int keywordCount) {
+            forms = new String[keywordCount];
+            maxDistances = new int[keywordCount];
+        }
+
+        Builder add(String form, int keyword, int maxDistance) {
+            if (form.isEmpty()) {
+                return this;
+            }
+            forms[keyword] = form;
+            maxDistances[keyword] = maxDistance;
+            size++;
+            minLength = Math.min(minLength, form.length());
+            maxLength = Math.max(maxLength, form.length());
+            for (String delete : deletes(form, maxDistance)) {
+                if (entries == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, entries * 2);
+                    owners = Arrays.copyOf(owners, entries * 2);
+                }
+                hashes[entries] = hash(delete);
+                owners[entries] = keyword;
+                entries++;
+            }
+            return this;
+        }
+
+        FuzzyKeywordDictionary build() {
+            Integer[] order = new Integer[entries];
+            for (int i = 0; i < entries; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+            long[] sortedHashes = new long[entries];
+            int[] sortedOwners = new int[entries];
+            for (int i = 0; i < entries; i++) {
+                sortedHashes[i] = hashes[order[i]];
+                sortedOwners[i] = owners[order[i]];
+            }
+            return new FuzzyKeywordDictionary(sortedHashes, sortedOwners, forms, maxDistances,
+                    size, size == 0 ? 0 : minLength, maxLength);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Reports every keyword whose form is within its own allowed distance of {@code word};
+     * {@code maxDistance} is the largest allowed distance of any keyword.
+     */
+    void search(String word, int maxDistance, MatchHandler handler) {
+        if (size == 0 || word.length() + maxDistance < minLength || word.length() - maxDistance > maxLength) {
+            return;
+        }
+        BitSet checked = new BitSet(forms.length);
+        int[] skipped = new int[Math.min(maxDistance, word.length())];
+        lookupDeletes(word, skipped, 0, 0, checked, handler);
+    }
+
+    // hashes the deletes of word in place: every combination of up to skipped.length positions
+    private void lookupDeletes(String word, int[] skipped, int depth, int from, BitSet checked, MatchHandler handler) {
+        lookup(word, hashWithout(word, skipped, depth), checked, handler);
+        if (depth == skipped.length) {
+            return;
+        }
+        for (int i = from; i < word.length(); i++) {
+            skipped[depth] = i;
+            lookupDeletes(word, skipped, depth + 1, i + 1, checked, handler);
+        }
+    }
+
+    private void lookup(String word, long h, BitSet checked, MatchHandler handler) {
+        int i = Arrays.binarySearch(hashes, h);
+        if (i < 0) {
+            return;
+        }
+        while (i > 0 && hashes[i - 1] == h) {
+            i--;
+        }
+        for (; i < hashes.length && hashes[i] == h; i++) {
+            int keyword = owners[i];
+            if (checked.get(keyword)) {
+                continue;
+            }
+            checked.set(keyword);
+            int allowed = maxDistances[keyword];
+            int d = distance(word, forms[keyword], allowed);
+            if (d <= allowed) {
+                handler.onMatch(keyword, d);
+            }
+        }
+    }
+
+    /** The word itself and every string obtained by deleting up to {@code distance} characters. */
+    static Set<String> deletes(String word, int distance) {
+        Set<String> all = new HashSet<>();
+        all.add(word);
+        Set<String> level = Set.of(word);
+        for (int d = 0; d < distance; d++) {
+            Set<String> next = new HashSet<>();
+            for (String s : level) {
+                for (int i = 0; i < s.length(); i++) {
+                    String shorter = s.substring(0, i) + s.substring(i + 1);
+                    if (all.add(shorter)) {
+                        next.add(shorter);
+                    }
+                }
+            }
+            level = next;
+        }
+        return all;
+    }
+
+    // 64-bit FNV-1a
+    static long hash(String s) {
+        return hashWithout(s, null, 0);
+    }
+
+    /** {@link #hash} of {@code s} without the characters at the first {@code count} (ascending) positions of {@code skipped}. */
+    private static long hashWithout(String s, int[] skipped, int count) {
+        long h = 0xcbf29ce484222325L;
+        int next = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (next < count && skipped[next] == i) {
+                next++;
+                continue;
+            }
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Levenshtein distance, or {@code bound + 1} as soon as it is known to exceed {@code bound}. */
+    static int distance(String a, String b, int bound) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return bound + 1;
+        }
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] t = prev;
+            prev = curr;
+            curr = t;
+        }
+        return prev[b.length()];
+    }
+}
@@ -0,0 +1,127 @@
+package com.tss.aml.service.rules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed set of patterns. Matching walks the text once and
+ * reports every occurrence of every pattern, independent of how many patterns there are.
+ * Immutable once built; safe to share between threads.
+ */
+final class KeywordAutomaton {
+
+    interface MatchHandler {
+        /** Called for each occurrence; {@code end} is exclusive. */
+        void onMatch(int pattern, int end);
+    }
+
+    // per node: sorted transition labels and their target nodes
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    // nearest node on the failure chain that ends a pattern, or -1
+    private final int[] outputLink;
+    // patterns ending exactly at a node
+    private final int[][] outputs;
+    private final int[] lengths;
+
+    KeywordAutomaton(List<String> patterns) {
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(new ArrayList<>(0));
+        lengths = new int[patterns.size()];
+
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            lengths[p] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    ends.add(new ArrayList<>(0));
+                    children.get(node).put(pattern.charAt(i), next);
+                }
+                node = next;
+            }
+            ends.get(node).add(p);
+        }
+
+        int size = children.size();
+        labels = new char[size][];
+        targets = new int[size][];
+        outputs = new int[size][];
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> edges = children.get(n);
+            labels[n] = new char[edges.size()];
+            targets[n] = new int[edges.size()];
+            int i = 0;
+            for (var edge : edges.entrySet()) {
+                labels[n][i] = edge.getKey();
+                targets[n][i] = edge.getValue();
+                i++;
+            }
+            outputs[n] = ends.get(n).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        fail = new int[size];
+        outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                char c = labels[node][i];
+                int child = targets[node][i];
+                int f = fail[node];
+                int next;
+                while ((next = step(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 ? 0 : next;
+                int target = fail[child];
+                outputLink[child] = outputs[target].length > 0 ? target : outputLink[target];
+                queue.add(child);
+            }
+        }
+    }
+
+    int patternLength(int pattern) {
+        return lengths[pattern];
+    }
+
+    /** Scans {@code text} and reports every pattern occurrence to {@code handler}. */
+    void scan(CharSequence text, MatchHandler handler) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next < 0 ? 0 : next;
+            for (int out = outputs[node].length > 0 ? node : outputLink[node]; out >= 0; out = outputLink[out]) {
+                for (int pattern : outputs[out]) {
+                    handler.onMatch(pattern, i + 1);
+                }
+            }
+        }
+    }
+
+    private int step(int node, char c) {
+        int i = Arrays.binarySearch(labels[node], c);
+        return i >= 0 ? targets[node][i] : -1;
+    }
+}
@@ -0,0 +1,303 @@
+package com.tss.aml.service.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tss.aml.entity.SuspiciousKeyword;
+import com.tss.aml.repository.SuspiciousKeywordRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * In-memory matcher for the active suspicious keywords. All keywords are compiled into one
+ * {@link KeywordAutomaton}, so a description is matched in a single pass over its text;
+ * {@code caseSensitive} and {@code wholeWordOnly} are checked on each hit.
+ * <p>
+ * Keywords marked {@code fuzzyMatch} are also looked up in a {@link FuzzyKeywordDictionary} to catch
+ * obfuscated spellings ("w3apon", "off-shore", "cr ypto"): leetspeak digits and symbols are
+ * mapped to letters, separators dropped, and each description token, alone and joined with
+ * its next neighbours, is matched within an edit distance configured per risk level.
+ * <p>
+ * Keyword changes call {@link #refresh()}, which swaps in a complete snapshot once the
+ * change has committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeywordIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordIndex.class);
+
+    private final SuspiciousKeywordRepository suspiciousKeywordRepository;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    // edit distance allowed for fuzzy keywords of each risk level
+    @Value("${aml.keywords.fuzzy.distance.critical:2}")
+    private int criticalDistance = 2;
+
+    @Value("${aml.keywords.fuzzy.distance.high:2}")
+    private int highDistance = 2;
+
+    @Value("${aml.keywords.fuzzy.distance.medium:1}")
+    private int mediumDistance = 1;
+
+    @Value("${aml.keywords.fuzzy.distance.low:1}")
+    private int lowDistance = 1;
+
+    // shorter fuzzy keywords must match exactly after normalization
+    @Value("${aml.keywords.fuzzy.min-length:5}")
+    private int fuzzyMinLength = 5;
+
+    // adjacent description tokens joined to catch split words ("cr ypto")
+    @Value("${aml.keywords.fuzzy.max-joined-tokens:3}")
+    private int maxJoinedTokens = 3;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the active keywords. Inside a transaction the rebuild runs
+     * after commit so it sees the change; a rolled-back change leaves the index as it was.
+     */
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        List<SuspiciousKeyword> rows = suspiciousKeywordRepository.findByIsActiveTrueOrderByRiskScoreDesc();
+        Snapshot snapshot = new Snapshot(versions.incrementAndGet(), rows, this::fuzzyDistance, Math.max(1, maxJoinedTokens));
+        current.set(snapshot);
+        log.info("Keyword index built with {} active keywords ({} fuzzy)", rows.size(), snapshot.fuzzyCount());
+    }
+
+    /** Active keywords found in {@code text}, each once, ordered by risk score (highest first). */
+    public List<SuspiciousKeyword> match(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Snapshot s = snapshot();
+        BitSet hits = s.matches(text);
+        List<SuspiciousKeyword> matched = new ArrayList<>(hits.cardinality());
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            matched.add(s.keywords[i]);
+        }
+        return matched;
+    }
+
+    public int size() {
+        return snapshot().keywords.length;
+    }
+
+    /** Changes whenever the snapshot is rebuilt; results cached against an older version are stale. */
+    public long version() {
+        return snapshot().version;
+    }
+
+    private int fuzzyDistance(SuspiciousKeyword keyword, String form) {
+        if (form.length() < fuzzyMinLength) {
+            return 0;
+        }
+        SuspiciousKeyword.RiskLevel level = keyword.getRiskLevel() != null
+                ? keyword.getRiskLevel()
+                : SuspiciousKeyword.RiskLevel.fromScore(keyword.getRiskScore() != null ? keyword.getRiskScore() : 0);
+        int maxScore = level.getMaxScore();
+        int distance = maxScore > 75 ? criticalDistance : maxScore > 50 ? highDistance : maxScore > 25 ? mediumDistance : lowDistance;
+        return Math.max(0, distance);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = current.get();
+        if (s == null) {
+            rebuild();
+            s = current.get();
+        }
+        return s;
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /** Same rule as the regex {@code \b}: word and non-word characters on either side. */
+    static boolean isBoundary(CharSequence text, int index) {
+        boolean before = index > 0 && isWordChar(text.charAt(index - 1));
+        boolean after = index < text.length() && isWordChar(text.charAt(index));
+        return before != after;
+    }
+
+    interface FuzzyDistance {
+        int allowed(SuspiciousKeyword keyword, String form);
+    }
+
+    private static final class Snapshot {
+        final long version;
+        // detached copies, in risk score order; the index into this array is the pattern id
+        final SuspiciousKeyword[] keywords;
+        final KeywordAutomaton automaton;
+        // null when no keyword is fuzzy
+        final FuzzyKeywordDictionary fuzzy;
+        final int maxFuzzyDistance;
+        final int maxJoinedTokens;
+
+        Snapshot(long version, List<SuspiciousKeyword> rows, FuzzyDistance distances, int maxJoinedTokens) {
+            this.version = version;
+            keywords = new SuspiciousKeyword[rows.size()];
+            List<String> patterns = new ArrayList<>(rows.size());
+            FuzzyKeywordDictionary.Builder dictionary = new FuzzyKeywordDictionary.Builder(rows.size());
+            int maxDistance = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                keywords[i] = copyOf(rows.get(i));
+                patterns.add(lowerCase(keywords[i].getKeyword()));
+                if (keywords[i].isFuzzyMatch()) {
+                    String form = fuzzyForm(keywords[i].getKeyword());
+                    int allowed = distances.allowed(keywords[i], form);
+                    maxDistance = Math.max(maxDistance, allowed);
+                    dictionary.add(form, i, allowed);
+                }
+            }
+            automaton = new KeywordAutomaton(patterns);
+            FuzzyKeywordDictionary built = dictionary.build();
+            fuzzy = built.isEmpty() ? null : built;
+            maxFuzzyDistance = maxDistance;
+            this.maxJoinedTokens = maxJoinedTokens;
+        }
+
+        int fuzzyCount() {
+            return fuzzy != null ? fuzzy.size() : 0;
+        }
+
+        BitSet matches(String text) {
+            BitSet hits = new BitSet(keywords.length);
+            automaton.scan(lowerCase(text), (pattern, end) -> {
+                if (hits.get(pattern)) {
+                    return;
+                }
+                SuspiciousKeyword keyword = keywords[pattern];
+                int start = end - automaton.patternLength(pattern);
+                if (keyword.isCaseSensitive() && !text.startsWith(keyword.getKeyword(), start)) {
+                    return;
+                }
+                if (keyword.isWholeWordOnly() && !(isBoundary(text, start) && isBoundary(text, end))) {
+                    return;
+                }
+                hits.set(pattern);
+            });
+            if (fuzzy != null) {
+                matchFuzzy(text, hits);
+            }
+            return hits;
+        }
+
+        private void matchFuzzy(String text, BitSet hits) {
+            List<String> tokens = fuzzyTokens(text);
+            int maxLength = fuzzy.maxLength() + maxFuzzyDistance;
+            StringBuilder candidate = new StringBuilder();
+            for (int i = 0; i < tokens.size(); i++) {
+                candidate.setLength(0);
+                for (int j = i; j < tokens.size() && j < i + maxJoinedTokens; j++) {
+                    candidate.append(tokens.get(j));
+                    if (candidate.length() > maxLength) {
+                        break;
+                    }
+                    fuzzy.search(candidate.toString(), maxFuzzyDistance, (keyword, distance) -> hits.set(keyword));
+                }
+            }
+        }
+
+        private static SuspiciousKeyword copyOf(SuspiciousKeyword row) {
+            return SuspiciousKeyword.builder()
+                    .id(row.getId())
+                    .keyword(row.getKeyword() != null ? row.getKeyword() : "")
+                    .riskLevel(row.getRiskLevel())
+                    .riskScore(row.getRiskScore())
+                    .category(row.getCategory())
+                    .description(row.getDescription())
+                    .isActive(row.isActive())
+                    .caseSensitive(row.isCaseSensitive())
+                    .wholeWordOnly(row.isWholeWordOnly())
+                    .fuzzyMatch(row.isFuzzyMatch())
+                    .createdBy(row.getCreatedBy())
+                    .updatedBy(row.getUpdatedBy())
+                    .createdAt(row.getCreatedAt())
+                    .updatedAt(row.getUpdatedAt())
+                    .build();
+        }
+    }
+
+    /** A keyword in fuzzy form: leetspeak mapped, lower case, separators removed. */
+    static String fuzzyForm(String keyword) {
+        return String.join("", fuzzyTokens(keyword));
+    }
+
+    /**
+     * Splits text into lower-case tokens with leetspeak digits and symbols mapped to letters
+     * ("w3ap0n" becomes "weapon"). Tokens without any letter are numbers, not obfuscated
+     * words, and are left out.
+     */
+    static List<String> fuzzyTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean hasLetter = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            char mapped = unLeet(c);
+            if (Character.isLetterOrDigit(mapped)) {
+                token.append(mapped);
+                hasLetter |= Character.isLetter(c);
+            } else {
+                if (hasLetter) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+                hasLetter = false;
+            }
+        }
+        return tokens;
+    }
+
+    private static char unLeet(char c) {
+        return switch (c) {
+            case '0' -> 'o';
+            case '1' -> 'i';
+            case '3' -> 'e';
+            case '4', '@' -> 'a';
+            case '5', '$' -> 's';
+            case '7' -> 't';
+            case '8' -> 'b';
+            default -> c;
+        };
+    }
+
+    /** Per-character lower case, so offsets in the result line up with the original text. */
+    static String lowerCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
@@ -4,7 +4,6 @@ import java.util.regex.Pattern;
 
 import org.springframework.stereotype.Component;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,46 +13,88 @@ public class KeywordMatchEvaluator implements RuleEvaluator {
 
     private static final Logger log = LoggerFactory.getLogger(KeywordMatchEvaluator.class);
 
+    // condition.value = keyword (matched case-insensitively against the normalized description,
+    //   see NormalizedText)
+    // condition.operator selects the match mode:
+    //   ">" whole word, ">=" contains, "==" equals, "<=" contains/starts/ends, "<" does not contain;
+    //   anything else falls back to whole word
+    enum Mode { WHOLE_WORD, CONTAINS, EQUALS, CONTAINS_OR_EDGE, NOT_CONTAINS }
+
+    private static final Pattern WORDS = Pattern.compile("[a-z0-9]+( [a-z0-9]+)*");
+
+    static final class Params implements ConditionParams {
+        final Mode mode;
+        final String keyword;
+        // whole-word lookups: a single token, a space-padded phrase, or a regex for keywords
+        // with other characters
+        final boolean singleToken;
+        final String paddedPhrase;
+        final Pattern wholeWord;
+
+        Params(Mode mode, String keyword) {
+            this.mode = mode;
+            this.keyword = keyword;
+            boolean words = WORDS.matcher(keyword).matches();
+            this.singleToken = words && keyword.indexOf(' ') < 0;
+            this.paddedPhrase = words ? " " + keyword + " " : null;
+            this.wholeWord = words ? null : Pattern.compile("\\b" + Pattern.quote(keyword) + "\\b");
+        }
+
+        boolean matchesWholeWord(NormalizedText text) {
+            if (singleToken) {
+                return text.hasToken(keyword);
+            }
+            if (paddedPhrase != null) {
+                return text.containsPhrase(paddedPhrase);
+            }
+            return wholeWord.matcher(text.text()).find();
+        }
+    }
+
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
-        String cleanText = input.getText() != null ? cleanForMatching(input.getText()) : "";
-        if (cleanText.isEmpty()) {
-            log.debug("KeywordMatchEvaluator: Empty text, returning false");
-            return false;
+    public ConditionParams compile(RuleCondition condition) {
+        if (condition.getValue() == null || condition.getValue().isEmpty()) {
+            throw new IllegalArgumentException("KEYWORD_MATCH requires a keyword value");
         }
-        
-        String keyword = condition.getValue().toLowerCase();
         String operator = condition.getOperator();
-        
-        boolean result = false;
+        Mode mode;
         if (">".equals(operator)) {
-            result = containsWholeWord(cleanText, keyword);
+            mode = Mode.WHOLE_WORD;
         } else if (">=".equals(operator)) {
-            result = cleanText.contains(keyword);
+            mode = Mode.CONTAINS;
         } else if ("==".equals(operator)) {
-            result = cleanText.equals(keyword);
+            mode = Mode.EQUALS;
         } else if ("<=".equals(operator)) {
-            result = cleanText.contains(keyword) || cleanText.startsWith(keyword) || cleanText.endsWith(keyword);
+            mode = Mode.CONTAINS_OR_EDGE;
         } else if ("<".equals(operator)) {
-            result = !cleanText.contains(keyword);
+            mode = Mode.NOT_CONTAINS;
         } else {
-            result = containsWholeWord(cleanText, keyword);
+            mode = Mode.WHOLE_WORD;
         }
-        
-        log.debug("KeywordMatchEvaluator: '{}' {} '{}' = {}", cleanText, operator, keyword, result);
-        return result;
-    }
-
-    private String cleanForMatching(String text) {
-        return text.toLowerCase()
-                   .replaceAll("[^a-z0-9\\s]", " ")
-                   .trim()
-                   .replaceAll("\\s+", " ");
+        return new Params(mode, condition.getValue().toLowerCase());
     }
 
-    private boolean containsWholeWord(String text, String word) {
-        String pattern = "\\b" + Pattern.quote(word) + "\\b";
-        return Pattern.compile(pattern).matcher(text).find();
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        NormalizedText text = context.text();
+        if (text.isEmpty()) {
+            log.debug("KeywordMatchEvaluator: Empty text, returning false");
+            return false;
+        }
+        
+        Params params = condition.params(Params.class);
+        String keyword = params.keyword;
+        
+        String cleanText = text.text();
+        boolean result = switch (params.mode) {
+            case WHOLE_WORD -> params.matchesWholeWord(text);
+            case CONTAINS -> cleanText.contains(keyword);
+            case EQUALS -> cleanText.equals(keyword);
+            case CONTAINS_OR_EDGE -> cleanText.contains(keyword) || cleanText.startsWith(keyword) || cleanText.endsWith(keyword);
+            case NOT_CONTAINS -> !cleanText.contains(keyword);
+        };
+        
+        log.debug("KeywordMatchEvaluator: '{}' {} '{}' = {}", cleanText, condition.getOperator(), keyword, result);
+        return result;
     }
 }
-
@@ -0,0 +1,189 @@
+package com.tss.aml.service.rules;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bounded LRU of keyword risk scores by normalized description, for the many descriptions
+ * that repeat verbatim ("salary", "rent", invoice templates). Each entry carries the
+ * {@link KeywordIndex#version()} it was computed against; an entry from an older keyword
+ * set is treated as a miss, so keyword changes take effect immediately.
+ * The map is split into independently locked segments to keep contention low.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeywordScoreCache {
+
+    private static final int SEGMENTS = 16;
+    // rough per-entry overhead: map node, key String header, entry object
+    private static final int ENTRY_OVERHEAD_BYTES = 120;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aml.keywords.score-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aml.keywords.score-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private Segment[] segments;
+    private final AtomicLong bytes = new AtomicLong();
+    private Counter hits;
+    private Counter misses;
+
+    public static final class Entry {
+        private final long version;
+        private final int score;
+        private final long[] keywordIds;
+
+        Entry(long version, int score, long[] keywordIds) {
+            this.version = version;
+            this.score = score;
+            this.keywordIds = keywordIds;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long[] getKeywordIds() {
+            return keywordIds;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                bytes.addAndGet(-sizeOf(eldest.getKey(), eldest.getValue()));
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        hits = Counter.builder("aml.keywords.score_cache")
+                .description("Keyword risk scores answered from the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("aml.keywords.score_cache")
+                .description("Keyword risk scores computed because the description was not cached")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("aml.keywords.score_cache.hit_ratio", this, KeywordScoreCache::hitRatio)
+                .description("Share of keyword risk score lookups answered from the cache")
+                .register(meterRegistry);
+        Gauge.builder("aml.keywords.score_cache.size", this, KeywordScoreCache::size)
+                .description("Cached keyword risk scores")
+                .register(meterRegistry);
+        Gauge.builder("aml.keywords.score_cache.memory", bytes, AtomicLong::get)
+                .description("Estimated heap used by cached keyword risk scores")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /** Trimmed, with runs of whitespace collapsed; case and punctuation matter to keyword matching and are kept. */
+    public static String normalize(String description) {
+        String trimmed = description.strip();
+        StringBuilder out = null;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            boolean space = Character.isWhitespace(c);
+            boolean collapse = space && (c != ' ' || (i > 0 && Character.isWhitespace(trimmed.charAt(i - 1))));
+            if (collapse && out == null) {
+                out = new StringBuilder(trimmed.length());
+                out.append(trimmed, 0, i);
+            }
+            if (out != null) {
+                if (!space) {
+                    out.append(c);
+                } else if (out.charAt(out.length() - 1) != ' ') {
+                    out.append(' ');
+                }
+            }
+        }
+        return out != null ? out.toString() : trimmed;
+    }
+
+    /** The cached score for a normalized description, or null if absent or computed for another keyword set. */
+    public Entry get(String normalized, long version) {
+        if (!enabled) {
+            return null;
+        }
+        Segment segment = segmentFor(normalized);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(normalized);
+            if (entry != null && entry.version != version) {
+                segment.remove(normalized);
+                bytes.addAndGet(-sizeOf(normalized, entry));
+                entry = null;
+            }
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    public void put(String normalized, long version, int score, long[] keywordIds) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(version, score, keywordIds);
+        Segment segment = segmentFor(normalized);
+        synchronized (segment) {
+            Entry previous = segment.put(normalized, entry);
+            if (previous != null) {
+                bytes.addAndGet(-sizeOf(normalized, previous));
+            }
+            bytes.addAndGet(sizeOf(normalized, entry));
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static long sizeOf(String key, Entry entry) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 8L * entry.keywordIds.length;
+    }
+}
@@ -0,0 +1,155 @@
+package com.tss.aml.service.rules;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tss.aml.entity.Transaction;
+import com.tss.aml.repository.KnownCounterpartyRepository;
+import com.tss.aml.util.BloomFilter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Answers "has this customer sent to this account recently" for NEW_COUNTERPARTY.
+ * Backed by the known_counterparty table, with an in-memory Bloom filter in front
+ * so pairs that were never seen are answered without touching the database.
+ * <p>
+ * The filter learns pairs recorded by this instance immediately and pairs recorded by other
+ * instances at the next refresh ({@code bloom-refresh-ms}), which reloads every pair seen
+ * since the previous refresh, less {@code bloom-refresh-overlap-ms} for late commits. With
+ * several instances a pair first recorded elsewhere can therefore read as new for up to one
+ * refresh interval. If refreshes stop (two intervals without one), a negative answer from
+ * the filter is no longer trusted and every lookup goes to the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class KnownCounterpartyIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(KnownCounterpartyIndex.class);
+
+    private final KnownCounterpartyRepository knownCounterpartyRepository;
+
+    @Value("${aml.rules.counterparty.index-enabled:true}")
+    private boolean enabled;
+
+    @Value("${aml.rules.counterparty.bloom-expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${aml.rules.counterparty.bloom-false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${aml.rules.counterparty.bloom-refresh-ms:30000}")
+    private long refreshMs;
+
+    @Value("${aml.rules.counterparty.bloom-refresh-overlap-ms:300000}")
+    private long refreshOverlapMs;
+
+    private volatile BloomFilter bloom;
+    private volatile boolean bloomReady;
+    // last_seen bound for the next refresh, and when the filter last caught up with the table
+    private volatile LocalDateTime refreshedFrom;
+    private volatile long refreshedAtMillis;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Backfills the table from transaction history when it is empty, then loads every
+     * known pair into the Bloom filter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        bloom = new BloomFilter(expectedInsertions, falsePositiveRate);
+        if (knownCounterpartyRepository.count() == 0) {
+            int rows = knownCounterpartyRepository.backfillFromTransactions();
+            log.info("Known counterparty index backfilled with {} rows", rows);
+        }
+        LocalDateTime started = LocalDateTime.now();
+        List<Object[]> keys = knownCounterpartyRepository.findAllKeys();
+        putAll(keys);
+        refreshedFrom = started;
+        refreshedAtMillis = System.currentTimeMillis();
+        bloomReady = true;
+        log.info("Known counterparty Bloom filter loaded with {} pairs", keys.size());
+    }
+
+    /** Adds pairs recorded since the last refresh, including those recorded by other instances. */
+    @Scheduled(fixedDelayString = "${aml.rules.counterparty.bloom-refresh-ms:30000}",
+               initialDelayString = "${aml.rules.counterparty.bloom-refresh-ms:30000}")
+    public void refresh() {
+        if (!enabled || !bloomReady) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        List<Object[]> keys = knownCounterpartyRepository.findKeysSeenSince(refreshedFrom.minus(Duration.ofMillis(refreshOverlapMs)));
+        putAll(keys);
+        refreshedFrom = started;
+        refreshedAtMillis = System.currentTimeMillis();
+        log.debug("Known counterparty Bloom filter refreshed with {} recent pairs", keys.size());
+    }
+
+    private void putAll(List<Object[]> keys) {
+        for (Object[] key : keys) {
+            bloom.put(key((Long) key[0], (String) key[1], (Transaction.TransactionType) key[2]));
+        }
+    }
+
+    /**
+     * True if the customer sent any of the given transaction types to the counterparty
+     * after the given instant.
+     */
+    public boolean seenSince(Long customerId, String counterparty, List<Transaction.TransactionType> types, LocalDateTime after) {
+        if (bloomReady && System.currentTimeMillis() - refreshedAtMillis <= 2 * refreshMs) {
+            boolean maybe = false;
+            for (Transaction.TransactionType type : types) {
+                if (bloom.mightContain(key(customerId, counterparty, type))) {
+                    maybe = true;
+                    break;
+                }
+            }
+            if (!maybe) {
+                return false;
+            }
+        }
+        return knownCounterpartyRepository.existsByCustomerIdAndCounterpartyAndTransactionTypeInAndLastSeenAfter(
+                customerId, counterparty, types, after);
+    }
+
+    /**
+     * Records the transaction's counterparty. Runs in the caller's transaction, so the
+     * row is rolled back with it; a pair left in the filter by a rollback only costs a
+     * database check.
+     */
+    @Transactional
+    public void record(Transaction tx) {
+        if (!enabled || tx.getCustomerId() == null || tx.getToAccountNumber() == null
+                || tx.getToAccountNumber().isEmpty() || tx.getTransactionType() == null) {
+            return;
+        }
+        LocalDateTime seenAt = tx.getCreatedAt() != null ? tx.getCreatedAt() : LocalDateTime.now();
+        knownCounterpartyRepository.upsert(tx.getCustomerId(), tx.getToAccountNumber(), tx.getTransactionType().name(), seenAt);
+        BloomFilter current = bloom;
+        if (current != null) {
+            current.put(key(tx.getCustomerId(), tx.getToAccountNumber(), tx.getTransactionType()));
+        }
+    }
+
+    private static String key(Long customerId, String counterparty, Transaction.TransactionType type) {
+        return customerId + "|" + counterparty + "|" + type.name();
+    }
+}
@@ -1,18 +1,16 @@
 package com.tss.aml.service.rules;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
 import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.Transaction;
-import com.tss.aml.repository.TransactionRepository;
 
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -22,7 +20,9 @@ import org.slf4j.LoggerFactory;
 @RequiredArgsConstructor
 public class NewCounterpartyEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    private static final List<Transaction.TransactionType> ANY_TYPES = Arrays.asList(Transaction.TransactionType.values());
+
+    private final KnownCounterpartyIndex knownCounterpartyIndex;
     private static final Logger log = LoggerFactory.getLogger(NewCounterpartyEvaluator.class);
 
     // condition.type = NEW_COUNTERPARTY
@@ -30,61 +30,77 @@ public class NewCounterpartyEvaluator implements RuleEvaluator {
     // condition.operator applied to amount comparison (>=)
     // condition.value = "lookbackDays|minAmount|transactionTypes"
     //   e.g. "30|50000|TRANSFER" or "30|25000|DEPOSIT,TRANSFER"
+    static final class Params implements ConditionParams {
+        final int lookbackDays;
+        final BigDecimal minAmount;
+        final List<Transaction.TransactionType> types;
+
+        Params(int lookbackDays, BigDecimal minAmount, List<Transaction.TransactionType> types) {
+            this.lookbackDays = lookbackDays;
+            this.minAmount = minAmount;
+            this.types = types;
+        }
+
+        @Override
+        public Duration lookback() {
+            return Duration.ofDays(lookbackDays);
+        }
+    }
+
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
+    public ConditionParams compile(RuleCondition condition) {
+        String[] parts = ConditionValues.split(condition.getValue(), 3, "lookbackDays|minAmount|transactionTypes");
+        return new Params(
+                ConditionValues.integer(parts[0], "lookbackDays"),
+                ConditionValues.decimal(parts[1], "minAmount"),
+                ConditionValues.types(parts[2], ANY_TYPES));
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        TransactionInputDto input = context.getInput();
+        Params params = condition.params(Params.class);
         try {
             if (input.getToAccountNumber() == null || input.getToAccountNumber().isEmpty()) {
                 log.debug("NewCounterpartyEvaluator: toAccountNumber missing, returning false");
                 return false;
             }
-            String[] parts = condition.getValue().split("\\|");
-            if (parts.length < 3) {
-                log.debug("NewCounterpartyEvaluator: invalid value format: {}", condition.getValue());
+
+            if (input.getAmount().compareTo(params.minAmount) < 0) {
                 return false;
             }
-            int lookbackDays = Integer.parseInt(parts[0].trim());
-            BigDecimal minAmount = new BigDecimal(parts[1].trim());
-            String typesStr = parts[2].trim().toUpperCase(Locale.ROOT);
 
-            if (input.getAmount().compareTo(minAmount) < 0) {
+            Long customerId = context.getCustomerId();
+            if (customerId == null) {
                 return false;
             }
+            LocalDateTime after = context.getNow().minusDays(params.lookbackDays);
 
-            Long customerId = Long.parseLong(input.getCustomerId());
-            LocalDateTime after = LocalDateTime.now().minusDays(lookbackDays);
-
-            List<Transaction.TransactionType> types;
-            if ("ANY".equals(typesStr)) {
-                types = Arrays.asList(Transaction.TransactionType.values());
+            long priorCount;
+            if (context.usesLiveAggregates() && knownCounterpartyIndex.isEnabled()) {
+                priorCount = knownCounterpartyIndex.seenSince(customerId, input.getToAccountNumber(), params.types, after) ? 1 : 0;
             } else {
-                types = Arrays.stream(typesStr.split(","))
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .map(Transaction.TransactionType::valueOf)
-                        .collect(Collectors.toList());
+                priorCount = context.history().countToCounterparty(input.getToAccountNumber(), after, params.types);
+                // the screened transaction is already persisted and must not count as a prior one
+                if (input.getTxId() != null && params.types.contains(input.getTransactionType())) {
+                    priorCount--;
+                }
             }
-
-            long priorCount = transactionRepository.countToCounterpartyInWindow(
-                    customerId,
-                    input.getToAccountNumber(),
-                    after,
-                    types
-            );
             
             log.info(
                 "Evaluating NEW_COUNTERPARTY: customerId={}, toAcc={}, after={}, types={}, priorCount={}, amount={}, minAmount={}",
                 customerId,
                 input.getToAccountNumber(),
                 after,
-                types,
+                params.types,
                 priorCount,
                 input.getAmount(),
-                minAmount
+                params.minAmount
             );
 
             boolean result = priorCount == 0;
             log.debug("NewCounterpartyEvaluator: priorCount={} (lookbackDays={}), minAmount={}, types={} => {}",
-                    priorCount, lookbackDays, minAmount, typesStr, result);
+                    priorCount, params.lookbackDays, params.minAmount, params.types, result);
             return result;
         } catch (Exception ex) {
             log.warn("NewCounterpartyEvaluator error: {}", ex.getMessage());
@@ -92,4 +108,3 @@ public class NewCounterpartyEvaluator implements RuleEvaluator {
         }
     }
 }
-
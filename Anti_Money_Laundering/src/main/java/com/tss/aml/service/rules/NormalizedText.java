@@ -0,0 +1,78 @@
+package com.tss.aml.service.rules;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A transaction description prepared for keyword conditions: lower case, every character
+ * other than {@code a-z} and {@code 0-9} treated as a separator, runs of separators collapsed
+ * to one space. Built once per transaction, together with the set of its tokens.
+ */
+public final class NormalizedText {
+
+    private static final NormalizedText EMPTY = new NormalizedText("", Set.of());
+
+    private final String text;
+    // text with a space on both sides, so whole-word lookups are a plain contains
+    private final String padded;
+    private final Set<String> tokens;
+
+    private NormalizedText(String text, Set<String> tokens) {
+        this.text = text;
+        this.padded = " " + text + " ";
+        this.tokens = tokens;
+    }
+
+    public static NormalizedText of(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return EMPTY;
+        }
+        String lower = raw.toLowerCase();
+        StringBuilder out = new StringBuilder(lower.length());
+        Set<String> tokens = new HashSet<>();
+        int tokenStart = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (tokenStart < 0) {
+                    if (out.length() > 0) {
+                        out.append(' ');
+                    }
+                    tokenStart = out.length();
+                }
+                out.append(c);
+            } else if (tokenStart >= 0) {
+                tokens.add(out.substring(tokenStart));
+                tokenStart = -1;
+            }
+        }
+        if (tokenStart >= 0) {
+            tokens.add(out.substring(tokenStart));
+        }
+        return out.length() == 0 ? EMPTY : new NormalizedText(out.toString(), tokens);
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty();
+    }
+
+    public boolean hasToken(String token) {
+        return tokens.contains(token);
+    }
+
+    /**
+     * Whether a phrase of single-space separated tokens occurs on token boundaries;
+     * {@code paddedPhrase} is the phrase with one space on each side.
+     */
+    public boolean containsPhrase(String paddedPhrase) {
+        return padded.contains(paddedPhrase);
+    }
+
+    public Set<String> tokens() {
+        return tokens;
+    }
+}
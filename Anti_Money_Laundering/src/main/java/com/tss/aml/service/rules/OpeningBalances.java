@@ -0,0 +1,40 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Where each account's ledger starts, memoized for one replay or batch run. Accounts that
+ * existed before the ledger was introduced were opened at the stored balance when the
+ * application first started with it, so the ledger cannot tell their balance at any earlier
+ * time; replays of those transactions fall back to the current balance, read once per
+ * account and run rather than once per transaction.
+ */
+public final class OpeningBalances {
+
+    private final ConcurrentMap<String, Opening> openings = new ConcurrentHashMap<>();
+
+    Opening get(String accountNumber, Function<String, Opening> loader) {
+        return openings.computeIfAbsent(accountNumber, loader);
+    }
+
+    static final class Opening {
+
+        /** As-of time of the opening snapshot, or null if the account has no ledger yet. */
+        final LocalDateTime openedAt;
+        /** The current balance, or null if the account does not exist. */
+        final BigDecimal currentBalance;
+
+        Opening(LocalDateTime openedAt, BigDecimal currentBalance) {
+            this.openedAt = openedAt;
+            this.currentBalance = currentBalance;
+        }
+
+        boolean covers(LocalDateTime at) {
+            return openedAt != null && !at.isBefore(openedAt);
+        }
+    }
+}
@@ -1,98 +1,85 @@
 package com.tss.aml.service.rules;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
-import com.tss.aml.entity.Transaction;
-import com.tss.aml.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Component("PAST_TRANSACTIONS")
-@RequiredArgsConstructor
 public class PastTransactionsEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    private static final Logger log = LoggerFactory.getLogger(PastTransactionsEvaluator.class);
 
-    @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
-        Long customerId;
-        try {
-            customerId = Long.parseLong(input.getCustomerId());
-        } catch (NumberFormatException e) {
-            return false;
+    // condition.field = "count" or "sum"
+    // condition.value = "lookbackDays|threshold", or for count just "lookbackDays" (threshold 0),
+    //   or for sum just "threshold" (lookback 30 days)
+    static final class Params implements ConditionParams {
+        final Comparison comparison;
+        final boolean count;
+        final int lookbackDays;
+        final BigDecimal threshold;
+
+        Params(Comparison comparison, boolean count, int lookbackDays, BigDecimal threshold) {
+            this.comparison = comparison;
+            this.count = count;
+            this.lookbackDays = lookbackDays;
+            this.threshold = threshold;
         }
 
-        int lookbackDays = 30; 
-        String thresholdStr = null;
+        @Override
+        public Duration lookback() {
+            return Duration.ofDays(lookbackDays);
+        }
+    }
 
-        String value = condition.getValue().trim();
+    @Override
+    public ConditionParams compile(RuleCondition condition) {
+        boolean count = "count".equalsIgnoreCase(condition.getField());
+        if (!count && !"sum".equalsIgnoreCase(condition.getField())) {
+            throw new IllegalArgumentException("PAST_TRANSACTIONS field must be 'count' or 'sum'");
+        }
+        Comparison comparison = Comparison.parse(condition.getOperator());
+        String value = condition.getValue() == null ? "" : condition.getValue().trim();
         String[] parts = value.split("\\|");
 
-        try {
-            if (parts.length == 2) {
-                lookbackDays = Integer.parseInt(parts[0].trim());
-                thresholdStr = parts[1].trim();
-            } else if ("count".equalsIgnoreCase(condition.getField())) {
-                lookbackDays = Integer.parseInt(value);
-                thresholdStr = "0"; 
-            } else if ("sum".equalsIgnoreCase(condition.getField())) {
-                thresholdStr = value;
-                lookbackDays = 30; 
-            }
-        } catch (NumberFormatException e) {
-            System.out.println("PastTransactionsEvaluator: invalid value format: " + value);
+        if (parts.length == 2) {
+            return new Params(comparison, count,
+                    ConditionValues.integer(parts[0], "lookbackDays"),
+                    ConditionValues.decimal(parts[1], "threshold"));
+        } else if (count) {
+            return new Params(comparison, true, ConditionValues.integer(value, "lookbackDays"), BigDecimal.ZERO);
+        } else {
+            return new Params(comparison, false, 30, ConditionValues.decimal(value, "threshold"));
+        }
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        Params params = condition.params(Params.class);
+        if (context.getCustomerId() == null) {
             return false;
         }
 
-        LocalDateTime lookbackTime = LocalDateTime.now().minusDays(lookbackDays);
-        List<Transaction> pastTransactions = transactionRepository
-                .findByCustomerIdAndCreatedAtAfterOrderByCreatedAtDesc(customerId, lookbackTime);
+        LocalDateTime lookbackTime = context.getNow().minusDays(params.lookbackDays);
+        CustomerHistory history = context.history();
 
-        if ("count".equalsIgnoreCase(condition.getField())) {
-            int count = pastTransactions.size();
-            boolean result = compareNumber(count, condition.getOperator(), thresholdStr);
-            System.out.printf(
-                    "PastTransactionsEvaluator (count): %d %s %s = %b (lookback: %d days)%n",
-                    count, condition.getOperator(), thresholdStr, result, lookbackDays
-            );
+        if (params.count) {
+            long count = history.countAfter(lookbackTime, null, null);
+            boolean result = params.comparison.test(BigDecimal.valueOf(count).compareTo(params.threshold));
+            log.debug("PastTransactionsEvaluator (count): {} {} {} = {} (lookback: {} days)",
+                    count, condition.getOperator(), params.threshold, result, params.lookbackDays);
             return result;
-        } else if ("sum".equalsIgnoreCase(condition.getField())) {
-            BigDecimal totalAmount = pastTransactions.stream()
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        } else {
+            BigDecimal totalAmount = history.sumAfter(lookbackTime, null);
 
-            boolean result = compareNumber(totalAmount, condition.getOperator(), thresholdStr);
-            System.out.printf(
-                    "PastTransactionsEvaluator (sum): %s %s %s = %b (lookback: %d days)%n",
-                    totalAmount, condition.getOperator(), thresholdStr, result, lookbackDays
-            );
+            boolean result = params.comparison.test(totalAmount.compareTo(params.threshold));
+            log.debug("PastTransactionsEvaluator (sum): {} {} {} = {} (lookback: {} days)",
+                    totalAmount, condition.getOperator(), params.threshold, result, params.lookbackDays);
             return result;
         }
-
-        return false;
-    }
-
-    private boolean compareNumber(Number actual, String operator, String expectedStr) {
-        if (actual == null) return false;
-        try {
-            BigDecimal actualVal = new BigDecimal(actual.toString());
-            BigDecimal expected = new BigDecimal(expectedStr);
-            int comparison = actualVal.compareTo(expected);
-
-            return switch (operator) {
-                case ">" -> comparison > 0;
-                case ">=" -> comparison >= 0;
-                case "<" -> comparison < 0;
-                case "<=" -> comparison <= 0;
-                case "==" -> comparison == 0;
-                default -> false;
-            };
-        } catch (NumberFormatException e) {
-            return false;
-        }
     }
 }
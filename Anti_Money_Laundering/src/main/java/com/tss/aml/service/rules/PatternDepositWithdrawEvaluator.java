@@ -1,47 +1,55 @@
 package com.tss.aml.service.rules;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
+import com.tss.aml.dto.transaction.TransactionHistoryEntry;
 import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.Transaction;
-import com.tss.aml.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Component("PATTERN_DEPOSIT_WITHDRAW")
-@RequiredArgsConstructor
 public class PatternDepositWithdrawEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    // condition.value = "requiredPairs|amountMultiplier"
+    //   e.g. "2|0.9": at least 2 deposits in the last 24h each followed by a withdrawal of >= 90% of it
+    static final class Params implements ConditionParams {
+        final int requiredPairs;
+        final BigDecimal amountMultiplier;
 
-    @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
+        Params(int requiredPairs, BigDecimal amountMultiplier) {
+            this.requiredPairs = requiredPairs;
+            this.amountMultiplier = amountMultiplier;
+        }
 
-        int requiredPairs;
-        BigDecimal amountMultiplier;
+        @Override
+        public Duration lookback() {
+            return Duration.ofHours(24);
+        }
+    }
 
-        try {
-            String[] params = condition.getValue().split("\\|"); 
-            if (params.length != 2) return false;
-            requiredPairs = Integer.parseInt(params[0]);
-            amountMultiplier = new BigDecimal(params[1]);
-        } catch (Exception e) {
-            return false;
+    @Override
+    public ConditionParams compile(RuleCondition condition) {
+        String[] params = ConditionValues.split(condition.getValue(), 2, "requiredPairs|amountMultiplier");
+        if (params.length != 2) {
+            throw new IllegalArgumentException("Invalid value '" + condition.getValue() + "', expected requiredPairs|amountMultiplier");
         }
+        return new Params(
+                ConditionValues.integer(params[0], "requiredPairs"),
+                ConditionValues.decimal(params[1], "amountMultiplier"));
+    }
 
-        Long customerId;
-        try {
-            customerId = Long.parseLong(input.getCustomerId());
-        } catch (NumberFormatException e) {
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        Params params = condition.params(Params.class);
+        if (context.getCustomerId() == null) {
             return false;
         }
 
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
-        List<Transaction> recentTransactions =
-                transactionRepository.findByCustomerIdAndCreatedAtAfterOrderByCreatedAtAsc(customerId, cutoff);
+        LocalDateTime cutoff = context.getNow().minusHours(24);
+        List<TransactionHistoryEntry> recentTransactions = context.history().entriesAfter(cutoff);
 
         if (recentTransactions.size() < 2) {
             return false;
@@ -50,13 +58,13 @@ public class PatternDepositWithdrawEvaluator implements RuleEvaluator {
         int pairCount = 0;
 
         for (int i = 1; i < recentTransactions.size(); i++) {
-            Transaction previous = recentTransactions.get(i - 1);
-            Transaction current = recentTransactions.get(i);
+            TransactionHistoryEntry previous = recentTransactions.get(i - 1);
+            TransactionHistoryEntry current = recentTransactions.get(i);
 
             if (previous.getTransactionType() == Transaction.TransactionType.DEPOSIT &&
                 current.getTransactionType() == Transaction.TransactionType.WITHDRAWAL) {
 
-                BigDecimal minWithdrawAmount = previous.getAmount().multiply(amountMultiplier);
+                BigDecimal minWithdrawAmount = previous.getAmount().multiply(params.amountMultiplier);
 
                 if (current.getAmount().compareTo(minWithdrawAmount) >= 0) {
                     pairCount++;
@@ -64,10 +72,6 @@ public class PatternDepositWithdrawEvaluator implements RuleEvaluator {
             }
         }
 
-        if (pairCount >= requiredPairs) {
-            return true;
-        }
-
-        return false;
+        return pairCount >= params.requiredPairs;
     }
 }
@@ -0,0 +1,155 @@
+package com.tss.aml.service.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable quantile sketch in the style of KLL. Level {@code h} holds items of weight
+ * {@code 2^h}; when a level exceeds {@code k} items it is sorted and every other item is
+ * promoted to the next level. Until more than {@code k} values have been added the sketch
+ * keeps every value, so ranks are exact for small histories. Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    private final int k;
+    private final List<Level> levels = new ArrayList<>();
+    private long count;
+    private boolean promoteOdd;
+
+    // all retained items in ascending order with their running weight; null until next needed
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    public QuantileSketch(int k) {
+        this.k = Math.max(2, k);
+        levels.add(new Level(this.k + 1));
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public void update(double value) {
+        levels.get(0).add(value);
+        count++;
+        compress();
+        sortedValues = null;
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int h = 0; h < other.levels.size(); h++) {
+            Level source = other.levels.get(h);
+            Level target = level(h);
+            for (int i = 0; i < source.size; i++) {
+                target.add(source.items[i]);
+            }
+        }
+        count += other.count;
+        compress();
+        sortedValues = null;
+    }
+
+    /**
+     * Smallest value whose cumulative weight reaches {@code rank} (1-based), i.e. the
+     * value at {@code sorted.get(rank - 1)} when the sketch is still exact. A binary search
+     * over the sorted view, which is rebuilt only after the sketch has changed.
+     */
+    public double valueAtRank(long rank) {
+        if (sortedValues == null) {
+            buildSortedView();
+        }
+        int n = sortedValues.length;
+        if (n == 0) {
+            return 0.0;
+        }
+        int i = Arrays.binarySearch(cumulativeWeights, rank);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return sortedValues[Math.min(i, n - 1)];
+    }
+
+    /** Nearest-rank percentile, {@code ceil(p/100 * n)}, matching the sort-based computation. */
+    public double percentile(int percentile) {
+        long rank = (long) Math.ceil((percentile / 100.0) * count);
+        return valueAtRank(Math.min(Math.max(rank, 1), Math.max(count, 1)));
+    }
+
+    /** Merges the levels, each sorted on its own, into one ascending run with cumulative weights. */
+    private void buildSortedView() {
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int h = 0; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            if (level.size == 0) {
+                continue;
+            }
+            double[] items = Arrays.copyOf(level.items, level.size);
+            Arrays.sort(items);
+            long weight = 1L << h;
+            double[] mergedValues = new double[values.length + items.length];
+            long[] mergedWeights = new long[mergedValues.length];
+            int a = 0;
+            int b = 0;
+            for (int i = 0; i < mergedValues.length; i++) {
+                if (b == items.length || (a < values.length && values[a] <= items[b])) {
+                    mergedValues[i] = values[a];
+                    mergedWeights[i] = weights[a++];
+                } else {
+                    mergedValues[i] = items[b++];
+                    mergedWeights[i] = weight;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        sortedValues = values;
+        cumulativeWeights = weights;
+    }
+
+    private Level level(int h) {
+        while (levels.size() <= h) {
+            levels.add(new Level(k + 1));
+        }
+        return levels.get(h);
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            Level level = levels.get(h);
+            if (level.size <= k) {
+                continue;
+            }
+            Arrays.sort(level.items, 0, level.size);
+            // an odd item stays behind so total weight is preserved
+            int start = level.size % 2;
+            int offset = promoteOdd ? 1 : 0;
+            promoteOdd = !promoteOdd;
+            Level next = level(h + 1);
+            for (int i = start + offset; i < level.size; i += 2) {
+                next.add(level.items[i]);
+            }
+            level.size = start;
+        }
+    }
+
+    private static final class Level {
+        double[] items;
+        int size;
+
+        Level(int capacity) {
+            this.items = new double[capacity];
+        }
+
+        void add(double value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, items.length * 2);
+            }
+            items[size++] = value;
+        }
+    }
+}
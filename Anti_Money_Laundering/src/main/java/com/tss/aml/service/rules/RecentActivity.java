@@ -0,0 +1,56 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.PageRequest;
+
+import com.tss.aml.entity.Transaction;
+import com.tss.aml.repository.TransactionRepository;
+
+/**
+ * A transaction as the in-memory rule stores consume it. Scans read the rows in pages by
+ * descending id, so neither a rebuild nor a refresh holds the whole window in memory.
+ */
+final class RecentActivity {
+
+    final Long id;
+    final Long customerId;
+    final BigDecimal amount;
+    final Transaction.TransactionType type;
+    final LocalDateTime createdAt;
+
+    private RecentActivity(Object[] row) {
+        this.id = (Long) row[0];
+        this.customerId = (Long) row[1];
+        this.amount = (BigDecimal) row[2];
+        this.type = (Transaction.TransactionType) row[3];
+        this.createdAt = (LocalDateTime) row[4];
+    }
+
+    /** Feeds every transaction created after {@code after} to {@code consumer}, newest first; returns the row count. */
+    static int scan(TransactionRepository repository, LocalDateTime after, int pageSize, Consumer<RecentActivity> consumer) {
+        long beforeId = Long.MAX_VALUE;
+        int rows = 0;
+        while (true) {
+            List<Object[]> page = repository.findRecentActivity(after, beforeId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                consumer.accept(new RecentActivity(row));
+            }
+            rows += page.size();
+            if (page.size() < pageSize) {
+                return rows;
+            }
+            beforeId = (Long) page.get(page.size() - 1)[0];
+        }
+    }
+
+    static void forCustomer(TransactionRepository repository, Long customerId, LocalDateTime after,
+                            Consumer<RecentActivity> consumer) {
+        for (Object[] row : repository.findCustomerActivity(customerId, after)) {
+            consumer.accept(new RecentActivity(row));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.tss.aml.service.rules;
+
+/**
+ * Screening decision derived from the combined risk score.
+ */
+public enum RiskBand {
+    APPROVED(0),
+    FLAGGED(60),
+    BLOCKED(90);
+
+    private final int threshold;
+
+    RiskBand(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Lowest combined score that falls in this band. */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public static RiskBand of(int combinedScore) {
+        if (combinedScore >= BLOCKED.threshold) {
+            return BLOCKED;
+        }
+        if (combinedScore >= FLAGGED.threshold) {
+            return FLAGGED;
+        }
+        return APPROVED;
+    }
+
+    /** Dominant-risk combination of the rule engine and keyword scores: the higher score wins. */
+    public static int combine(int ruleScore, int nlpScore) {
+        int weightedAverage = (int) (0.6 * ruleScore + 0.4 * nlpScore);
+        return Math.max(weightedAverage, Math.max(ruleScore, nlpScore));
+    }
+}
@@ -0,0 +1,32 @@
+package com.tss.aml.service.rules;
+
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.entity.RuleCondition;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Turns stored {@link RuleCondition}s into {@link CompiledCondition}s.
+ * Used both when building the rule set and to validate conditions before they are saved.
+ */
+@Component
+@RequiredArgsConstructor
+public class RuleCompiler {
+
+    private final RuleEvaluatorFactory ruleEvaluatorFactory;
+
+    /**
+     * @throws IllegalArgumentException if the condition has no evaluator or its value is malformed
+     */
+    public CompiledCondition compile(RuleCondition condition) {
+        if (condition.getType() == null) {
+            throw new IllegalArgumentException("Condition type is required");
+        }
+        RuleEvaluator evaluator = ruleEvaluatorFactory.getEvaluator(condition.getType());
+        if (evaluator == null) {
+            throw new IllegalArgumentException("No evaluator found for condition type: " + condition.getType());
+        }
+        return new CompiledCondition(condition, evaluator, evaluator.compile(condition));
+    }
+}
@@ -1,8 +1,15 @@
 package com.tss.aml.service.rules;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 
 public interface RuleEvaluator {
-    boolean evaluate(TransactionInputDto input, RuleCondition condition);
+
+    /**
+     * Parses and validates the condition's operator and value once, when the rule set is compiled.
+     *
+     * @throws IllegalArgumentException if the condition is malformed
+     */
+    ConditionParams compile(RuleCondition condition);
+
+    boolean evaluate(EvaluationContext context, CompiledCondition condition);
 }
@@ -0,0 +1,258 @@
+package com.tss.aml.service.rules;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tss.aml.entity.RuleExecutionLog;
+import com.tss.aml.repository.RuleExecutionLogRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Write-behind persistence for {@link RuleExecutionLog}. Entries are queued once the
+ * screening transaction commits and inserted in JDBC batches by a background thread.
+ * When the queue stays full the caller writes its entry itself, in a transaction of its own,
+ * so entries are not dropped under load. A batch the database rejects is retried row by row,
+ * and only the rows that still fail are discarded and counted.
+ * With {@code aml.rules.log-writer.enabled=false} entries are saved synchronously as before.
+ */
+@Component
+@RequiredArgsConstructor
+public class RuleExecutionLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleExecutionLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "insert into rule_execution_log (rule_id, transaction_id, matched, details, evaluated_at) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RuleExecutionLogRepository ruleExecutionLogRepository;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${aml.rules.log-writer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aml.rules.log-writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${aml.rules.log-writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${aml.rules.log-writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${aml.rules.log-writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<RuleExecutionLog> queue;
+    private Thread worker;
+    private volatile boolean running;
+    private Timer flushTimer;
+    private Counter callerWrites;
+    private Counter failedRows;
+    private Counter batchRetries;
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("aml.rule_log.queue.depth", queue, BlockingQueue::size)
+                .description("Rule execution logs waiting to be written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("aml.rule_log.flush")
+                .description("Time to insert one batch of rule execution logs")
+                .register(meterRegistry);
+        callerWrites = Counter.builder("aml.rule_log.caller_writes")
+                .description("Entries written on the request thread because the queue was full")
+                .register(meterRegistry);
+        failedRows = Counter.builder("aml.rule_log.failed")
+                .description("Entries that could not be persisted")
+                .register(meterRegistry);
+        batchRetries = Counter.builder("aml.rule_log.batch_retries")
+                .description("Batches rejected by the database and retried row by row")
+                .register(meterRegistry);
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        running = true;
+        worker = new Thread(this::run, "RuleLogWriter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Persists the entries after the current transaction commits, or immediately when
+     * no transaction is active. Entries of a rolled-back screening are discarded.
+     */
+    public void write(List<RuleExecutionLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (!enabled) {
+            entries.forEach(this::saveNow);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entries);
+                }
+            });
+        } else {
+            enqueue(entries);
+        }
+    }
+
+    private void enqueue(List<RuleExecutionLog> entries) {
+        for (RuleExecutionLog entry : entries) {
+            boolean queued = false;
+            if (running) {
+                try {
+                    queued = queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!queued) {
+                callerWrites.increment();
+                saveInNewTransaction(entry);
+            }
+        }
+    }
+
+    /**
+     * Used from afterCommit, where the screening transaction has already committed and a
+     * save joined to it would never be flushed.
+     */
+    private void saveInNewTransaction(RuleExecutionLog entry) {
+        try {
+            requiresNew.executeWithoutResult(status -> ruleExecutionLogRepository.save(entry));
+        } catch (Exception e) {
+            failedRows.increment();
+            log.warn("Failed to persist RuleExecutionLog: {}", e.getMessage());
+        }
+    }
+
+    private void saveNow(RuleExecutionLog entry) {
+        try {
+            ruleExecutionLogRepository.save(entry);
+        } catch (Exception e) {
+            if (failedRows != null) {
+                failedRows.increment();
+            }
+            log.warn("Failed to persist RuleExecutionLog: {}", e.getMessage());
+        }
+    }
+
+    private void run() {
+        List<RuleExecutionLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                RuleExecutionLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<RuleExecutionLog> batch) {
+        long started = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), RuleExecutionLogWriter::bind);
+        } catch (Exception e) {
+            batchRetries.increment();
+            log.warn("Batch of {} rule execution logs rejected, retrying row by row: {}", batch.size(), e.getMessage());
+            flushRowByRow(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushRowByRow(List<RuleExecutionLog> batch) {
+        int failed = 0;
+        for (RuleExecutionLog entry : batch) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, entry));
+            } catch (Exception e) {
+                failed++;
+                log.debug("Dropped rule execution log for rule {} / transaction {}: {}",
+                        entry.getRule() != null ? entry.getRule().getId() : null, entry.getTransactionId(), e.getMessage());
+            }
+        }
+        if (failed > 0) {
+            failedRows.increment(failed);
+            log.warn("Dropped {} of {} rule execution logs the database rejected", failed, batch.size());
+        }
+    }
+
+    private static void bind(PreparedStatement ps, RuleExecutionLog entry) throws SQLException {
+        if (entry.getRule() != null && entry.getRule().getId() != null) {
+            ps.setLong(1, entry.getRule().getId());
+        } else {
+            ps.setNull(1, Types.BIGINT);
+        }
+        ps.setString(2, entry.getTransactionId());
+        ps.setBoolean(3, entry.isMatched());
+        ps.setString(4, entry.getDetails());
+        ps.setTimestamp(5, entry.getEvaluatedAt() != null ? Timestamp.valueOf(entry.getEvaluatedAt()) : null);
+    }
+
+    /** Stops accepting entries and writes everything still queued. */
+    @PreDestroy
+    void shutdown() {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<RuleExecutionLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        log.info("Rule execution log writer stopped");
+    }
+}
@@ -0,0 +1,151 @@
+package com.tss.aml.service.rules;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.entity.Rule;
+import com.tss.aml.entity.RuleCondition;
+import com.tss.aml.repository.RuleRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Holds the compiled rule set used by the rule engine.
+ * The snapshot is rebuilt (copy-on-write) whenever an admin changes a rule,
+ * so screening itself never queries the rule tables.
+ */
+@Component
+@RequiredArgsConstructor
+public class RuleSetCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleSetCache.class);
+
+    private final RuleRepository ruleRepository;
+    private final RuleCompiler ruleCompiler;
+    private final SlidingWindowStore slidingWindowStore;
+    private final BehavioralSketchStore behavioralSketchStore;
+    private final ConditionStatistics conditionStatistics;
+
+    @Value("${aml.rules.adaptive-ordering:true}")
+    private boolean adaptiveOrdering;
+
+    private final AtomicReference<CompiledRuleSet> current = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+        slidingWindowStore.rebuild();
+    }
+
+    /**
+     * Returns the current snapshot, loading it on first use.
+     */
+    public CompiledRuleSet current() {
+        CompiledRuleSet snapshot = current.get();
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    /**
+     * Reloads active rules from the database and atomically swaps in a new snapshot.
+     * Rebuilds are serialized so versions are handed out in order.
+     */
+    public synchronized CompiledRuleSet refresh() {
+        CompiledRuleSet previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        CompiledRuleSet snapshot = compile(version, ruleRepository.findByIsActiveTrueOrderByPriorityAsc());
+        slidingWindowStore.configure(snapshot);
+        behavioralSketchStore.configure(snapshot);
+        current.set(snapshot);
+        log.info("Rule set v{} compiled with {} active rules", version, snapshot.size());
+        return snapshot;
+    }
+
+    /**
+     * Compiles the given rules, already in priority order, without publishing them.
+     * Used directly for candidate rule sets that are only backtested.
+     */
+    public CompiledRuleSet compile(long version, List<Rule> rules) {
+        List<CompiledRule> compiled = new ArrayList<>(rules.size());
+        Map<String, CompiledCondition> distinct = new HashMap<>();
+        for (Rule rule : rules) {
+            List<CompiledCondition> active = new ArrayList<>();
+            boolean matchable = true;
+            for (RuleCondition cond : rule.getConditions()) {
+                if (!cond.isActive()) {
+                    continue;
+                }
+                String key = memoKey(cond);
+                CompiledCondition shared = distinct.get(key);
+                if (shared != null) {
+                    active.add(shared);
+                    continue;
+                }
+                try {
+                    CompiledCondition compiledCondition = ruleCompiler.compile(cond).withMemoSlot(distinct.size());
+                    distinct.put(key, compiledCondition);
+                    active.add(compiledCondition);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Rule '{}' can never match: condition {} {} {} is invalid: {}",
+                            rule.getName(), cond.getType(), cond.getOperator(), cond.getValue(), e.getMessage());
+                    matchable = false;
+                }
+            }
+            if (adaptiveOrdering) {
+                active.sort(conditionStatistics.order());
+            }
+            compiled.add(new CompiledRule(rule, active, matchable));
+        }
+        return new CompiledRuleSet(version, compiled);
+    }
+
+    /** Conditions with the same type, field, operator and value evaluate identically. */
+    private static String memoKey(RuleCondition cond) {
+        return cond.getType() + "|" + trim(cond.getField()) + "|" + trim(cond.getOperator()) + "|" + trim(cond.getValue());
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    /**
+     * Re-sorts each rule's conditions by observed cost and selectivity and publishes a new
+     * snapshot if any order changed. Conditions are AND-ed, so decisions are unaffected.
+     */
+    @Scheduled(fixedDelayString = "${aml.rules.reorder-interval-ms:60000}", initialDelayString = "${aml.rules.reorder-interval-ms:60000}")
+    public synchronized void reorderConditions() {
+        CompiledRuleSet snapshot = current.get();
+        if (!adaptiveOrdering || snapshot == null) {
+            return;
+        }
+        Comparator<CompiledCondition> order = conditionStatistics.order();
+        boolean changed = false;
+        List<CompiledRule> reordered = new ArrayList<>(snapshot.size());
+        for (CompiledRule rule : snapshot.getRules()) {
+            List<CompiledCondition> conditions = new ArrayList<>(rule.getConditions());
+            conditions.sort(order);
+            if (conditions.equals(rule.getConditions())) {
+                reordered.add(rule);
+            } else {
+                reordered.add(new CompiledRule(rule.getRule(), conditions, rule.isMatchable()));
+                changed = true;
+            }
+        }
+        if (changed) {
+            CompiledRuleSet next = new CompiledRuleSet(snapshot.getVersion() + 1, reordered);
+            current.set(next);
+            log.info("Rule set v{} published with reordered conditions", next.getVersion());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.tss.aml.service.rules;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.tss.aml.entity.RuleCondition.ConditionType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for live screening: overall latency, decisions, time per condition
+ * type and time plus match/miss counts per rule. Meters are resolved once and cached so
+ * the hot path never goes through the registry lookup. Histogram buckets and SLOs for
+ * the timers are configured under {@code management.metrics.distribution}.
+ */
+@Component
+public class ScreeningMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<ConditionType, Timer> conditionTimers = new EnumMap<>(ConditionType.class);
+    private final Map<RiskBand, Counter> decisions = new EnumMap<>(RiskBand.class);
+    private final Map<Long, RuleMeters> ruleMeters = new ConcurrentHashMap<>();
+    private final Timer screeningTimer;
+    private final Counter memoHits;
+    private final Counter memoMisses;
+
+    public ScreeningMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        screeningTimer = Timer.builder("aml.screening.duration")
+                .description("Rule engine evaluation time per screened transaction")
+                .register(meterRegistry);
+        for (RiskBand band : RiskBand.values()) {
+            decisions.put(band, Counter.builder("aml.screening.decisions")
+                    .description("Screening decisions by band")
+                    .tag("decision", band.name())
+                    .register(meterRegistry));
+        }
+        memoHits = Counter.builder("aml.rules.condition.memo")
+                .description("Condition lookups answered from the per-transaction memo")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        memoMisses = Counter.builder("aml.rules.condition.memo")
+                .description("Condition lookups that ran the evaluator")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        for (ConditionType type : ConditionType.values()) {
+            conditionTimers.put(type, Timer.builder("aml.rules.condition.duration")
+                    .description("Evaluation time per condition, by condition type")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public void recordScreening(long elapsedNanos) {
+        screeningTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDecision(RiskBand band) {
+        decisions.get(band).increment();
+    }
+
+    public void recordCondition(ConditionType type, long elapsedNanos) {
+        conditionTimers.get(type).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordConditionMemo(long hits, long misses) {
+        memoHits.increment(hits);
+        memoMisses.increment(misses);
+    }
+
+    public void recordRule(CompiledRule rule, long elapsedNanos, boolean matched) {
+        if (rule.getId() == null) {
+            return;
+        }
+        RuleMeters meters = ruleMeters.computeIfAbsent(rule.getId(), this::ruleMeters);
+        meters.duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        (matched ? meters.matches : meters.misses).increment();
+    }
+
+    private RuleMeters ruleMeters(Long ruleId) {
+        String id = ruleId.toString();
+        return new RuleMeters(
+                Timer.builder("aml.rules.rule.duration")
+                        .description("Evaluation time per rule, conditions included")
+                        .tag("rule", id)
+                        .register(meterRegistry),
+                Counter.builder("aml.rules.rule.evaluations")
+                        .description("Rule evaluations by outcome")
+                        .tags("rule", id, "outcome", "match")
+                        .register(meterRegistry),
+                Counter.builder("aml.rules.rule.evaluations")
+                        .description("Rule evaluations by outcome")
+                        .tags("rule", id, "outcome", "miss")
+                        .register(meterRegistry));
+    }
+
+    private static final class RuleMeters {
+        final Timer duration;
+        final Counter matches;
+        final Counter misses;
+
+        RuleMeters(Timer duration, Counter matches, Counter misses) {
+            this.duration = duration;
+            this.matches = matches;
+            this.misses = misses;
+        }
+    }
+}
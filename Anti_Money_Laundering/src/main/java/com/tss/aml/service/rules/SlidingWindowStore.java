@@ -0,0 +1,554 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tss.aml.entity.Transaction;
+import com.tss.aml.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Per-customer, time-bucketed counts and sums of recent transactions, used by the
+ * VELOCITY, STRUCTURING and DAILY_TOTAL evaluators instead of aggregate queries.
+ * <p>
+ * Each bucket keeps a count and a sum per transaction type and amount band. Band
+ * edges are the distinct VELOCITY {@code minAmount} and STRUCTURING {@code maxSingle}
+ * thresholds of the active rule set, so threshold filters are answered exactly.
+ * Window starts are resolved to bucket granularity: the bucket containing the window
+ * start is counted in full, so a window may include up to one extra bucket of older
+ * activity. Customers are loaded from the database on first use and evicted when idle.
+ * <p>
+ * Windows learn transactions saved by this instance immediately and those saved by other
+ * instances at the next refresh ({@code refresh-ms}), which re-reads every transaction created
+ * since the previous refresh, less {@code refresh-overlap-ms} for late commits. Ids applied
+ * inside that overlap are remembered per customer, so no transaction is counted twice. If
+ * refreshes stop (two intervals without one), the store stops answering and the evaluators
+ * query the history instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlidingWindowStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SlidingWindowStore.class);
+    private static final Transaction.TransactionType[] TYPES = Transaction.TransactionType.values();
+
+    private final TransactionRepository transactionRepository;
+
+    @Value("${aml.rules.windows.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aml.rules.windows.bucket-minutes:1}")
+    private int bucketMinutes;
+
+    @Value("${aml.rules.windows.max-customers:50000}")
+    private int maxCustomers;
+
+    @Value("${aml.rules.windows.idle-minutes:60}")
+    private long idleMinutes;
+
+    @Value("${aml.rules.windows.refresh-ms:30000}")
+    private long refreshMs;
+
+    @Value("${aml.rules.windows.refresh-overlap-ms:300000}")
+    private long refreshOverlapMs;
+
+    @Value("${aml.rules.windows.page-size:10000}")
+    private int pageSize;
+
+    private final Map<Long, CustomerWindow> customers = new ConcurrentHashMap<>();
+    private volatile Layout layout;
+    // creation time bound for the next refresh, and when the windows last caught up with the table
+    private volatile LocalDateTime refreshedFrom;
+    private volatile long refreshedAtMillis = System.currentTimeMillis();
+
+    /**
+     * Derives band edges and retention from the rule set. Cached customers are dropped
+     * when the layout changes and reloaded from the database on next use.
+     */
+    public void configure(CompiledRuleSet ruleSet) {
+        if (!enabled) {
+            return;
+        }
+        TreeSet<BigDecimal> edges = new TreeSet<>();
+        int maxWindowHours = 0;
+        for (CompiledRule rule : ruleSet.getRules()) {
+            if (!rule.isMatchable()) {
+                continue;
+            }
+            for (CompiledCondition cond : rule.getConditions()) {
+                switch (cond.getType()) {
+                    case VELOCITY -> {
+                        VelocityEvaluator.Params p = cond.params(VelocityEvaluator.Params.class);
+                        edges.add(p.minAmount);
+                        maxWindowHours = Math.max(maxWindowHours, p.windowHours);
+                    }
+                    case STRUCTURING -> {
+                        StructuringEvaluator.Params p = cond.params(StructuringEvaluator.Params.class);
+                        edges.add(p.maxSingle);
+                        maxWindowHours = Math.max(maxWindowHours, p.windowHours);
+                    }
+                    case DAILY_TOTAL -> maxWindowHours = Math.max(maxWindowHours,
+                            cond.params(DailyTotalEvaluator.Params.class).windowHours);
+                    default -> { }
+                }
+            }
+        }
+
+        Layout next = maxWindowHours == 0 ? null
+                : new Layout(edges.toArray(new BigDecimal[0]), bucketMinutes, Duration.ofHours(maxWindowHours));
+        Layout previous = layout;
+        if (next == null ? previous != null : !next.sameAs(previous)) {
+            layout = next;
+            customers.clear();
+            log.info("Sliding windows reconfigured: {}", next == null ? "no window conditions" : next);
+        }
+    }
+
+    /**
+     * Loads every customer with activity inside the retention window, most recent first,
+     * up to the configured customer cap.
+     */
+    public void rebuild() {
+        Layout current = layout;
+        if (!enabled || current == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LocalDateTime floor = refreshFloor();
+        Map<Long, CustomerWindow> rebuilt = new HashMap<>();
+        int rows = RecentActivity.scan(transactionRepository, LocalDateTime.now().minus(current.retention), pageSize, a -> {
+            CustomerWindow window = rebuilt.get(a.customerId);
+            if (window == null) {
+                if (rebuilt.size() >= maxCustomers) {
+                    return;
+                }
+                window = new CustomerWindow(current);
+                rebuilt.put(a.customerId, window);
+            }
+            window.apply(a, floor);
+        });
+        rebuilt.values().forEach(window -> window.loaded = true);
+
+        customers.clear();
+        customers.putAll(rebuilt);
+        log.info("Sliding windows rebuilt for {} customers from {} transactions in {} ms",
+                rebuilt.size(), rows, System.currentTimeMillis() - start);
+    }
+
+    /** Applies transactions created since the last refresh, including those saved by other instances. */
+    @Scheduled(fixedDelayString = "${aml.rules.windows.refresh-ms:30000}",
+               initialDelayString = "${aml.rules.windows.refresh-ms:30000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        LocalDateTime floor = refreshFloor();
+        int[] applied = new int[1];
+        if (layout != null && !customers.isEmpty()) {
+            RecentActivity.scan(transactionRepository, floor, pageSize, a -> {
+                CustomerWindow window = customers.get(a.customerId);
+                if (window != null) {
+                    synchronized (window) {
+                        if (window.loaded && window.apply(a, floor)) {
+                            applied[0]++;
+                        }
+                    }
+                }
+            });
+        }
+        refreshedFrom = started;
+        LocalDateTime nextFloor = refreshFloor();
+        customers.values().forEach(w -> {
+            synchronized (w) {
+                w.applied.values().removeIf(createdAt -> !createdAt.isAfter(nextFloor));
+            }
+        });
+        refreshedAtMillis = System.currentTimeMillis();
+        log.debug("Sliding windows refreshed with {} transactions from other instances", applied[0]);
+    }
+
+    /**
+     * Adds a newly persisted transaction to its customer's window. If the surrounding
+     * database transaction rolls back, the contribution is removed again.
+     */
+    public void record(Transaction tx) {
+        Layout current = layout;
+        if (!enabled || current == null || tx.getCustomerId() == null || tx.getAmount() == null) {
+            return;
+        }
+        Long customerId = tx.getCustomerId();
+        CustomerWindow window = customers.computeIfAbsent(customerId, id -> new CustomerWindow(current));
+        try {
+            synchronized (window) {
+                if (window.loaded) {
+                    if (window.track(tx.getId(), tx.getCreatedAt(), refreshFloor())) {
+                        window.add(tx.getTransactionType(), tx.getAmount(), tx.getCreatedAt(), 1);
+                    }
+                } else {
+                    // the freshly saved row is visible to this thread's query, so it is included here
+                    load(customerId, window);
+                }
+            }
+        } catch (RuntimeException e) {
+            customers.remove(customerId, window);
+            log.warn("Failed to record transaction {} in sliding window: {}", tx.getId(), e.getMessage());
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && customers.get(customerId) == window) {
+                        synchronized (window) {
+                            window.applied.remove(tx.getId());
+                            window.add(tx.getTransactionType(), tx.getAmount(), tx.getCreatedAt(), -1);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Number of transactions of the given types with amount >= minAmount created after
+     * the given instant, or null if the store cannot answer and the caller should fall back.
+     */
+    public Long count(Long customerId, LocalDateTime after, List<Transaction.TransactionType> types, BigDecimal minAmount) {
+        Layout current = layout;
+        if (!enabled || current == null || !current.covers(after) || !fresh()) {
+            return null;
+        }
+        if (current.edgeIndex(minAmount) < 0) {
+            return null;
+        }
+        CustomerWindow window = window(customerId, current);
+        Layout windowLayout = window.layout;
+        int edge = windowLayout.edgeIndex(minAmount);
+        if (edge < 0) {
+            return null;
+        }
+        synchronized (window) {
+            return window.count(windowLayout.bucketOf(after), types, edge + 1, windowLayout.bands);
+        }
+    }
+
+    /**
+     * Sum of amounts of the given types created after the given instant, restricted to
+     * amounts strictly below maxSingle when it is not null, or null if the store cannot answer.
+     */
+    public BigDecimal sum(Long customerId, LocalDateTime after, List<Transaction.TransactionType> types, BigDecimal maxSingle) {
+        Layout current = layout;
+        if (!enabled || current == null || !current.covers(after) || !fresh()) {
+            return null;
+        }
+        if (maxSingle != null && current.edgeIndex(maxSingle) < 0) {
+            return null;
+        }
+        CustomerWindow window = window(customerId, current);
+        Layout windowLayout = window.layout;
+        int toBand = windowLayout.bands;
+        if (maxSingle != null) {
+            int edge = windowLayout.edgeIndex(maxSingle);
+            if (edge < 0) {
+                return null;
+            }
+            toBand = edge + 1;
+        }
+        synchronized (window) {
+            return window.sum(windowLayout.bucketOf(after), types, 0, toBand);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aml.rules.windows.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        Layout current = layout;
+        if (!enabled || current == null) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - Duration.ofMinutes(idleMinutes).toMillis();
+        long oldestBucket = current.oldestBucket(LocalDateTime.now());
+        customers.entrySet().removeIf(e -> e.getValue().lastAccess < idleBefore);
+        customers.values().forEach(w -> {
+            synchronized (w) {
+                w.expire(oldestBucket);
+            }
+        });
+
+        int excess = customers.size() - maxCustomers;
+        if (excess > 0) {
+            customers.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(customers::remove);
+        }
+        log.debug("Sliding window sweep: {} customers cached", customers.size());
+    }
+
+    public int cachedCustomers() {
+        return customers.size();
+    }
+
+    private CustomerWindow window(Long customerId, Layout current) {
+        CustomerWindow window = customers.computeIfAbsent(customerId, id -> new CustomerWindow(current));
+        synchronized (window) {
+            if (!window.loaded) {
+                try {
+                    load(customerId, window);
+                } catch (RuntimeException e) {
+                    customers.remove(customerId, window);
+                    throw e;
+                }
+            }
+            window.lastAccess = System.currentTimeMillis();
+        }
+        return window;
+    }
+
+    private boolean fresh() {
+        return System.currentTimeMillis() - refreshedAtMillis <= 2 * refreshMs;
+    }
+
+    /** Transactions created after this are re-read by the next refresh, so their ids are tracked. */
+    private LocalDateTime refreshFloor() {
+        LocalDateTime from = refreshedFrom;
+        return (from != null ? from : LocalDateTime.now()).minus(Duration.ofMillis(refreshOverlapMs));
+    }
+
+    private void load(Long customerId, CustomerWindow window) {
+        LocalDateTime after = LocalDateTime.now().minus(window.layout.retention);
+        LocalDateTime floor = refreshFloor();
+        RecentActivity.forCustomer(transactionRepository, customerId, after, a -> window.apply(a, floor));
+        window.loaded = true;
+        window.lastAccess = System.currentTimeMillis();
+    }
+
+    private static final class Layout {
+        final BigDecimal[] edges;
+        final int bands;
+        final long bucketSeconds;
+        final Duration retention;
+        final long retentionBuckets;
+
+        Layout(BigDecimal[] edges, int bucketMinutes, Duration retention) {
+            this.edges = edges;
+            this.bands = edges.length + 1;
+            this.bucketSeconds = Math.max(1, bucketMinutes) * 60L;
+            this.retention = retention;
+            // one spare bucket so a window computed a moment ago is still covered after a bucket rollover
+            this.retentionBuckets = retention.getSeconds() / bucketSeconds + 2;
+        }
+
+        long bucketOf(LocalDateTime time) {
+            return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+        }
+
+        long oldestBucket(LocalDateTime now) {
+            return bucketOf(now) - retentionBuckets + 1;
+        }
+
+        boolean covers(LocalDateTime after) {
+            return bucketOf(after) >= oldestBucket(LocalDateTime.now());
+        }
+
+        /** Number of edges <= amount. */
+        int band(BigDecimal amount) {
+            int lo = 0;
+            int hi = edges.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (edges[mid].compareTo(amount) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        int edgeIndex(BigDecimal threshold) {
+            int i = Arrays.binarySearch(edges, threshold);
+            return i >= 0 ? i : -1;
+        }
+
+        int cells() {
+            return TYPES.length * bands;
+        }
+
+        boolean sameAs(Layout other) {
+            return other != null && bucketSeconds == other.bucketSeconds
+                    && retention.equals(other.retention) && Arrays.equals(edges, other.edges);
+        }
+
+        @Override
+        public String toString() {
+            return "edges=" + Arrays.toString(edges) + ", bucket=" + bucketSeconds / 60 + "m, retention=" + retention;
+        }
+    }
+
+    private static final class Bucket {
+        final long index;
+        final long[] counts;
+        final BigDecimal[] sums;
+
+        Bucket(long index, int cells) {
+            this.index = index;
+            this.counts = new long[cells];
+            this.sums = new BigDecimal[cells];
+            Arrays.fill(sums, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Ring buffer of non-empty buckets in ascending bucket order. Guarded by its own monitor.
+     */
+    private static final class CustomerWindow {
+        final Layout layout;
+        // ids of applied transactions the next refresh will read again, with their creation time
+        final Map<Long, LocalDateTime> applied = new HashMap<>();
+        Bucket[] ring = new Bucket[8];
+        int head;
+        int size;
+        boolean loaded;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        CustomerWindow(Layout layout) {
+            this.layout = layout;
+        }
+
+        /** False if the transaction was already applied. */
+        boolean track(Long id, LocalDateTime createdAt, LocalDateTime floor) {
+            if (id == null || createdAt == null || !createdAt.isAfter(floor)) {
+                return true;
+            }
+            return applied.putIfAbsent(id, createdAt) == null;
+        }
+
+        boolean apply(RecentActivity a, LocalDateTime floor) {
+            if (!track(a.id, a.createdAt, floor)) {
+                return false;
+            }
+            add(a.type, a.amount, a.createdAt, 1);
+            return true;
+        }
+
+        void add(Transaction.TransactionType type, BigDecimal amount, LocalDateTime createdAt, int sign) {
+            if (type == null || amount == null || createdAt == null) {
+                return;
+            }
+            long index = layout.bucketOf(createdAt);
+            long oldest = layout.oldestBucket(LocalDateTime.now());
+            if (index < oldest) {
+                return;
+            }
+            expire(oldest);
+            int cell = type.ordinal() * layout.bands + layout.band(amount);
+            Bucket bucket = bucketFor(index);
+            bucket.counts[cell] += sign;
+            bucket.sums[cell] = sign > 0 ? bucket.sums[cell].add(amount) : bucket.sums[cell].subtract(amount);
+        }
+
+        long count(long fromIndex, List<Transaction.TransactionType> types, int fromBand, int toBand) {
+            long count = 0;
+            for (int i = size - 1; i >= 0; i--) {
+                Bucket b = get(i);
+                if (b.index < fromIndex) {
+                    break;
+                }
+                for (Transaction.TransactionType type : types) {
+                    int base = type.ordinal() * layout.bands;
+                    for (int band = fromBand; band < toBand; band++) {
+                        count += b.counts[base + band];
+                    }
+                }
+            }
+            return count;
+        }
+
+        BigDecimal sum(long fromIndex, List<Transaction.TransactionType> types, int fromBand, int toBand) {
+            BigDecimal sum = BigDecimal.ZERO;
+            for (int i = size - 1; i >= 0; i--) {
+                Bucket b = get(i);
+                if (b.index < fromIndex) {
+                    break;
+                }
+                for (Transaction.TransactionType type : types) {
+                    int base = type.ordinal() * layout.bands;
+                    for (int band = fromBand; band < toBand; band++) {
+                        sum = sum.add(b.sums[base + band]);
+                    }
+                }
+            }
+            return sum;
+        }
+
+        void expire(long oldestIndex) {
+            while (size > 0 && ring[head].index < oldestIndex) {
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            }
+        }
+
+        private Bucket get(int i) {
+            return ring[(head + i) % ring.length];
+        }
+
+        private Bucket bucketFor(long index) {
+            int i = size - 1;
+            while (i >= 0 && get(i).index > index) {
+                i--;
+            }
+            if (i >= 0 && get(i).index == index) {
+                return get(i);
+            }
+            Bucket bucket = new Bucket(index, layout.cells());
+            insertAt(i + 1, bucket);
+            return bucket;
+        }
+
+        private void insertAt(int pos, Bucket bucket) {
+            if (pos == 0 && size < ring.length) {
+                // rebuilds add newest first
+                head = (head - 1 + ring.length) % ring.length;
+                ring[head] = bucket;
+                size++;
+                return;
+            }
+            if (size == ring.length) {
+                Bucket[] grown = new Bucket[ring.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                ring = grown;
+                head = 0;
+            }
+            for (int i = size; i > pos; i--) {
+                ring[(head + i) % ring.length] = get(i - 1);
+            }
+            ring[(head + pos) % ring.length] = bucket;
+            size++;
+        }
+    }
+}
@@ -1,26 +1,32 @@
 package com.tss.aml.service.rules;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.Transaction;
-import com.tss.aml.repository.TransactionRepository;
 
 import lombok.RequiredArgsConstructor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 @Component("STRUCTURING")
 @RequiredArgsConstructor
 public class StructuringEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    private static final Logger log = LoggerFactory.getLogger(StructuringEvaluator.class);
+
+    private static final List<Transaction.TransactionType> ANY_TYPES = List.of(
+            Transaction.TransactionType.DEPOSIT,
+            Transaction.TransactionType.TRANSFER
+    );
+
+    private final SlidingWindowStore slidingWindowStore;
 
     // condition conventions:
     // - condition.type = STRUCTURING
@@ -29,55 +35,60 @@ public class StructuringEvaluator implements RuleEvaluator {
     // - condition.value = "maxSingle|maxWindowSum|windowHours|transactionTypes"
     //     e.g. "50000|300000|24|DEPOSIT" means: sum of DEPOSIT amounts < 50000 in last 24h >= 300000
     //     types can be "ANY" or comma list like "DEPOSIT,TRANSFER"
+    static final class Params implements ConditionParams {
+        final Comparison comparison;
+        final BigDecimal maxSingle;
+        final BigDecimal maxWindowSum;
+        final int windowHours;
+        final List<Transaction.TransactionType> types;
+
+        Params(Comparison comparison, BigDecimal maxSingle, BigDecimal maxWindowSum, int windowHours, List<Transaction.TransactionType> types) {
+            this.comparison = comparison;
+            this.maxSingle = maxSingle;
+            this.maxWindowSum = maxWindowSum;
+            this.windowHours = windowHours;
+            this.types = types;
+        }
+
+        @Override
+        public Duration lookback() {
+            return Duration.ofHours(windowHours);
+        }
+    }
+
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
-        try {
-            String[] parts = condition.getValue().split("\\|");
-            if (parts.length < 4) {
-                System.out.println("    StructuringEvaluator: invalid value format: " + condition.getValue());
-                return false;
-            }
-            BigDecimal maxSingle = new BigDecimal(parts[0].trim());
-            BigDecimal maxWindowSum = new BigDecimal(parts[1].trim());
-            int windowHours = Integer.parseInt(parts[2].trim());
-            String typesStr = parts[3].trim().toUpperCase(Locale.ROOT);
+    public ConditionParams compile(RuleCondition condition) {
+        String[] parts = ConditionValues.split(condition.getValue(), 4, "maxSingle|maxWindowSum|windowHours|transactionTypes");
+        return new Params(
+                Comparison.parse(condition.getOperator()),
+                ConditionValues.decimal(parts[0], "maxSingle"),
+                ConditionValues.decimal(parts[1], "maxWindowSum"),
+                ConditionValues.integer(parts[2], "windowHours"),
+                ConditionValues.types(parts[3], ANY_TYPES));
+    }
 
-            Long customerId = Long.parseLong(input.getCustomerId());
-            LocalDateTime after = LocalDateTime.now().minusHours(windowHours);
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        Params params = condition.params(Params.class);
+        if (context.getCustomerId() == null) {
+            return false;
+        }
+        try {
+            LocalDateTime after = context.getNow().minusHours(params.windowHours);
 
-            List<Transaction.TransactionType> types;
-            if ("ANY".equals(typesStr)) {
-                types = Arrays.asList(Transaction.TransactionType.DEPOSIT, Transaction.TransactionType.TRANSFER);
-            } else {
-                types = Arrays.stream(typesStr.split(","))
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .map(Transaction.TransactionType::valueOf)
-                        .collect(Collectors.toList());
+            BigDecimal sum = context.usesLiveAggregates()
+                    ? slidingWindowStore.sum(context.getCustomerId(), after, params.types, params.maxSingle)
+                    : null;
+            if (sum == null) {
+                sum = context.history().sumBelowAfter(after, params.types, params.maxSingle);
             }
-
-            BigDecimal sum = transactionRepository.sumAmountsBelowThresholdInWindow(customerId, maxSingle, after, types);
-            boolean result = compare(sum, condition.getOperator(), maxWindowSum);
-            System.out.println("    StructuringEvaluator: sum=" + sum + ", operator=" + condition.getOperator() +
-                    ", threshold=" + maxWindowSum + ", maxSingle=" + maxSingle + ", windowHours=" + windowHours +
-                    ", types=" + typesStr + " => " + result);
+            boolean result = params.comparison.test(sum.compareTo(params.maxWindowSum));
+            log.debug("StructuringEvaluator: sum={}, operator={}, threshold={}, maxSingle={}, windowHours={}, types={} => {}",
+                    sum, condition.getOperator(), params.maxWindowSum, params.maxSingle, params.windowHours, params.types, result);
             return result;
         } catch (Exception ex) {
-            System.out.println("    StructuringEvaluator error: " + ex.getMessage());
+            log.warn("StructuringEvaluator error: {}", ex.getMessage());
             return false;
         }
     }
-
-    private boolean compare(BigDecimal actual, String operator, BigDecimal expected) {
-        int cmp = actual.compareTo(expected);
-        return switch (operator) {
-            case ">" -> cmp > 0;
-            case ">=" -> cmp >= 0;
-            case "<" -> cmp < 0;
-            case "<=" -> cmp <= 0;
-            case "==" -> cmp == 0;
-            default -> false;
-        };
-    }
 }
-
@@ -0,0 +1,38 @@
+package com.tss.aml.service.rules;
+
+import java.math.BigDecimal;
+
+import com.tss.aml.entity.RuleCondition;
+
+/**
+ * Parameters of the simple "operator + numeric value" conditions.
+ */
+public final class ThresholdParams implements ConditionParams {
+
+    private final Comparison comparison;
+    private final BigDecimal threshold;
+    private final double thresholdValue;
+
+    public ThresholdParams(Comparison comparison, BigDecimal threshold) {
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.thresholdValue = threshold.doubleValue();
+    }
+
+    public static ThresholdParams parse(RuleCondition condition) {
+        return new ThresholdParams(Comparison.parse(condition.getOperator()),
+                ConditionValues.decimal(condition.getValue(), "threshold"));
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    public BigDecimal getThreshold() {
+        return threshold;
+    }
+
+    public double getThresholdValue() {
+        return thresholdValue;
+    }
+}
@@ -1,20 +1,17 @@
 package com.tss.aml.service.rules;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
-import com.tss.aml.dto.transaction.TransactionInputDto;
 import com.tss.aml.entity.RuleCondition;
 import com.tss.aml.entity.Transaction;
-import com.tss.aml.repository.TransactionRepository;
 
 import lombok.RequiredArgsConstructor;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,7 +19,12 @@ import org.slf4j.LoggerFactory;
 @RequiredArgsConstructor
 public class VelocityEvaluator implements RuleEvaluator {
 
-    private final TransactionRepository transactionRepository;
+    private static final List<Transaction.TransactionType> ANY_TYPES = List.of(
+            Transaction.TransactionType.DEPOSIT,
+            Transaction.TransactionType.TRANSFER
+    );
+
+    private final SlidingWindowStore slidingWindowStore;
     private static final Logger log = LoggerFactory.getLogger(VelocityEvaluator.class);
 
     // condition conventions:
@@ -31,66 +33,61 @@ public class VelocityEvaluator implements RuleEvaluator {
     // - condition.operator = one of >, >=, ==, <, <=
     // - condition.value = "minAmount|minCount|windowHours|transactionType"
     //     e.g. "100000|3|24|DEPOSIT" means: at least 3 deposits >= 100000 in last 24 hours
+    static final class Params implements ConditionParams {
+        final Comparison comparison;
+        final BigDecimal minAmount;
+        final int minCount;
+        final int windowHours;
+        final List<Transaction.TransactionType> types;
+
+        Params(Comparison comparison, BigDecimal minAmount, int minCount, int windowHours, List<Transaction.TransactionType> types) {
+            this.comparison = comparison;
+            this.minAmount = minAmount;
+            this.minCount = minCount;
+            this.windowHours = windowHours;
+            this.types = types;
+        }
+
+        @Override
+        public Duration lookback() {
+            return Duration.ofHours(windowHours);
+        }
+    }
+
     @Override
-    public boolean evaluate(TransactionInputDto input, RuleCondition condition) {
-        try {
-            String[] parts = condition.getValue().split("\\|");
-            if (parts.length < 4) {
-                log.debug("VelocityEvaluator: invalid value format: {}", condition.getValue());
-                return false;
-            }
-            BigDecimal minAmount = new BigDecimal(parts[0].trim());
-            int minCount = Integer.parseInt(parts[1].trim());
-            int windowHours = Integer.parseInt(parts[2].trim());
-            String txTypeStr = parts[3].trim().toUpperCase(Locale.ROOT);
+    public ConditionParams compile(RuleCondition condition) {
+        String[] parts = ConditionValues.split(condition.getValue(), 4, "minAmount|minCount|windowHours|transactionType");
+        return new Params(
+                Comparison.parse(condition.getOperator()),
+                ConditionValues.decimal(parts[0], "minAmount"),
+                ConditionValues.integer(parts[1], "minCount"),
+                ConditionValues.integer(parts[2], "windowHours"),
+                ConditionValues.types(parts[3], ANY_TYPES));
+    }
 
-            Long customerId = Long.parseLong(input.getCustomerId());
-            LocalDateTime after = LocalDateTime.now().minusHours(windowHours);
+    @Override
+    public boolean evaluate(EvaluationContext context, CompiledCondition condition) {
+        Params params = condition.params(Params.class);
+        if (context.getCustomerId() == null) {
+            return false;
+        }
+        try {
+            LocalDateTime after = context.getNow().minusHours(params.windowHours);
 
-            long observed;
-            if ("ANY".equals(txTypeStr)) {
-                List<Transaction.TransactionType> types = Arrays.asList(
-                    Transaction.TransactionType.DEPOSIT,
-                    Transaction.TransactionType.TRANSFER
-                );
-                observed = transactionRepository
-                    .countByCustomerIdAndTransactionTypeInAndAmountGreaterThanEqualAndCreatedAtAfter(
-                        customerId, types, minAmount, after);
-            } else if (txTypeStr.contains(",")) {
-                List<Transaction.TransactionType> types = Arrays.stream(txTypeStr.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .map(Transaction.TransactionType::valueOf)
-                    .collect(Collectors.toList());
-                observed = transactionRepository
-                    .countByCustomerIdAndTransactionTypeInAndAmountGreaterThanEqualAndCreatedAtAfter(
-                        customerId, types, minAmount, after);
-            } else {
-                Transaction.TransactionType txType = Transaction.TransactionType.valueOf(txTypeStr);
-                observed = transactionRepository
-                    .countByCustomerIdAndTransactionTypeAndAmountGreaterThanEqualAndCreatedAtAfter(
-                        customerId, txType, minAmount, after);
-            }
+            Long windowed = context.usesLiveAggregates()
+                    ? slidingWindowStore.count(context.getCustomerId(), after, params.types, params.minAmount)
+                    : null;
+            long observed = windowed != null
+                    ? windowed
+                    : context.history().countAfter(after, params.types, params.minAmount);
 
-            boolean result = compareNumber(observed, condition.getOperator(), minCount);
+            boolean result = params.comparison.test(Long.compare(observed, params.minCount));
             log.debug("VelocityEvaluator: observed={}, operator={}, threshold={}, minAmount={}, windowHours={}, types={} => {}",
-                    observed, condition.getOperator(), minCount, minAmount, windowHours, txTypeStr, result);
+                    observed, condition.getOperator(), params.minCount, params.minAmount, params.windowHours, params.types, result);
             return result;
         } catch (Exception ex) {
             log.warn("VelocityEvaluator error: {}", ex.getMessage());
             return false;
         }
     }
-
-    private boolean compareNumber(long actual, String operator, int expected) {
-        return switch (operator) {
-            case ">" -> actual > expected;
-            case ">=" -> actual >= expected;
-            case "<" -> actual < expected;
-            case "<=" -> actual <= expected;
-            case "==" -> actual == expected;
-            default -> false;
-        };
-    }
 }
-
@@ -0,0 +1,271 @@
+package com.tss.aml.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tss.aml.entity.BankAccount;
+import com.tss.aml.entity.LedgerEntry;
+import com.tss.aml.exception.AmlApiException;
+import com.tss.aml.repository.BankAccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+
+class AccountBalanceServiceTest {
+
+    private static final long ACCOUNT_ID = 1L;
+    private static final String ACCOUNT_NUMBER = "ACC-0001";
+    private static final String INSUFFICIENT = "Insufficient funds";
+
+    /**
+     * One account row and its ledger as READ_COMMITTED MySQL would show them: ledger entries and
+     * the version bump become visible at commit, and a claim holds the row lock until then.
+     */
+    private static final class FakeAccountStore {
+
+        private final ReentrantLock rowLock = new ReentrantLock();
+        private final ThreadLocal<List<Long>> pendingCents = ThreadLocal.withInitial(ArrayList::new);
+        private final ThreadLocal<Long> pendingVersion = new ThreadLocal<>();
+        private volatile long version;
+        private long committedCents;
+        private long lowestCents;
+
+        FakeAccountStore(long openingCents) {
+            committedCents = openingCents;
+            lowestCents = openingCents;
+        }
+
+        BankAccount load() {
+            BankAccount account = new BankAccount();
+            account.setId(ACCOUNT_ID);
+            account.setAccountNumber(ACCOUNT_NUMBER);
+            account.setVersion(version);
+            return account;
+        }
+
+        int claim(long expected) {
+            if (!rowLock.isHeldByCurrentThread()) {
+                rowLock.lock();
+            }
+            if (pendingVersion.get() != null || version != expected) {
+                return 0;
+            }
+            pendingVersion.set(expected + 1);
+            return 1;
+        }
+
+        void refresh(BankAccount account) {
+            Long pending = pendingVersion.get();
+            account.setVersion(pending != null ? pending : version);
+        }
+
+        synchronized BigDecimal balance() {
+            long cents = committedCents;
+            for (long entry : pendingCents.get()) {
+                cents += entry;
+            }
+            return BigDecimal.valueOf(cents, 2);
+        }
+
+        void append(BigDecimal amount) {
+            pendingCents.get().add(amount.movePointRight(2).longValueExact());
+        }
+
+        void commit() {
+            synchronized (this) {
+                for (long entry : pendingCents.get()) {
+                    committedCents += entry;
+                }
+                lowestCents = Math.min(lowestCents, committedCents);
+                if (pendingVersion.get() != null) {
+                    version = pendingVersion.get();
+                }
+            }
+            release();
+        }
+
+        void rollback() {
+            release();
+        }
+
+        private void release() {
+            pendingCents.remove();
+            pendingVersion.remove();
+            if (rowLock.isHeldByCurrentThread()) {
+                rowLock.unlock();
+            }
+        }
+
+        synchronized long committedCents() {
+            return committedCents;
+        }
+
+        synchronized long lowestCents() {
+            return lowestCents;
+        }
+    }
+
+    private static AccountBalanceService service(FakeAccountStore store, int maxAttempts) {
+        BankAccountRepository bankAccountRepo = mock(BankAccountRepository.class);
+        when(bankAccountRepo.claim(any(), anyLong())).thenAnswer(call -> store.claim(call.getArgument(1)));
+        LedgerService ledgerService = mock(LedgerService.class);
+        when(ledgerService.currentBalance(any())).thenAnswer(call -> store.balance());
+        when(ledgerService.append(anyString(), any(), any(), any())).thenAnswer(call -> {
+            store.append(call.getArgument(2));
+            return null;
+        });
+        EntityManager entityManager = mock(EntityManager.class);
+        doAnswer(call -> {
+            store.refresh(call.getArgument(0));
+            return null;
+        }).when(entityManager).refresh(any(BankAccount.class));
+
+        AccountBalanceService service = new AccountBalanceService(bankAccountRepo, ledgerService, entityManager,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "lockStripes", 16);
+        ReflectionTestUtils.setField(service, "lockTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", maxAttempts);
+        service.init();
+        return service;
+    }
+
+    /** Runs {@code work} the way a transactional caller would, completing its synchronizations. */
+    private static boolean inTransaction(FakeAccountStore store, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        boolean committed = false;
+        try {
+            work.run();
+            store.commit();
+            committed = true;
+        } catch (AmlApiException e) {
+            store.rollback();
+            if (e.getStatus() != HttpStatus.BAD_REQUEST && e.getStatus() != HttpStatus.CONFLICT) {
+                throw e;
+            }
+        } finally {
+            int status = committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(s -> s.afterCompletion(status));
+        }
+        return committed;
+    }
+
+    @Test
+    void concurrentDebitsAndCreditsLoseNoUpdatesAndNeverOverdraw() throws Exception {
+        long openingCents = 50_000;
+        FakeAccountStore store = new FakeAccountStore(openingCents);
+        // two instances share the row, so conflicts must be caught by the version claim as well
+        AccountBalanceService[] instances = { service(store, 50), service(store, 50) };
+        int threads = 8;
+        int operationsPerThread = 500;
+        AtomicLong expectedCents = new AtomicLong(openingCents);
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            AccountBalanceService service = instances[t % instances.length];
+            Random random = new Random(t);
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    long cents = 100 + random.nextInt(20_000);
+                    BigDecimal amount = BigDecimal.valueOf(cents, 2);
+                    if (random.nextInt(3) == 0) {
+                        if (inTransaction(store, () -> service.credit(store.load(), amount, null))) {
+                            expectedCents.addAndGet(cents);
+                        }
+                    } else if (inTransaction(store, () -> service.debit(store.load(), amount, null, INSUFFICIENT))) {
+                        expectedCents.addAndGet(-cents);
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(expectedCents.get(), store.committedCents(), "every committed change is in the balance");
+        assertTrue(store.lowestCents() >= 0, "balance went negative: " + store.lowestCents());
+        assertTrue(rejected.get() > 0, "the workload should have exhausted the balance at least once");
+    }
+
+    @Test
+    void writeOffZeroesTheBalanceUnderTheClaim() {
+        FakeAccountStore store = new FakeAccountStore(12_345);
+        AccountBalanceService service = service(store, 5);
+        BigDecimal[] writtenOff = new BigDecimal[1];
+
+        assertTrue(inTransaction(store, () -> writtenOff[0] = service.writeOff(store.load(), null)));
+
+        assertEquals(new BigDecimal("123.45"), writtenOff[0]);
+        assertEquals(0, store.committedCents());
+        assertEquals(1, store.version, "the write-off must claim the account");
+    }
+
+    @Test
+    void debitGivesUpWithConflictAfterMaxAttempts() {
+        FakeAccountStore store = new FakeAccountStore(10_000);
+        BankAccountRepository bankAccountRepo = mock(BankAccountRepository.class);
+        when(bankAccountRepo.claim(any(), anyLong())).thenReturn(0);
+        LedgerService ledgerService = mock(LedgerService.class);
+        when(ledgerService.currentBalance(any())).thenAnswer(call -> store.balance());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountBalanceService service = new AccountBalanceService(bankAccountRepo, ledgerService,
+                mock(EntityManager.class), meterRegistry);
+        ReflectionTestUtils.setField(service, "lockStripes", 16);
+        ReflectionTestUtils.setField(service, "lockTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        service.init();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            AmlApiException e = assertThrows(AmlApiException.class,
+                    () -> service.debit(store.load(), new BigDecimal("10.00"), null, INSUFFICIENT));
+            assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        verify(bankAccountRepo, times(3)).claim(ACCOUNT_ID, 0L);
+        verify(ledgerService, never()).append(anyString(), any(LedgerEntry.EntryType.class), any(), any());
+        assertEquals(3.0, meterRegistry.counter("aml.accounts.balance.conflicts").count());
+    }
+}
@@ -0,0 +1,107 @@
+package com.tss.aml.service.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+    private static final int K = 200;
+    private static final int[] PERCENTILES = { 1, 10, 25, 50, 75, 90, 95, 99, 100 };
+
+    /** Nearest-rank percentile over the sorted values, as computed before the sketch. */
+    private static double exactPercentile(double[] sorted, int percentile) {
+        int rank = (int) Math.ceil((percentile / 100.0) * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+
+    private static double[] amounts(int n, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = Math.round(Math.exp(7 + 1.5 * random.nextGaussian()) * 100) / 100.0;
+        }
+        return values;
+    }
+
+    /** How far the ranks {@code value} occupies lie from the target rank, as a share of all values. */
+    private static double rankError(double[] sorted, double value, int percentile) {
+        int below = 0;
+        while (below < sorted.length && sorted[below] < value) {
+            below++;
+        }
+        int atMost = below;
+        while (atMost < sorted.length && sorted[atMost] == value) {
+            atMost++;
+        }
+        double target = Math.ceil((percentile / 100.0) * sorted.length);
+        double error = target < below + 1 ? below + 1 - target : target > atMost ? target - atMost : 0;
+        return error / sorted.length;
+    }
+
+    @Test
+    void isExactWhileHistoryFitsInK() {
+        double[] values = amounts(K, 1);
+        QuantileSketch sketch = new QuantileSketch(K);
+        for (double v : values) {
+            sketch.update(v);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int p : PERCENTILES) {
+            assertEquals(exactPercentile(sorted, p), sketch.percentile(p), "p" + p);
+        }
+    }
+
+    @Test
+    void staysWithinRankErrorOfExactPercentile() {
+        double[] values = amounts(100_000, 2);
+        QuantileSketch sketch = new QuantileSketch(K);
+        for (double v : values) {
+            sketch.update(v);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(values.length, sketch.count());
+        for (int p : PERCENTILES) {
+            double error = rankError(sorted, sketch.percentile(p), p);
+            assertTrue(error <= 0.02, "p" + p + " rank error " + error);
+        }
+    }
+
+    @Test
+    void mergedDailySketchesMatchExactPercentile() {
+        double[] values = amounts(30_000, 3);
+        QuantileSketch merged = new QuantileSketch(K);
+        for (int day = 0; day < 30; day++) {
+            QuantileSketch daily = new QuantileSketch(K);
+            for (int i = day * 1000; i < (day + 1) * 1000; i++) {
+                daily.update(values[i]);
+            }
+            merged.merge(daily);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(values.length, merged.count());
+        for (int p : PERCENTILES) {
+            double error = rankError(sorted, merged.percentile(p), p);
+            assertTrue(error <= 0.02, "p" + p + " rank error " + error);
+        }
+    }
+
+    @Test
+    void lookupSeesValuesAddedAfterAnEarlierLookup() {
+        QuantileSketch sketch = new QuantileSketch(K);
+        for (int i = 1; i <= 100; i++) {
+            sketch.update(i);
+        }
+        assertEquals(100.0, sketch.percentile(100));
+        sketch.update(1_000_000);
+        assertEquals(1_000_000.0, sketch.percentile(100));
+        assertEquals(51.0, sketch.percentile(50));
+    }
+}